@@ -0,0 +1,124 @@
+package gitlet;
+
+import gitlet.repo.Remote;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.net.UnixDomainSocketAddress;
+import java.nio.channels.Channels;
+import java.nio.channels.SocketChannel;
+
+/**
+ * This class is the thin client of the gitlet daemon.
+ * <p>
+ * It sends its arguments to the daemon listening on SOCKET_FILE and
+ * prints the reply, loading none of the repository and command classes,
+ * so a command run by the daemon only pays for starting a small JVM.
+ * If no daemon answers, or the command must run in this process, it runs
+ * the command through Main, as "java gitlet.Main" does.
+ * <p>
+ * A request is the number of arguments and each argument as a string.
+ * The reply is a sequence of frames: a stream byte, STDOUT or STDERR,
+ * the length of the chunk and the chunk, printed to the standard output
+ * or error; then END and the exit status of the command.
+ *
+ * @author ryan ma
+ */
+
+public class Client {
+
+    /**
+     * The socket of the daemon.
+     */
+    public static final File SOCKET_FILE = new File(".gitlet/daemon.sock");
+
+    /**
+     * Stream byte of a frame of the standard output.
+     */
+    static final int STDOUT = 1;
+
+    /**
+     * Stream byte of a frame of the standard error.
+     */
+    static final int STDERR = 2;
+
+    /**
+     * Stream byte of the last frame, holding the exit status.
+     */
+    static final int END = 0;
+
+    /**
+     * Run the command with ARGS through the daemon if one is running, and
+     * through Main otherwise.
+     */
+    public static void main(String... args) throws IOException {
+        if (!forward(args)) {
+            Main.run(args);
+        }
+    }
+
+    /**
+     * Send ARGS to the daemon and print its reply, exiting with the exit
+     * status it sends. Return false, without running anything, if no
+     * daemon is running, ARGS start the daemon, ARGS serve a fetch or push,
+     * which talk through the standard input, or ARGS run a bisection
+     * script, which may run gitlet itself.
+     */
+    static boolean forward(String[] args) throws IOException {
+        int i = 0;
+        while (i < args.length && args[i].startsWith("--")) {
+            i += args[i].equals("--jobs") ? 2 : 1;
+        }
+        if (!SOCKET_FILE.exists() || i >= args.length || args[i].equals("daemon")
+                || args[i].equals(Remote.UPLOAD_PACK) || args[i].equals(Remote.RECEIVE_PACK)
+                || args[i].equals("bisect") && i + 1 < args.length && args[i + 1].equals("run")) {
+            return false;
+        }
+        SocketChannel channel;
+        try {
+            channel = SocketChannel.open(UnixDomainSocketAddress.of(SOCKET_FILE.toPath()));
+        } catch (IOException excp) {
+            return false;
+        }
+        int status;
+        try (channel) {
+            DataOutputStream out = new DataOutputStream(Channels.newOutputStream(channel));
+            out.writeInt(args.length);
+            for (String arg : args) {
+                Utils.writeString(out, arg);
+            }
+            out.flush();
+            status = printReply(new DataInputStream(Channels.newInputStream(channel)));
+        }
+        if (status != 0) {
+            System.exit(status);
+        }
+        return true;
+    }
+
+    /**
+     * Print the frames of the reply read from IN to the standard output
+     * and error, and return the exit status of the command.
+     */
+    private static int printReply(DataInputStream in) throws IOException {
+        byte[] chunk = new byte[0];
+        while (true) {
+            int stream = in.readByte();
+            if (stream == END) {
+                System.out.flush();
+                System.err.flush();
+                return in.readInt();
+            }
+            int length = in.readInt();
+            if (chunk.length < length) {
+                chunk = new byte[length];
+            }
+            in.readFully(chunk, 0, length);
+            PrintStream target = stream == STDERR ? System.err : System.out;
+            target.write(chunk, 0, length);
+        }
+    }
+}
@@ -1,9 +1,12 @@
 package gitlet;
 
 import gitlet.commands.*;
+import gitlet.objects.GitletException;
 import gitlet.repo.Repo;
 
 import java.io.IOException;
+import java.util.Arrays;
+import java.util.Set;
 
 /**
  * Driver class for Gitlet, the tiny stupid version-control system.
@@ -20,20 +23,95 @@ public class Main {
     public static Repo repo = new Repo();
 
     /**
-     * The main process of gitlet with ARGS.
+     * The commands that only read the repository. They run a read-only
+     * transaction of the journal, which only writes the stat cache of
+     * the index, if it changed, and never the journal itself.
+     */
+    static final Set<String> READ_ONLY_COMMANDS = Set.of("log", "global-log", "find", "status");
+
+    /**
+     * The main process of gitlet with ARGS. The command is sent to the
+     * gitlet daemon if one is running, and run in this process otherwise.
      */
     public static void main(String... args) throws IOException {
+        if (!Client.forward(args)) {
+            run(args);
+        }
+    }
+
+    /**
+     * Run the command with ARGS in this process. A GitletException raised
+     * by the command, such as an ambiguous UID, is reported by its message.
+     * Updates of refs and the index left unapplied by a crashed command
+     * are replayed from the journal first.
+     */
+    static void run(String... args) throws IOException {
+        args = parseOptions(args);
         if (args.length == 0) {
             exitWithError("Please enter a command.");
         }
-        chooseCommand(args);
+        try {
+            if (Repo.GITLET_FOLDER.isDirectory()) {
+                repo.journal.recover();
+            }
+            chooseCommand(args);
+        } catch (GitletException excp) {
+            exitWithError(excp.getMessage());
+        }
+    }
+
+    /**
+     * Apply the global options at the front of ARGS and return the rest.
+     * "--jobs N" sets the number of threads used to hash and write working
+     * files. "--stats" prints the hit and miss counts of the object caches,
+     * the numbers of working files hashed and taken from the stat cache,
+     * and the numbers of files a checkout wrote and deleted, to standard
+     * error when the command ends.
+     */
+    static String[] parseOptions(String[] args) {
+        int i = 0;
+        while (i < args.length && args[i].startsWith("--")) {
+            if (args[i].equals("--jobs") && i + 1 < args.length
+                    && args[i + 1].matches("[1-9][0-9]*")) {
+                repo.setJobs(Integer.parseInt(args[i + 1]));
+                i += 2;
+            } else if (args[i].equals("--stats")) {
+                Runnable printStats = () -> {
+                    System.err.println(repo.objectFolder.getCacheStats());
+                    if (repo.workFolder.getHashStats() != null) {
+                        System.err.println(repo.workFolder.getHashStats());
+                    }
+                    if (repo.workFolder.getCheckoutStats() != null) {
+                        System.err.println(repo.workFolder.getCheckoutStats());
+                    }
+                };
+                if (Server.isServing()) {
+                    Server.atEnd(printStats);
+                } else {
+                    Runtime.getRuntime().addShutdownHook(new Thread(printStats));
+                }
+                i += 1;
+            } else {
+                exitWithError("Incorrect operands.");
+            }
+        }
+        return Arrays.copyOfRange(args, i, args.length);
     }
 
     /**
      * Create object and run command with ARGS.
      * This function is for silly style-checker.
+     * The updates of refs and the index made by the command are committed
+     * to the journal together when it finishes; a command exiting with an
+     * error leaves them unchanged. Read-only commands do not use the
+     * journal.
      */
     static void chooseCommand(String[] args) throws IOException {
+        if (READ_ONLY_COMMANDS.contains(args[0])) {
+            repo.journal.beginReadOnly();
+        } else {
+            repo.journal.begin();
+        }
         Command cmd;
         switch (args[0]) {
             case "init" -> {
@@ -88,21 +166,82 @@ public class Main {
                 cmd = new Merge(args);
                 cmd.run();
             }
+            case "gc" -> {
+                cmd = new Gc(args);
+                cmd.run();
+            }
+            case "migrate" -> {
+                cmd = new Migrate(args);
+                cmd.run();
+            }
+            case "blame" -> {
+                cmd = new Annotate(args);
+                cmd.run();
+            }
+            case "bisect" -> {
+                cmd = new Bisect(args);
+                cmd.run();
+            }
+            case "config" -> {
+                cmd = new Configure(args);
+                cmd.run();
+            }
+            case "sparse-checkout" -> {
+                cmd = new SparseCheckout(args);
+                cmd.run();
+            }
+            case "add-remote" -> {
+                cmd = new AddRemote(args);
+                cmd.run();
+            }
+            case "rm-remote" -> {
+                cmd = new RmRemote(args);
+                cmd.run();
+            }
+            case "fetch" -> {
+                cmd = new Fetch(args);
+                cmd.run();
+            }
+            case "push" -> {
+                cmd = new Push(args);
+                cmd.run();
+            }
+            case "pull" -> {
+                cmd = new Pull(args);
+                cmd.run();
+            }
+            case "upload-pack" -> {
+                cmd = new UploadPack(args);
+                cmd.run();
+            }
+            case "receive-pack" -> {
+                cmd = new ReceivePack(args);
+                cmd.run();
+            }
+            case "daemon" -> {
+                cmd = new Daemon(args);
+                cmd.run();
+            }
             default -> exitWithError("No command with that name exists.");
         }
 
         if (repo.getStage() != null) {
             repo.getStage().save();
         }
+        repo.journal.commit();
     }
 
     /**
-     * Prints out MESSAGE and exits with code 0.
+     * Prints out MESSAGE and exits with code 0. In the daemon, only the
+     * command ends.
      */
     public static void exitWithError(String message) {
         if (message != null && !message.equals("")) {
             System.out.println(message);
         }
+        if (Server.isServing()) {
+            throw new Server.Exit();
+        }
         System.exit(0);
     }
 
@@ -0,0 +1,215 @@
+package gitlet;
+
+import gitlet.objects.GitletException;
+
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.channels.Channels;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+
+import static gitlet.Main.repo;
+
+/**
+ * This class is the gitlet daemon, which runs commands for gitlet clients
+ * in one long-lived process.
+ * <p>
+ * Loading the classes and warming the object caches takes longer than
+ * most commands. The daemon, started by the daemon command, listens on
+ * the Unix domain socket Client.SOCKET_FILE in the repository. While the
+ * socket exists, Client, and Main as well, forward their arguments to
+ * the daemon instead of running the command themselves, and print what
+ * the daemon sends back. The daemon runs the usual command classes with
+ * its standard output and error sent to the client as frames of each
+ * stream, keeping the repository and its object caches between
+ * commands. Commands are run one at a time.
+ *
+ * @author ryan ma
+ */
+
+public class Server {
+
+    /**
+     * Thrown by Main.exitWithError in the daemon to end the command being
+     * run instead of the process.
+     */
+    static class Exit extends RuntimeException {
+        /**
+         * Constructor function.
+         */
+        Exit() {
+            super(null, null, false, false);
+        }
+
+        /**
+         * The serialization version of this class.
+         */
+        private static final long serialVersionUID = 3920413580163823541L;
+    }
+
+    /**
+     * Return true if this process is the daemon running a command.
+     */
+    static boolean isServing() {
+        return serving;
+    }
+
+    /**
+     * Run ACTION when the command being run by the daemon ends.
+     */
+    static void atEnd(Runnable action) {
+        endActions.add(action);
+    }
+
+    /**
+     * Listen on Client.SOCKET_FILE and run the commands sent by clients
+     * until the process is stopped.
+     */
+    public static void serve() throws IOException {
+        if (Client.SOCKET_FILE.exists()) {
+            try {
+                SocketChannel.open(UnixDomainSocketAddress.of(Client.SOCKET_FILE.toPath()))
+                        .close();
+            } catch (IOException excp) {
+                /* Left by a daemon that was killed. */
+                Files.delete(Client.SOCKET_FILE.toPath());
+            }
+            if (Client.SOCKET_FILE.exists()) {
+                Main.exitWithError("A gitlet daemon is already running.");
+            }
+        }
+        try (ServerSocketChannel server = ServerSocketChannel.open(StandardProtocolFamily.UNIX)) {
+            server.bind(UnixDomainSocketAddress.of(Client.SOCKET_FILE.toPath()));
+            Runtime.getRuntime().addShutdownHook(new Thread(Client.SOCKET_FILE::delete));
+            System.out.println("Serving gitlet on " + Client.SOCKET_FILE + ".");
+            while (true) {
+                try (SocketChannel client = server.accept()) {
+                    handle(client);
+                } catch (IOException excp) {
+                    System.err.println("Lost a client: " + excp.getMessage());
+                }
+            }
+        }
+    }
+
+    /**
+     * Read a request from CLIENT, run its command and send its standard
+     * output and error back in frames, followed by its exit status.
+     */
+    private static void handle(SocketChannel client) throws IOException {
+        DataInputStream in = new DataInputStream(Channels.newInputStream(client));
+        String[] args = new String[in.readInt()];
+        for (int i = 0; i < args.length; i += 1) {
+            args[i] = Utils.readString(in);
+        }
+
+        PrintStream stdout = System.out;
+        PrintStream stderr = System.err;
+        DataOutputStream channelOut = new DataOutputStream(
+                new BufferedOutputStream(Channels.newOutputStream(client)));
+        PrintStream out = new PrintStream(new FrameOutputStream(channelOut, Client.STDOUT),
+                false, StandardCharsets.UTF_8);
+        PrintStream err = new PrintStream(new FrameOutputStream(channelOut, Client.STDERR),
+                false, StandardCharsets.UTF_8);
+        System.setOut(out);
+        System.setErr(err);
+        serving = true;
+        int status = 0;
+        try {
+            repo.refresh();
+            Main.run(args);
+        } catch (Exit excp) {
+            /* The command ended with Main.exitWithError. */
+        } catch (GitletException | IOException | IllegalArgumentException excp) {
+            out.println(excp.getMessage());
+        } catch (RuntimeException | AssertionError excp) {
+            excp.printStackTrace(err);
+            status = 1;
+        } finally {
+            for (Runnable action : endActions) {
+                action.run();
+            }
+            endActions.clear();
+            serving = false;
+            out.flush();
+            err.flush();
+            System.setOut(stdout);
+            System.setErr(stderr);
+        }
+        synchronized (channelOut) {
+            channelOut.writeByte(Client.END);
+            channelOut.writeInt(status);
+            channelOut.flush();
+        }
+    }
+
+    /**
+     * The output stream of the daemon sending what is written to it to
+     * the client as frames of one stream.
+     */
+    private static class FrameOutputStream extends OutputStream {
+
+        /**
+         * Constructor function sending frames of STREAM to CHANNEL, which
+         * the frames of the other stream are sent to as well.
+         */
+        FrameOutputStream(DataOutputStream channel, int stream) {
+            this.channel = channel;
+            this.stream = stream;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            write(new byte[] {(byte) b}, 0, 1);
+        }
+
+        @Override
+        public void write(byte[] bytes, int offset, int length) throws IOException {
+            if (length == 0) {
+                return;
+            }
+            synchronized (channel) {
+                channel.writeByte(stream);
+                channel.writeInt(length);
+                channel.write(bytes, offset, length);
+            }
+        }
+
+        @Override
+        public void flush() throws IOException {
+            synchronized (channel) {
+                channel.flush();
+            }
+        }
+
+        /**
+         * The connection to the client, shared by both streams.
+         */
+        private final DataOutputStream channel;
+
+        /**
+         * The stream byte of the frames.
+         */
+        private final int stream;
+    }
+
+    /**
+     * True while the daemon runs a command.
+     */
+    private static boolean serving;
+
+    /**
+     * Actions to run when the command being run by the daemon ends.
+     */
+    private static final List<Runnable> endActions = new ArrayList<>();
+}
@@ -3,13 +3,16 @@ package gitlet;
 import gitlet.objects.GitletException;
 
 import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
 import java.util.Arrays;
-import java.util.Formatter;
+import java.util.HexFormat;
 import java.util.List;
 
 
@@ -25,7 +28,7 @@ public class Utils {
 	/**
 	 * The length of a complete SHA-1 UID as a hexadecimal numeral.
 	 */
-	static final int UID_LENGTH = 40;
+	public static final int UID_LENGTH = 40;
 
 	/**
 	 * Returns the SHA-1 hash of the concatenation of VALS, which may
@@ -44,11 +47,7 @@ public class Utils {
 							"improper type to sha1");
 				}
 			}
-			Formatter result = new Formatter();
-			for (byte b : md.digest()) {
-				result.format("%02x", b);
-			}
-			return result.toString();
+			return bytesToUid(md.digest());
 		} catch (NoSuchAlgorithmException excp) {
 			throw new IllegalArgumentException(
 					"System does not support SHA-1");
@@ -63,6 +62,102 @@ public class Utils {
 		return sha1(vals.toArray(new Object[vals.size()]));
 	}
 
+	/**
+	 * The size of the buffer used to stream file contents.
+	 */
+	public static final int BUFFER_SIZE = 1 << 16;
+
+	/**
+	 * Returns the SHA-1 hash of the contents of FILE. The file is read
+	 * through a fixed-size buffer, so memory use does not depend on the
+	 * size of the file. Throws IllegalArgumentException in case of problems.
+	 */
+	public static String sha1(File file) {
+		try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+			MessageDigest md = MessageDigest.getInstance("SHA-1");
+			ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+			while (channel.read(buffer) >= 0) {
+				buffer.flip();
+				md.update(buffer);
+				buffer.clear();
+			}
+			return bytesToUid(md.digest());
+		} catch (IOException excp) {
+			throw new IllegalArgumentException(excp.getMessage());
+		} catch (NoSuchAlgorithmException excp) {
+			throw new IllegalArgumentException(
+					"System does not support SHA-1");
+		}
+	}
+
+	/**
+	 * Returns the 20 raw bytes of the full hexadecimal UID.
+	 */
+	public static byte[] uidToBytes(String uid) {
+		return HEX.parseHex(uid, 0, UID_LENGTH);
+	}
+
+	/**
+	 * Returns the hexadecimal UID of the 20 raw bytes in BYTES. Loading
+	 * the commit graph converts every UID in it, and every file name
+	 * looked up in a tree is hashed, so this avoids a Formatter.
+	 */
+	public static String bytesToUid(byte[] bytes) {
+		return HEX.formatHex(bytes);
+	}
+
+	/**
+	 * Lowercase hexadecimal digits without delimiters.
+	 */
+	private static final HexFormat HEX = HexFormat.of();
+
+	/* BINARY ENCODING */
+
+	/**
+	 * Writes the 20 raw bytes of the full hexadecimal UID to OUT.
+	 */
+	public static void writeUid(DataOutput out, String uid) throws IOException {
+		out.write(uidToBytes(uid));
+	}
+
+	/**
+	 * Reads 20 raw bytes from IN and returns them as a hexadecimal UID.
+	 */
+	public static String readUid(DataInput in) throws IOException {
+		byte[] bytes = new byte[UID_LENGTH / 2];
+		in.readFully(bytes);
+		return bytesToUid(bytes);
+	}
+
+	/**
+	 * Writes STR to OUT as its length in UTF-8 bytes followed by the
+	 * bytes. Unlike DataOutput.writeUTF, STR may be of any length.
+	 */
+	public static void writeString(DataOutput out, String str) throws IOException {
+		byte[] bytes = str.getBytes(StandardCharsets.UTF_8);
+		out.writeInt(bytes.length);
+		out.write(bytes);
+	}
+
+	/**
+	 * Reads a string written by writeString from IN.
+	 */
+	public static String readString(DataInput in) throws IOException {
+		byte[] bytes = new byte[in.readInt()];
+		in.readFully(bytes);
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+
+	/**
+	 * Returns true if BYTES start with the header of a Java serialization
+	 * stream, the format objects were stored in before the binary
+	 * encoding.
+	 */
+	public static boolean isJavaSerialized(byte[] bytes) {
+		return bytes.length >= 2 && (bytes[0] & 0xff) == 0xac
+				&& (bytes[1] & 0xff) == 0xed;
+	}
+
 	/* FILE DELETION */
 
 	/**
@@ -101,7 +196,7 @@ public class Utils {
 	 * be a normal file. Throws IllegalArgumentException
 	 * in case of problems.
 	 */
-	static byte[] readContents(File file) {
+	public static byte[] readContents(File file) {
 		if (!file.isFile()) {
 			throw new IllegalArgumentException("must be a normal file");
 		}
@@ -230,7 +325,7 @@ public class Utils {
 	/**
 	 * Returns a byte array containing the serialized contents of OBJ.
 	 */
-	static byte[] serialize(Serializable obj) {
+	public static byte[] serialize(Serializable obj) {
 		try {
 			ByteArrayOutputStream stream = new ByteArrayOutputStream();
 			ObjectOutputStream objectStream = new ObjectOutputStream(stream);
@@ -244,6 +339,23 @@ public class Utils {
 
 
 
+	/**
+	 * Return an object of type T deserialized from BYTES, casting it to
+	 * EXPECTEDCLASS. Throws IllegalArgumentException in case of problems.
+	 */
+	public static <T extends Serializable> T deserialize(byte[] bytes, Class<T> expectedClass) {
+		try {
+			ObjectInputStream in =
+					new ObjectInputStream(new ByteArrayInputStream(bytes));
+			T result = expectedClass.cast(in.readObject());
+			in.close();
+			return result;
+		} catch (IOException | ClassCastException
+						 | ClassNotFoundException excp) {
+			throw new IllegalArgumentException(excp.getMessage());
+		}
+	}
+
 	/* MESSAGES AND ERROR REPORTING */
 
 	/**
@@ -1,7 +1,6 @@
 package gitlet.commands;
 
 import gitlet.Main;
-import gitlet.objects.Bolb;
 
 import java.io.IOException;
 
@@ -42,16 +41,18 @@ public class Add extends Command {
             repo.getStage().removalSet.remove(fileName);
         }
 
+        // hash the file once, as a byte stream.
+        String uid = repo.workFolder.getUidOfFile(fileName);
+        String committedUid = repo.getCurrCommit().getBolbUid(fileName);
+
         // if the current commit has the same file with the working directory, remove it from addition map.
-        if (repo.workFolder.compareFile(fileName, repo.getCurrCommit())) {
+        if (uid.equals(committedUid)) {
             repo.getStage().additionMap.remove(fileName);
         } else {
             // if the stage doesn't contain the same file with the working directory, add it.
-            if (!repo.workFolder.compareFile(fileName, repo.getStage())) {
-                // create a new bolb and save it.
-                Bolb bolb = new Bolb(repo.workFolder.readFromFile(fileName));
-                String uid = bolb.getUID();
-                repo.objectFolder.save(bolb);
+            if (!uid.equals(repo.getStage().getBolbUid(fileName))) {
+                // stream the file into a new bolb, a delta against the committed version if possible.
+                repo.objectFolder.saveBolb(repo.workFolder.getFile(fileName), uid, committedUid);
                 repo.getStage().additionMap.put(fileName, uid);
             }
         }
@@ -0,0 +1,56 @@
+package gitlet.commands;
+
+import gitlet.Main;
+import gitlet.repo.RemoteFolder;
+
+import java.io.File;
+
+import static gitlet.Main.repo;
+
+/**
+ * This class is the add-remote command class.
+ * "add-remote NAME DIR/.gitlet" records the repository in DIR as the
+ * remote NAME; "/" in the path is the separator of any platform.
+ *
+ * @author ryan ma
+ */
+
+public class AddRemote extends Command {
+
+    /**
+     * Constructor function with ARGS.
+     */
+    public AddRemote(String[] args) {
+        super(args, 2);
+        checkInitial();
+        checkOperandsNum();
+        remoteName = operands[0];
+        path = operands[1].replace("/", File.separator);
+    }
+
+    @Override
+    void checkOperands() {
+        if (!RemoteFolder.isValidName(remoteName)) {
+            Main.exitWithError("Invalid remote name.");
+        }
+        if (repo.remoteFolder.hasRemote(remoteName)) {
+            Main.exitWithError("A remote with that name already exists.");
+        }
+    }
+
+    @Override
+    public void run() {
+        checkOperands();
+        repo.remoteFolder.addRemote(remoteName, path);
+    }
+
+    /**
+     * Remote name.
+     */
+    private final String remoteName;
+
+    /**
+     * Path of the ".gitlet" directory of the remote.
+     */
+    private final String path;
+}
@@ -0,0 +1,103 @@
+package gitlet.commands;
+
+import gitlet.Main;
+import gitlet.repo.Blame;
+
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.List;
+
+import static gitlet.Main.repo;
+
+/**
+ * This class is the blame command class.
+ * "blame FILE" prints each line of FILE in the current commit after the
+ * abbreviated UID and the date of the commit that last changed it, and
+ * the line number; "blame COMMIT -- FILE" does the same for FILE in
+ * COMMIT.
+ *
+ * @author ryan ma
+ */
+
+public class Annotate extends Command {
+
+    /**
+     * Constructor function with ARGS.
+     */
+    public Annotate(String[] args) {
+        super(args);
+        checkInitial();
+        if (operands != null && operands.length == 1) {
+            fileName = operands[0];
+        } else if (operands != null && operands.length == 3 && operands[1].equals("--")) {
+            commitId = operands[0];
+            fileName = operands[2];
+        } else {
+            Main.exitWithError("Incorrect operands.");
+        }
+    }
+
+    @Override
+    void checkOperands() {
+        if (commitId != null && !repo.objectFolder.containsCommit(commitId)) {
+            Main.exitWithError("No commit with that id exists.");
+        }
+        if (!repo.objectFolder.getCommit(getCommitUid()).containsFile(fileName)) {
+            Main.exitWithError("File does not exist in that commit.");
+        }
+    }
+
+    @Override
+    public void run() {
+        checkOperands();
+        Blame blame = new Blame(getCommitUid(), fileName);
+        List<String> lines = blame.getLines();
+
+        SimpleDateFormat dateFormat = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss");
+        String format = "%s (%s %" + Integer.toString(lines.size()).length() + "d) %s%n";
+        PrintWriter out = LogFilter.openOutput();
+        for (int i = 0; i < lines.size(); i += 1) {
+            String owner = blame.getOwner(i);
+            Date date = new Date(repo.commitGraph.getTimestamp(owner));
+            out.printf(format, owner.substring(0, 7), dateFormat.format(date), i + 1,
+                    stripTerminator(lines.get(i)));
+        }
+        out.flush();
+    }
+
+    /**
+     * Return the full UID of the blamed commit.
+     */
+    private String getCommitUid() {
+        return commitId == null ? repo.getCurrHeadUid()
+                : repo.objectFolder.getCommit(commitId).getUID();
+    }
+
+    /**
+     * Return LINE, split from the bytes of a file as Latin-1 characters,
+     * without its line terminator and decoded as UTF-8.
+     */
+    private static String stripTerminator(String line) {
+        int end = line.length();
+        if (end > 0 && line.charAt(end - 1) == '\n') {
+            end -= 1;
+        }
+        if (end > 0 && line.charAt(end - 1) == '\r') {
+            end -= 1;
+        }
+        return new String(line.substring(0, end).getBytes(StandardCharsets.ISO_8859_1),
+                StandardCharsets.UTF_8);
+    }
+
+    /**
+     * The abbreviated UID of the commit, or null for the current commit.
+     */
+    private String commitId;
+
+    /**
+     * The blamed file.
+     */
+    private String fileName;
+}
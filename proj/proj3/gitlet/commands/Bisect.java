@@ -0,0 +1,274 @@
+package gitlet.commands;
+
+import gitlet.Main;
+import gitlet.objects.CommitData;
+import gitlet.repo.Bisection;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+
+import static gitlet.Main.repo;
+
+/**
+ * This class is the bisect command class, searching the commit that
+ * introduced a bug.
+ * "bisect start [BAD [GOOD...]]" starts a bisection on the branch
+ * "bisect"; "bisect bad [COMMIT]", "bisect good [COMMIT]" and
+ * "bisect skip [COMMIT]" mark COMMIT, or the current commit, then check
+ * out the next commit to test; "bisect run SCRIPT [ARGS...]" marks each
+ * commit to test by the exit code of SCRIPT: 0 is good, 125 is skipped,
+ * 1 to 127 is bad; "bisect reset" ends the bisection and checks out the
+ * branch it started on.
+ *
+ * @author ryan ma
+ */
+
+public class Bisect extends Command {
+
+    /**
+     * Exit code of a script that cannot test a commit.
+     */
+    static final int SKIP_CODE = 125;
+
+    /**
+     * Constructor function with ARGS.
+     */
+    public Bisect(String[] args) {
+        super(args);
+        checkInitial();
+        if (operands == null) {
+            Main.exitWithError("Incorrect operands.");
+        }
+        subcommand = operands[0];
+        commitIds = Arrays.copyOfRange(operands, 1, operands.length);
+    }
+
+    @Override
+    void checkOperands() {
+        switch (subcommand) {
+            case "start" -> {
+                if (bisection.isStarted()) {
+                    Main.exitWithError("A bisection is already in progress.");
+                }
+                if (repo.branchFolder.hasBranch(Bisection.BRANCH)) {
+                    Main.exitWithError("A branch named " + Bisection.BRANCH + " already exists.");
+                }
+            }
+            case "bad", "good", "skip" -> {
+                if (commitIds.length > 1) {
+                    Main.exitWithError("Incorrect operands.");
+                }
+            }
+            case "run" -> {
+                if (commitIds.length == 0) {
+                    Main.exitWithError("Incorrect operands.");
+                }
+                return;
+            }
+            case "reset" -> {
+                if (commitIds.length > 0) {
+                    Main.exitWithError("Incorrect operands.");
+                }
+            }
+            default -> Main.exitWithError("Incorrect operands.");
+        }
+        if (!subcommand.equals("start") && !bisection.isStarted()) {
+            Main.exitWithError("No bisection in progress.");
+        }
+        for (String commitId : commitIds) {
+            if (!repo.objectFolder.containsCommit(commitId)) {
+                Main.exitWithError("No commit with that id exists.");
+            }
+        }
+    }
+
+    @Override
+    public void run() throws IOException {
+        bisection = Bisection.readFromFile();
+        checkOperands();
+        switch (subcommand) {
+            case "start" -> {
+                bisection = new Bisection(repo.getCurrBranch());
+                repo.branchFolder.setHeadUid(Bisection.BRANCH, repo.getCurrHeadUid());
+                repo.setCurrBranch(Bisection.BRANCH);
+                if (commitIds.length > 0) {
+                    bisection.markBad(getUid(commitIds[0]));
+                    for (int i = 1; i < commitIds.length; i += 1) {
+                        bisection.markGood(getUid(commitIds[i]));
+                    }
+                }
+                bisection.save();
+                if (commitIds.length > 0) {
+                    step();
+                }
+            }
+            case "bad", "good", "skip" -> {
+                mark(subcommand, commitIds.length == 0 ? repo.getCurrHeadUid()
+                        : getUid(commitIds[0]));
+                step();
+            }
+            case "run" -> runScript();
+            default -> reset();
+        }
+    }
+
+    /**
+     * Mark the commit with full UID as TERM: "bad", "good" or "skip".
+     */
+    private void mark(String term, String uid) {
+        switch (term) {
+            case "bad" -> bisection.markBad(uid);
+            case "good" -> bisection.markGood(uid);
+            default -> bisection.markSkipped(uid);
+        }
+        bisection.save();
+    }
+
+    /**
+     * Check out the next commit to test, if any, and return true; or
+     * print the first bad commit, or the candidates left if they are all
+     * skipped, and return false.
+     */
+    private boolean step() throws IOException {
+        if (!bisection.isReady()) {
+            System.out.println("Waiting for both good and bad commits.");
+            return false;
+        }
+        List<String> candidates = bisection.getCandidates();
+        if (candidates.isEmpty()) {
+            Main.exitWithError("The bad commit is an ancestor of a good commit.");
+        }
+        if (candidates.size() == 1) {
+            String uid = candidates.get(0);
+            System.out.println(uid + " is the first bad commit");
+            System.out.print(repo.objectFolder.getCommit(uid).getLog());
+            return false;
+        }
+
+        String midpoint = bisection.findMidpoint(candidates);
+        if (midpoint == null) {
+            System.out.println("There are only skipped commits left to test.");
+            System.out.println("The first bad commit could be any of:");
+            System.out.println(candidates.get(0));
+            for (String uid : bisection.getSkipped(candidates)) {
+                System.out.println(uid);
+            }
+            return false;
+        }
+
+        int remaining = bisection.getRemaining();
+        int steps = 32 - Integer.numberOfLeadingZeros(remaining);
+        System.out.printf("Bisecting: %d revision%s left to test after this (roughly %d step%s)%n",
+                remaining, remaining == 1 ? "" : "s", steps, steps == 1 ? "" : "s");
+        CommitData commit = repo.objectFolder.getCommit(midpoint);
+        checkout(commit);
+        System.out.println("[" + midpoint + "] " + commit.getMessage());
+        return true;
+    }
+
+    /**
+     * Check out COMMIT on the bisect branch, writing only the files that
+     * differ from the current commit.
+     */
+    private void checkout(CommitData commit) throws IOException {
+        if (repo.workFolder.canNotCheckoutAllFiles(commit)) {
+            Main.exitWithError("There is an untracked file in the way; delete it, "
+                    + "or add and commit it first.");
+        }
+        repo.workFolder.checkoutAllFilesWithCommit(commit);
+        repo.branchFolder.setHeadUid(Bisection.BRANCH, commit.getUID());
+        repo.setCurrBranch(Bisection.BRANCH);
+        repo.setCurrCommit(commit);
+        repo.getStage().clean();
+        repo.getStage().save();
+    }
+
+    /**
+     * Run the script of the operands on each commit to test, and mark the
+     * commit by its exit code, until the first bad commit is found. The
+     * updates are committed to the journal before each run, so that the
+     * script sees the commit it tests, and read again after it.
+     */
+    private void runScript() throws IOException {
+        if (!bisection.isReady()) {
+            Main.exitWithError("Waiting for both good and bad commits.");
+        }
+        List<String> command = Arrays.asList(commitIds);
+        while (true) {
+            repo.getStage().save();
+            repo.journal.commit();
+            System.out.println("running " + String.join(" ", command));
+            System.out.flush();
+
+            int code;
+            try {
+                code = new ProcessBuilder(command).inheritIO().start().waitFor();
+            } catch (IOException excp) {
+                Main.exitWithError("Cannot run " + command.get(0) + ".");
+                return;
+            } catch (InterruptedException excp) {
+                Thread.currentThread().interrupt();
+                Main.exitWithError("Bisect run interrupted.");
+                return;
+            }
+
+            repo.journal.begin();
+            repo.update();
+            bisection = Bisection.readFromFile();
+            if (code < 0 || code > 127) {
+                Main.exitWithError("Bisect run failed: exit code " + code + " from "
+                        + command.get(0) + ".");
+            }
+            mark(code == 0 ? "good" : code == SKIP_CODE ? "skip" : "bad", repo.getCurrHeadUid());
+            if (!step()) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * End the bisection: check out the branch it started on and delete
+     * the bisect branch.
+     */
+    private void reset() throws IOException {
+        String branch = bisection.getBranch();
+        if (!repo.branchFolder.hasBranch(branch)) {
+            Main.exitWithError("No such branch exist.");
+        }
+        CommitData commit = repo.objectFolder.getCommit(repo.branchFolder.getHeadUid(branch));
+        if (repo.workFolder.canNotCheckoutAllFiles(commit)) {
+            Main.exitWithError("There is an untracked file in the way; delete it, "
+                    + "or add and commit it first.");
+        }
+        repo.workFolder.checkoutAllFilesWithCommit(commit);
+        repo.setCurrBranch(branch);
+        repo.setCurrCommit(commit);
+        repo.branchFolder.deleteBranch(Bisection.BRANCH);
+        Bisection.delete();
+        repo.getStage().clean();
+        repo.getStage().save();
+    }
+
+    /**
+     * Return the full UID of the commit with abbreviated UID COMMITID.
+     */
+    private static String getUid(String commitId) {
+        return repo.objectFolder.getCommit(commitId).getUID();
+    }
+
+    /**
+     * The subcommand: start, bad, good, skip, run or reset.
+     */
+    private final String subcommand;
+
+    /**
+     * The commits of the subcommand, or the script and its arguments.
+     */
+    private final String[] commitIds;
+
+    /**
+     * The bisection in progress, if any.
+     */
+    private Bisection bisection;
+}
@@ -1,6 +1,7 @@
 package gitlet.commands;
 
 import gitlet.Main;
+import gitlet.repo.BranchFolder;
 
 import java.io.IOException;
 
@@ -26,6 +27,9 @@ public class Branch extends Command {
 
     @Override
     void checkOperands() {
+        if (!BranchFolder.isValidName(newBranchName)) {
+            Main.exitWithError("Invalid branch name.");
+        }
         if (repo.branchFolder.hasBranch(newBranchName)) {
             Main.exitWithError("A branch with that name already exists.");
         }
@@ -36,14 +40,11 @@ public class Branch extends Command {
         checkOperands();
 
         // add new branch and set its head uid.
-        repo.branchFolder.addFile(newBranchName);
         repo.branchFolder.setHeadUid(newBranchName, repo.getCurrHeadUid());
 
         // add new branch and set its latest commit uid.
-        repo.latestFolder.addFile(newBranchName);
         repo.latestFolder.setLatestUid(newBranchName, repo.getCurrHeadUid());
 
-        repo.logFolder.addFile(newBranchName);
         repo.logFolder.writeLogToBranch(newBranchName, repo.getCurrCommit());
     }
 
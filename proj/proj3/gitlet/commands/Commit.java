@@ -68,6 +68,8 @@ public class Commit extends Command {
         repo.getStage().clean();
         repo.getStage().save();
         repo.objectFolder.save(commitData);
+        repo.commitGraph.add(commitData);
+        repo.messageFolder.update(commitData);
     }
 
     /** Commit message. */
@@ -0,0 +1,66 @@
+package gitlet.commands;
+
+import gitlet.Main;
+import gitlet.repo.Codec;
+import gitlet.repo.Config;
+
+import java.io.IOException;
+
+import static gitlet.Main.repo;
+
+/**
+ * This class is the config command class.
+ * "config KEY" prints the value of the setting KEY and "config KEY VALUE"
+ * sets it. The only setting is "compression", the codec of new bolbs:
+ * "deflate", "lz4" or "none".
+ *
+ * @author ryan ma
+ */
+
+public class Configure extends Command {
+
+    /**
+     * Constructor function with ARGS.
+     */
+    public Configure(String[] args) {
+        super(args);
+        checkInitial();
+        if (operands == null || operands.length > 2) {
+            Main.exitWithError("Incorrect operands.");
+        }
+        key = operands[0];
+        value = operands.length == 2 ? operands[1] : null;
+    }
+
+    @Override
+    void checkOperands() {
+        if (!Config.isKey(key)) {
+            Main.exitWithError("No such setting.");
+        }
+        if (value != null && Codec.forName(value) == null) {
+            Main.exitWithError("Compression must be deflate, lz4 or none.");
+        }
+    }
+
+    @Override
+    public void run() throws IOException {
+        checkOperands();
+        Config config = repo.getConfig();
+        if (value == null) {
+            System.out.println(config.get(key));
+            return;
+        }
+        config.set(key, value);
+        repo.setConfig(config);
+    }
+
+    /**
+     * The setting.
+     */
+    private final String key;
+
+    /**
+     * The new value of the setting, or null to print it.
+     */
+    private final String value;
+}
@@ -0,0 +1,35 @@
+package gitlet.commands;
+
+import gitlet.Server;
+
+import java.io.IOException;
+
+/**
+ * This class is the daemon command class.
+ * It keeps running in the foreground, serving the gitlet commands run in
+ * this repository from one process, until it is stopped.
+ *
+ * @author ryan ma
+ */
+
+public class Daemon extends Command {
+
+    /**
+     * Constructor function with ARGS.
+     */
+    public Daemon(String[] args) {
+        super(args, 0);
+        checkInitial();
+        checkOperandsNum();
+    }
+
+    @Override
+    void checkOperands() {
+    }
+
+    @Override
+    public void run() throws IOException {
+        checkOperands();
+        Server.serve();
+    }
+}
@@ -0,0 +1,73 @@
+package gitlet.commands;
+
+import gitlet.Main;
+import gitlet.repo.Remote;
+
+import java.io.File;
+import java.io.IOException;
+
+import static gitlet.Main.repo;
+
+/**
+ * This class is the fetch command class.
+ * "fetch REMOTE BRANCH" copies the commits of BRANCH of REMOTE missing
+ * from this repository, with their objects, and sets the branch
+ * "REMOTE/BRANCH" of this repository to its head.
+ *
+ * @author ryan ma
+ */
+
+public class Fetch extends Command {
+
+    /**
+     * Constructor function with ARGS.
+     */
+    public Fetch(String[] args) {
+        super(args, 2);
+        checkInitial();
+        checkOperandsNum();
+        remoteName = operands[0];
+        branchName = operands[1];
+    }
+
+    @Override
+    void checkOperands() {
+        if (!repo.remoteFolder.hasRemote(remoteName)) {
+            Main.exitWithError("A remote with that name does not exist.");
+        }
+        if (!repo.remoteFolder.getRemoteDir(remoteName).isDirectory()) {
+            Main.exitWithError("Remote directory not found.");
+        }
+    }
+
+    @Override
+    public void run() throws IOException {
+        checkOperands();
+        File remoteDir = repo.remoteFolder.getRemoteDir(remoteName);
+        String head;
+        try (Remote remote = new Remote(remoteDir, Remote.UPLOAD_PACK)) {
+            head = remote.fetch(branchName);
+        }
+        if (head == null) {
+            Main.exitWithError("That remote does not have that branch.");
+        }
+        repo.branchFolder.setHeadUid(getBranch(), head);
+    }
+
+    /**
+     * Return the branch of this repository set to the fetched branch.
+     */
+    String getBranch() {
+        return remoteName + "/" + branchName;
+    }
+
+    /**
+     * Remote name.
+     */
+    private final String remoteName;
+
+    /**
+     * Branch of the remote.
+     */
+    private final String branchName;
+}
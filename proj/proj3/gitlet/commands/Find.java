@@ -1,16 +1,18 @@
 package gitlet.commands;
 
 import gitlet.Main;
-import gitlet.objects.CommitData;
 
-import java.util.HashSet;
+import java.io.IOException;
 import java.util.List;
-import java.util.Set;
 
 import static gitlet.Main.repo;
 
 /**
  * This class is the find command class.
+ * "find MESSAGE" prints the commits with exactly MESSAGE,
+ * "find --word WORD" the commits whose message contains the word WORD
+ * in any case, and "find --grep TEXT" the commits whose message
+ * contains TEXT. All three are answered from the message index.
  *
  * @author ryan ma
  */
@@ -21,48 +23,59 @@ public class Find extends Command {
      * Constructor function with ARGS.
      */
     public Find(String[] args) {
-        super(args, 1);
+        super(args);
         checkInitial();
-        checkOperandsNum();
-        message = operands[0];
+        checkOperands();
+        if (operands.length == 1) {
+            message = operands[0];
+            option = null;
+        } else {
+            option = operands[0];
+            message = operands[1];
+        }
     }
 
     @Override
     void checkOperands() {
-
+        if (operands == null || operands.length > 2) {
+            Main.exitWithError("Incorrect operands.");
+        } else if (operands.length == 2
+                && !operands[0].equals("--word") && !operands[0].equals("--grep")) {
+            Main.exitWithError("Incorrect operands.");
+        }
     }
 
     @Override
-    public void run() {
-        checkOperands();
-
-        // get all branches
-        List<String> branches = repo.latestFolder.getAllBranches();
-        Set<String> uidSet = new HashSet<>();
-        assert branches != null;
+    public void run() throws IOException {
+        if (!repo.messageFolder.exists()) {
+            repo.messageFolder.rebuild();
+        }
 
-        for (String branch : branches) {
-            // get the latest commit uid of this branch
-            String latestUid = repo.latestFolder.getLatestUid(branch);
-            CommitData latest = repo.objectFolder.getCommit(latestUid);
-            for (CommitData commit : latest.getHistoryCommit()) {
-                if (commit.getMessage().equals(message)) {
-                    uidSet.add(commit.getUID());
-                }
-            }
+        List<String> uids;
+        if (option == null) {
+            uids = repo.messageFolder.findMessage(message);
+        } else if (option.equals("--word")) {
+            uids = repo.messageFolder.findWord(message);
+        } else {
+            uids = repo.messageFolder.findSubstring(message);
         }
 
-        if (uidSet.isEmpty()) {
+        if (uids.isEmpty()) {
             Main.exitWithError("Found no commit with that message.");
         } else {
-            for (String uid : uidSet) {
+            for (String uid : uids) {
                 System.out.println(uid);
             }
         }
     }
 
     /**
-     * Commit message.
+     * Commit message, word or text to find.
      */
     private final String message;
+
+    /**
+     * The option, "--word" or "--grep", or null to find an exact message.
+     */
+    private final String option;
 }
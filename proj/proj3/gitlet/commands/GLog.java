@@ -1,12 +1,22 @@
 package gitlet.commands;
 
+import gitlet.repo.Journal;
+import gitlet.repo.LogFolder;
 
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.Iterator;
 import java.util.List;
 
 import static gitlet.Main.repo;
 
 /**
  * This class is the global-log command class.
+ * It prints the log of every branch, each newest first, with the options
+ * of LogFilter. The log files are read backwards and each commit is
+ * printed as soon as it is read, so reading stops as soon as the options
+ * allow. The times of commits, needed by "--since" and "--until", are
+ * read from the commits themselves.
  *
  * @author ryan ma
  */
@@ -17,9 +27,9 @@ public class GLog extends Command {
      * Constructor function with ARGS.
      */
     public GLog(String[] args) {
-        super(args, 0);
+        super(args);
         checkInitial();
-        checkOperandsNum();
+        filter = new LogFilter(operands);
     }
 
     @Override
@@ -28,13 +38,60 @@ public class GLog extends Command {
     }
 
     @Override
-    public void run() {
+    public void run() throws IOException {
         checkOperands();
         List<String> files = repo.logFolder.getAllFileName();
         assert files != null;
+        PrintWriter out = LogFilter.openOutput();
         for (String file : files) {
-            String log = repo.logFolder.readLogOfBranch(file);
-            System.out.print(log);
+            if (filter.isDone()) {
+                break;
+            }
+            if (!file.endsWith(Journal.LOCK_SUFFIX)) {
+                printLog(file, out);
+            }
         }
+        out.flush();
     }
+
+    /**
+     * Print the commits of the log of BRANCH selected by the options to
+     * OUT, newest first.
+     */
+    private void printLog(String branch, PrintWriter out) throws IOException {
+        Iterator<String> entries = repo.logFolder.readEntriesNewestFirst(branch);
+        while (entries.hasNext()) {
+            String entry = entries.next();
+            if (!printEntry(LogFolder.getUid(entry), entry, out)) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Print ENTRY, the log of the commit with UID, to OUT if the options
+     * select it. Return false if no more commits of the log are to be
+     * printed.
+     */
+    private boolean printEntry(String uid, CharSequence entry, PrintWriter out) {
+        if (filter.isDone()) {
+            return false;
+        }
+        long time = 0;
+        if (filter.usesTime()) {
+            time = repo.objectFolder.getCommit(uid).getTimestamp();
+        }
+        if (filter.isTooOld(time)) {
+            return false;
+        }
+        if (filter.accept(time)) {
+            out.append(entry);
+        }
+        return true;
+    }
+
+    /**
+     * The options selecting the commits to print.
+     */
+    private final LogFilter filter;
 }
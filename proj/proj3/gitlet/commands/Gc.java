@@ -0,0 +1,106 @@
+package gitlet.commands;
+
+import gitlet.Main;
+import gitlet.repo.Bisection;
+import gitlet.repo.ObjectBitmap;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import static gitlet.Main.repo;
+
+/**
+ * This class is the gc command class.
+ * It marks the objects reachable from the head and the latest commit of
+ * every branch, from the stage and from the commits marked in a bisection
+ * in progress, deletes all other objects, moves the reachable ones into
+ * a single pack, and prints the space reclaimed.
+ * Deleted commits are also removed from the branch logs and the message
+ * index, so global-log and find do not list them.
+ * <p>
+ * The lock of the journal is held for the whole command, so no other
+ * process moves a branch or stages a file meanwhile. Unreachable loose
+ * objects and packs written less than GRACE_PERIOD ago are kept, as
+ * another process may have written them for a commit it has not made
+ * yet; "--prune=now" deletes them too.
+ *
+ * @author ryan ma
+ */
+
+public class Gc extends Command {
+
+    /**
+     * Milliseconds during which a new unreachable object is kept.
+     */
+    static final long GRACE_PERIOD = 14L * 24 * 60 * 60 * 1000;
+
+    /**
+     * Option deleting unreachable objects however new they are.
+     */
+    static final String PRUNE_NOW = "--prune=now";
+
+    /**
+     * Constructor function with ARGS.
+     */
+    public Gc(String[] args) {
+        super(args);
+        checkInitial();
+        checkOperands();
+        pruneNow = operands != null;
+    }
+
+    @Override
+    void checkOperands() {
+        if (operands != null && (operands.length != 1 || !operands[0].equals(PRUNE_NOW))) {
+            Main.exitWithError("Incorrect operands.");
+        }
+    }
+
+    @Override
+    public void run() throws IOException {
+        long cutoff = pruneNow ? Long.MAX_VALUE : System.currentTimeMillis() - GRACE_PERIOD;
+        repo.journal.lock();
+        try {
+            collect(cutoff);
+        } finally {
+            repo.journal.unlock();
+        }
+    }
+
+    /**
+     * Delete the unreachable objects last modified before CUTOFF, in
+     * milliseconds, and pack the others.
+     */
+    private void collect(long cutoff) throws IOException {
+        List<String> commitUids = new ArrayList<>();
+        for (String branch : repo.branchFolder.getAllRefs()) {
+            commitUids.add(repo.branchFolder.getHeadUid(branch));
+        }
+        for (String branch : repo.latestFolder.getAllBranches()) {
+            commitUids.add(repo.latestFolder.getLatestUid(branch));
+        }
+        commitUids.addAll(Bisection.readFromFile().getMarkedCommits());
+        List<String> bolbUids = new ArrayList<>(repo.getStage().additionMap.values());
+
+        long before = repo.objectFolder.getSize();
+        ObjectBitmap reachable = repo.objectFolder.markReachable(commitUids, bolbUids);
+
+        // forget the deleted commits before deleting them.
+        int prunedCommits = repo.logFolder.prune(reachable::isMarked);
+        repo.journal.commit();
+        if (prunedCommits > 0 && repo.messageFolder.exists()) {
+            repo.messageFolder.rebuild();
+        }
+
+        int removed = repo.objectFolder.prune(reachable, cutoff);
+        long after = repo.objectFolder.getSize();
+        System.out.printf("Removed %d unreachable objects, kept %d: %d bytes before, "
+                + "%d bytes after.%n", removed, reachable.markedCount(), before, after);
+    }
+
+    /**
+     * True if new unreachable objects are deleted too.
+     */
+    private final boolean pruneNow;
+}
@@ -52,6 +52,9 @@ public class Init extends Command {
         CommitData root = new CommitData("initial commit");
         String rootUID = root.getUID();
         repo.objectFolder.save(root);
+        repo.commitGraph.add(root);
+        repo.messageFolder.create();
+        repo.messageFolder.update(root);
 
         repo.setCurrBranch("master");
         repo.branchFolder.setHeadUid("master", rootUID);
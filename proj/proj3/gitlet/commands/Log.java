@@ -2,10 +2,17 @@ package gitlet.commands;
 
 import gitlet.objects.CommitData;
 
+import java.io.PrintWriter;
+
 import static gitlet.Main.repo;
 
 /**
  * This class is the log command class.
+ * It prints the commits of the current branch, following first parents,
+ * newest first, with the options of LogFilter. Commits are read one at a
+ * time as they are printed, and the walk stops as soon as the options
+ * allow: after N commits with "-n N", and at the first commit older than
+ * "--since", as commits are normally older than their children.
  *
  * @author ryan ma
  */
@@ -16,9 +23,9 @@ public class Log extends Command {
      * Constructor function with ARGS.
      */
     public Log(String[] args) {
-        super(args, 0);
+        super(args);
         checkInitial();
-        checkOperandsNum();
+        filter = new LogFilter(operands);
     }
 
     @Override
@@ -28,11 +35,23 @@ public class Log extends Command {
     @Override
     public void run() {
         checkOperands();
+        PrintWriter out = LogFilter.openOutput();
         CommitData commitData = repo.getCurrCommit();
-        while (commitData != null) {
-            String log = commitData.getLog();
-            System.out.print(log);
+        while (commitData != null && !filter.isDone()) {
+            long time = commitData.getTimestamp();
+            if (filter.isTooOld(time)) {
+                break;
+            }
+            if (filter.accept(time)) {
+                out.print(commitData.getLog());
+            }
             commitData = commitData.getParent();
         }
+        out.flush();
     }
+
+    /**
+     * The options selecting the commits to print.
+     */
+    private final LogFilter filter;
 }
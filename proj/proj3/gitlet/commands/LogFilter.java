@@ -0,0 +1,140 @@
+package gitlet.commands;
+
+import gitlet.Main;
+
+import java.io.BufferedWriter;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeParseException;
+
+/**
+ * This class holds the options shared by the log and global-log commands,
+ * which print commits newest first and stop as early as the options
+ * allow: "-n N" prints at most N commits, "--since DATE" only commits
+ * made on or after DATE, and "--until DATE" only commits made on or
+ * before DATE. A DATE is "yyyy-MM-dd", the whole day, or
+ * "yyyy-MM-dd HH:mm[:ss]", in the local time zone.
+ *
+ * @author ryan ma
+ */
+
+class LogFilter {
+
+    /**
+     * Size of the output buffer.
+     */
+    static final int BUFFER_SIZE = 1 << 16;
+
+    /**
+     * Constructor function with the OPERANDS of the command, null if none.
+     */
+    LogFilter(String[] operands) {
+        if (operands == null) {
+            return;
+        }
+        if (operands.length % 2 != 0) {
+            Main.exitWithError("Incorrect operands.");
+        }
+        for (int i = 0; i < operands.length; i += 2) {
+            String value = operands[i + 1];
+            switch (operands[i]) {
+                case "-n" -> {
+                    if (!value.matches("[0-9]{1,9}")) {
+                        Main.exitWithError("Incorrect operands.");
+                    }
+                    limit = Integer.parseInt(value);
+                }
+                case "--since" -> since = parseDate(value, false);
+                case "--until" -> until = parseDate(value, true);
+                default -> Main.exitWithError("Incorrect operands.");
+            }
+        }
+    }
+
+    /**
+     * Return the time in milliseconds of DATE: the start of the day, or
+     * its end if END, when DATE has no time.
+     */
+    private static long parseDate(String date, boolean end) {
+        try {
+            LocalDateTime time;
+            if (date.length() == "yyyy-MM-dd".length()) {
+                time = LocalDate.parse(date).atTime(end ? LocalTime.MAX : LocalTime.MIN);
+            } else {
+                time = LocalDateTime.parse(date.replace(' ', 'T'));
+            }
+            return time.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+        } catch (DateTimeParseException excp) {
+            Main.exitWithError("Incorrect operands.");
+            return 0;
+        }
+    }
+
+    /**
+     * Return a buffered writer to the standard output, to be flushed
+     * when the log is printed.
+     */
+    static PrintWriter openOutput() {
+        return new PrintWriter(new BufferedWriter(
+                new OutputStreamWriter(System.out, StandardCharsets.UTF_8), BUFFER_SIZE));
+    }
+
+    /**
+     * Return true if the options need the time of each commit.
+     */
+    boolean usesTime() {
+        return since != Long.MIN_VALUE || until != Long.MAX_VALUE;
+    }
+
+    /**
+     * Return true if as many commits as allowed were printed.
+     */
+    boolean isDone() {
+        return printed >= limit;
+    }
+
+    /**
+     * Return true if a commit made at TIME is older than allowed, so the
+     * older commits that follow it can be skipped too.
+     */
+    boolean isTooOld(long time) {
+        return time < since;
+    }
+
+    /**
+     * Return true if a commit made at TIME, not too old, is to be printed,
+     * counting it.
+     */
+    boolean accept(long time) {
+        if (time > until) {
+            return false;
+        }
+        printed += 1;
+        return true;
+    }
+
+    /**
+     * The most commits to print.
+     */
+    private int limit = Integer.MAX_VALUE;
+
+    /**
+     * The time in milliseconds of the oldest commit to print.
+     */
+    private long since = Long.MIN_VALUE;
+
+    /**
+     * The time in milliseconds of the newest commit to print.
+     */
+    private long until = Long.MAX_VALUE;
+
+    /**
+     * The number of commits printed.
+     */
+    private int printed;
+}
@@ -1,12 +1,16 @@
 package gitlet.commands;
 
 import gitlet.Main;
+import gitlet.objects.Bolb;
 import gitlet.objects.CommitData;
+import gitlet.repo.LineMerge;
+import gitlet.repo.Renames;
 
 import java.io.IOException;
 import java.util.HashSet;
-import java.util.Queue;
+import java.util.Map;
 import java.util.Set;
+import java.util.TreeMap;
 
 import static gitlet.Main.repo;
 
@@ -63,9 +67,10 @@ public class Merge extends Command {
         otherHeadUid = repo.branchFolder.getHeadUid(otherBranch);
         otherBranchCommit = repo.objectFolder.getCommit(otherHeadUid);
         splitPoint = repo.objectFolder.getCommit(splitPointUid);
+        boolean existConflict = mergeRenames();
         mergeNotConflict();
 
-        boolean existConflict = mergeConflict();
+        existConflict |= mergeConflict();
         String[] args = new String[2];
         args[0] = "commit";
         args[1] = message;
@@ -77,6 +82,73 @@ public class Merge extends Command {
         }
     }
 
+    /**
+     * Return true if there is a conflict. Merge the files renamed since
+     * the split point in one branch and changed in the other: both
+     * changes are merged line by line into the new name, and the old name
+     * is removed. Their old and new names are added to renamedFiles, so
+     * the other steps of the merge skip them.
+     */
+    private boolean mergeRenames() throws IOException {
+        CommitData curr = repo.getCurrCommit();
+        boolean existConflict = false;
+        for (Map.Entry<String, String> rename : findRenames(otherBranchCommit).entrySet()) {
+            String newName = rename.getKey();
+            String oldName = rename.getValue();
+            if (!curr.containsFile(oldName) || curr.containsFile(newName)
+                    || isUnchanged(curr, oldName)) {
+                continue;
+            }
+            existConflict |= mergeFile(newName, getContent(splitPoint, oldName),
+                    getContent(curr, oldName), getContent(otherBranchCommit, newName));
+            Command remove = new Rm(createArgs("rm " + oldName));
+            remove.run();
+            repo.update();
+            renamedFiles.add(oldName);
+            renamedFiles.add(newName);
+        }
+        for (Map.Entry<String, String> rename : findRenames(curr).entrySet()) {
+            String newName = rename.getKey();
+            String oldName = rename.getValue();
+            if (!otherBranchCommit.containsFile(oldName) || otherBranchCommit.containsFile(newName)
+                    || isUnchanged(otherBranchCommit, oldName)) {
+                continue;
+            }
+            existConflict |= mergeFile(newName, getContent(splitPoint, oldName),
+                    getContent(curr, newName), getContent(otherBranchCommit, oldName));
+            renamedFiles.add(oldName);
+            renamedFiles.add(newName);
+        }
+        return existConflict;
+    }
+
+    /**
+     * Return the files renamed from the split point to COMMIT, a map from
+     * new names to old names.
+     */
+    private Map<String, String> findRenames(CommitData commit) {
+        Map<String, String> deleted = new TreeMap<>();
+        for (String fileName : splitPoint.getDiffSet(commit)) {
+            deleted.put(fileName, splitPoint.getBolbUid(fileName));
+        }
+        Map<String, String> added = new TreeMap<>();
+        for (String fileName : commit.getDiffSet(splitPoint)) {
+            added.put(fileName, commit.getBolbUid(fileName));
+        }
+        if (deleted.isEmpty() || added.isEmpty()) {
+            return new TreeMap<>();
+        }
+        return Renames.detect(deleted, added);
+    }
+
+    /**
+     * Return true if file FILENAME is the same in COMMIT as at the split
+     * point.
+     */
+    private boolean isUnchanged(CommitData commit, String fileName) {
+        return commit.getBolbUid(fileName).equals(splitPoint.getBolbUid(fileName));
+    }
+
     /**
      * Merge all files not in intersection.
      */
@@ -85,6 +157,7 @@ public class Merge extends Command {
         Set<String> modifiedInCurr = repo.getCurrCommit().getInterDiffFiles(splitPoint);
         Set<String> modifiedOnlyInOther = new HashSet<>(modifiedInOther);
         modifiedOnlyInOther.removeAll(modifiedInCurr);
+        modifiedOnlyInOther.removeAll(renamedFiles);
         for (String fileName : modifiedOnlyInOther) {
             checkoutAndAdd(fileName);
         }
@@ -93,12 +166,14 @@ public class Merge extends Command {
         Set<String> notInSplitButInCurr = repo.getCurrCommit().getDiffFiles(splitPoint);
         Set<String> notInSplitButOnlyInOther = new HashSet<>(notInSplitButInOther);
         notInSplitButOnlyInOther.removeAll(notInSplitButInCurr);
+        notInSplitButOnlyInOther.removeAll(renamedFiles);
         for (String fileName : notInSplitButOnlyInOther) {
             checkoutAndAdd(fileName);
         }
 
         Set<String> inSplitButNotInOther = splitPoint.getDiffSet(otherBranchCommit);
         inSplitButNotInOther.removeAll(repo.getCurrCommit().getDiffFiles(splitPoint));
+        inSplitButNotInOther.removeAll(renamedFiles);
 
         for (String fileName : inSplitButNotInOther) {
             checkUntrackedFile(fileName);
@@ -109,7 +184,8 @@ public class Merge extends Command {
     }
 
     /**
-     * Return true if there is a conflict. Merge all conflict files.
+     * Return true if there is a conflict. Merge all files changed in both
+     * branches line by line; only overlapping changes are conflicts.
      */
     private boolean mergeConflict() throws IOException {
         Set<String> modifiedInOther = otherBranchCommit.getInterDiffFiles(splitPoint);
@@ -132,39 +208,78 @@ public class Merge extends Command {
         Set<String> modifiedInOtherDelInCurr = otherBranchCommit.getInterDiffFiles(splitPoint);
         modifiedInOtherDelInCurr.removeAll(repo.getCurrCommit().getAllFileName());
         diffModifiedFiles.addAll(modifiedInOtherDelInCurr);
+        diffModifiedFiles.removeAll(renamedFiles);
 
         if (diffModifiedFiles.isEmpty()) {
             return false;
         }
 
+        boolean existConflict = false;
         for (String fileName : diffModifiedFiles) {
-            writeConflictFile(fileName);
+            existConflict |= mergeFile(fileName);
         }
-
-        return true;
+        return existConflict;
     }
 
     /**
-     * Handle conflict of file FILENAME.
+     * Merge file FILENAME, changed differently in both branches, with a
+     * three-way line merge against the split point, and stage the result.
+     * A file of the split point deleted in one branch and changed in the
+     * other is a conflict of the whole file, found from which commits
+     * contain it before any line is merged, so even a file that was empty
+     * at the split point is one. Return true if there is a conflict.
      */
-    private void writeConflictFile(String fileName) throws IOException {
-        checkUntrackedFile(fileName);
-        String content = "<<<<<<< HEAD\n";
-        if (repo.getCurrCommit().containsFile(fileName)) {
-            content += repo.objectFolder.getBolb(repo.getCurrCommit(), fileName).getContent();
+    private boolean mergeFile(String fileName) throws IOException {
+        CommitData curr = repo.getCurrCommit();
+        byte[] ours = getContent(curr, fileName);
+        byte[] theirs = getContent(otherBranchCommit, fileName);
+        if (splitPoint.containsFile(fileName)
+                && curr.containsFile(fileName) != otherBranchCommit.containsFile(fileName)) {
+            stageMerged(fileName, LineMerge.conflict(ours, theirs));
+            return true;
         }
+        return mergeFile(fileName, getContent(splitPoint, fileName), ours, theirs);
+    }
 
-        content += "=======\n";
-        if (otherBranchCommit.containsFile(fileName)) {
-            content += repo.objectFolder.getBolb(otherBranchCommit, fileName).getContent();
-        }
+    /**
+     * Merge OURS and THEIRS, changed from BASE, into file FILENAME and
+     * stage the result. Return true if there is a conflict.
+     */
+    private boolean mergeFile(String fileName, byte[] base, byte[] ours, byte[] theirs)
+            throws IOException {
+        LineMerge merge = new LineMerge(base, ours, theirs);
+        stageMerged(fileName, merge.getContent());
+        return merge.hasConflict();
+    }
 
-        content += ">>>>>>>\n";
-        repo.workFolder.writeToFile(fileName, content);
+    /**
+     * Write CONTENT, the merge of file FILENAME, and stage it. A file
+     * outside the sparse checkout is staged without being written.
+     */
+    private void stageMerged(String fileName, byte[] content) throws IOException {
+        if (!repo.getSparse().contains(fileName)) {
+            Bolb bolb = new Bolb(content);
+            repo.objectFolder.save(bolb);
+            stageWithoutCheckout(fileName, bolb.getUID());
+            return;
+        }
+        checkUntrackedFile(fileName);
+        repo.workFolder.writeToFile(fileName, (Object) content);
         Command add = new Add(createArgs("add " + fileName));
         add.run();
     }
 
+    /**
+     * Return the content of file FILENAME in COMMIT, empty if COMMIT does
+     * not contain it.
+     */
+    private static byte[] getContent(CommitData commit, String fileName) {
+        if (!commit.containsFile(fileName)) {
+            return new byte[0];
+        }
+        return repo.objectFolder.getBolb(commit, fileName).getContent();
+    }
+
     /**
      * Check for untracked file FILENAME which will be overwritten
      * or delete.
@@ -181,9 +296,14 @@ public class Merge extends Command {
     }
 
     /**
-     * Checkout and staged file FILENAME.
+     * Checkout and staged file FILENAME; a file outside the sparse checkout
+     * is only staged.
      */
     private void checkoutAndAdd(String fileName) throws IOException {
+        if (!repo.getSparse().contains(fileName)) {
+            stageWithoutCheckout(fileName, otherBranchCommit.getBolbUid(fileName));
+            return;
+        }
         checkUntrackedFile(fileName);
         Command checkout = new Checkout(createArgs("checkout " + otherHeadUid + " -- " + fileName));
         checkout.run();
@@ -192,6 +312,19 @@ public class Merge extends Command {
         repo.update();
     }
 
+    /**
+     * Stage the bolb with UID as file FILENAME, outside the sparse
+     * checkout, without writing it to the working directory.
+     */
+    private void stageWithoutCheckout(String fileName, String uid) throws IOException {
+        if (uid.equals(repo.getCurrCommit().getBolbUid(fileName))) {
+            repo.getStage().additionMap.remove(fileName);
+        } else {
+            repo.getStage().additionMap.put(fileName, uid);
+        }
+        repo.getStage().save();
+    }
+
     /**
      * Return string array args of ARG. This method is used to
      * create args for other command.
@@ -201,25 +334,11 @@ public class Merge extends Command {
     }
 
     /**
-     * Return the uid of the split point.
+     * Return the uid of the split point, found in the commit graph.
      */
     private String findSplitUid() {
-        Queue<CommitData> history = repo.getCurrCommit().getHistoryCommit();
-        HashSet<String> historyOfCurrBranch = new HashSet<>();
-
-        for (CommitData commitData : history) {
-            historyOfCurrBranch.add(commitData.getUID());
-        }
-
-        Queue<CommitData> historyOfGivenBranch = repo.branchFolder.getHistoryOfBranch(otherBranch);
-        while (!historyOfGivenBranch.isEmpty()) {
-            CommitData commitData = historyOfGivenBranch.remove();
-            if (historyOfCurrBranch.contains(commitData.getUID())) {
-                return commitData.getUID();
-            }
-        }
-
-        return null;
+        return repo.commitGraph.findMergeBase(repo.getCurrHeadUid(),
+                repo.branchFolder.getHeadUid(otherBranch));
     }
 
     /**
@@ -242,6 +361,12 @@ public class Merge extends Command {
      */
     private CommitData splitPoint;
 
+    /**
+     * Old and new names of the files renamed in one branch and changed in
+     * the other, already merged.
+     */
+    private final Set<String> renamedFiles = new HashSet<>();
+
 
     /**
      * Commit message.
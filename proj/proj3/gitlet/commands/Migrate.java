@@ -0,0 +1,45 @@
+package gitlet.commands;
+
+import gitlet.objects.Stage;
+
+import java.io.IOException;
+
+import static gitlet.Main.repo;
+
+/**
+ * This class is the migrate command class.
+ * It rewrites a repository made before the binary object encoding:
+ * every bolb, commit and delta bolb is re-encoded, and the index is rewritten
+ * when the stage is saved. It prints how many objects were rewritten and
+ * the size of the object folder before and after.
+ *
+ * @author ryan ma
+ */
+
+public class Migrate extends Command {
+
+    /**
+     * Constructor function with ARGS.
+     */
+    public Migrate(String[] args) {
+        super(args, 0);
+        checkInitial();
+        checkOperandsNum();
+    }
+
+    @Override
+    void checkOperands() {
+    }
+
+    @Override
+    public void run() throws IOException {
+        checkOperands();
+        long before = repo.objectFolder.getSize() + Stage.INDEX_FILE.length();
+        int count = repo.objectFolder.migrate();
+        repo.getStage().save();
+        repo.journal.commit();
+        long after = repo.objectFolder.getSize() + Stage.INDEX_FILE.length();
+        System.out.printf("Migrated %d objects: %d bytes before, %d bytes after.%n",
+                count, before, after);
+    }
+}
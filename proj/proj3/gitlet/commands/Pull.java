@@ -0,0 +1,41 @@
+package gitlet.commands;
+
+import java.io.IOException;
+
+/**
+ * This class is the pull command class.
+ * "pull REMOTE BRANCH" fetches BRANCH of REMOTE, then merges the branch
+ * "REMOTE/BRANCH" into the current branch.
+ *
+ * @author ryan ma
+ */
+
+public class Pull extends Command {
+
+    /**
+     * Constructor function with ARGS.
+     */
+    public Pull(String[] args) {
+        super(args, 2);
+        checkInitial();
+        checkOperandsNum();
+        fetch = new Fetch(new String[]{"fetch", operands[0], operands[1]});
+    }
+
+    @Override
+    void checkOperands() {
+    }
+
+    @Override
+    public void run() throws IOException {
+        checkOperands();
+        fetch.run();
+        Command merge = new Merge(new String[]{"merge", fetch.getBranch()});
+        merge.run();
+    }
+
+    /**
+     * The fetch of the remote branch.
+     */
+    private final Fetch fetch;
+}
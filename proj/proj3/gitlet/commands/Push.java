@@ -0,0 +1,61 @@
+package gitlet.commands;
+
+import gitlet.Main;
+import gitlet.repo.Remote;
+
+import java.io.IOException;
+
+import static gitlet.Main.repo;
+
+/**
+ * This class is the push command class.
+ * "push REMOTE BRANCH" copies the commits of the current branch missing
+ * from REMOTE, with their objects, and sets BRANCH of REMOTE to the head
+ * of the current branch. The head of BRANCH must be in the history of
+ * the current branch.
+ *
+ * @author ryan ma
+ */
+
+public class Push extends Command {
+
+    /**
+     * Constructor function with ARGS.
+     */
+    public Push(String[] args) {
+        super(args, 2);
+        checkInitial();
+        checkOperandsNum();
+        remoteName = operands[0];
+        branchName = operands[1];
+    }
+
+    @Override
+    void checkOperands() {
+        if (!repo.remoteFolder.hasRemote(remoteName)) {
+            Main.exitWithError("A remote with that name does not exist.");
+        }
+        if (!repo.remoteFolder.getRemoteDir(remoteName).isDirectory()) {
+            Main.exitWithError("Remote directory not found.");
+        }
+    }
+
+    @Override
+    public void run() throws IOException {
+        checkOperands();
+        try (Remote remote = new Remote(repo.remoteFolder.getRemoteDir(remoteName),
+                Remote.RECEIVE_PACK)) {
+            remote.push(branchName, repo.getCurrHeadUid());
+        }
+    }
+
+    /**
+     * Remote name.
+     */
+    private final String remoteName;
+
+    /**
+     * Branch of the remote.
+     */
+    private final String branchName;
+}
@@ -0,0 +1,36 @@
+package gitlet.commands;
+
+import gitlet.repo.Remote;
+
+import java.io.IOException;
+
+/**
+ * This class is the receive-pack command class.
+ * It is run by push in the repository pushed to, and receives the
+ * missing commits and the branch update through its standard input and
+ * output.
+ *
+ * @author ryan ma
+ */
+
+public class ReceivePack extends Command {
+
+    /**
+     * Constructor function with ARGS.
+     */
+    public ReceivePack(String[] args) {
+        super(args, 0);
+        checkInitial();
+        checkOperandsNum();
+    }
+
+    @Override
+    void checkOperands() {
+    }
+
+    @Override
+    public void run() throws IOException {
+        checkOperands();
+        Remote.receive();
+    }
+}
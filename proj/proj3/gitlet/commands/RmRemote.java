@@ -0,0 +1,43 @@
+package gitlet.commands;
+
+import gitlet.Main;
+
+import static gitlet.Main.repo;
+
+/**
+ * This class is the rm-remote command class.
+ * It forgets a remote; the branches fetched from it are kept.
+ *
+ * @author ryan ma
+ */
+
+public class RmRemote extends Command {
+
+    /**
+     * Constructor function with ARGS.
+     */
+    public RmRemote(String[] args) {
+        super(args, 1);
+        checkInitial();
+        checkOperandsNum();
+        remoteName = operands[0];
+    }
+
+    @Override
+    void checkOperands() {
+        if (!repo.remoteFolder.hasRemote(remoteName)) {
+            Main.exitWithError("A remote with that name does not exist.");
+        }
+    }
+
+    @Override
+    public void run() {
+        checkOperands();
+        repo.remoteFolder.removeRemote(remoteName);
+    }
+
+    /**
+     * Remote name.
+     */
+    private final String remoteName;
+}
@@ -0,0 +1,89 @@
+package gitlet.commands;
+
+import gitlet.Main;
+import gitlet.repo.Sparse;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+
+import static gitlet.Main.repo;
+
+/**
+ * This class is the sparse-checkout command class.
+ * "sparse-checkout set PATTERN..." checks out only the files matching
+ * one of the glob PATTERNs, "sparse-checkout disable" checks out every
+ * file again, and "sparse-checkout list" prints the patterns.
+ *
+ * @author ryan ma
+ */
+
+public class SparseCheckout extends Command {
+
+    /**
+     * Constructor function with ARGS.
+     */
+    public SparseCheckout(String[] args) {
+        super(args);
+        checkInitial();
+        if (operands == null) {
+            Main.exitWithError("Incorrect operands.");
+        }
+        option = operands[0];
+        patterns = Arrays.asList(operands).subList(1, operands.length);
+    }
+
+    @Override
+    void checkOperands() {
+        switch (option) {
+            case "set" -> {
+                if (patterns.isEmpty()) {
+                    Main.exitWithError("Incorrect operands.");
+                }
+            }
+            case "list", "disable" -> {
+                if (!patterns.isEmpty()) {
+                    Main.exitWithError("Incorrect operands.");
+                }
+            }
+            default -> Main.exitWithError("Incorrect operands.");
+        }
+    }
+
+    @Override
+    public void run() throws IOException {
+        checkOperands();
+        if (option.equals("list")) {
+            for (String pattern : repo.getSparse().getPatterns()) {
+                System.out.println(pattern);
+            }
+            return;
+        }
+
+        Sparse sparse = null;
+        try {
+            sparse = new Sparse(patterns);
+        } catch (IllegalArgumentException excp) {
+            Main.exitWithError("Invalid pattern: " + excp.getMessage());
+        }
+        if (!repo.getStage().additionMap.isEmpty() || !repo.getStage().removalSet.isEmpty()) {
+            Main.exitWithError("You have uncommitted changes.");
+        }
+        if (repo.workFolder.canNotChangeSparse(sparse)) {
+            Main.exitWithError("A file checked out or removed by the sparse checkout "
+                               + "has changes; delete it, or add and commit it first.");
+        }
+        repo.workFolder.changeSparse(sparse);
+    }
+
+    /**
+     * "set", "list" or "disable".
+     */
+    private final String option;
+
+    /**
+     * The patterns given to set.
+     */
+    private final List<String> patterns;
+
+}
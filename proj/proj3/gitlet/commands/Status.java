@@ -1,8 +1,13 @@
 package gitlet.commands;
 
+import gitlet.repo.Renames;
 
+import java.io.IOException;
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.TreeMap;
 import java.util.TreeSet;
 
 import static gitlet.Main.repo;
@@ -25,14 +30,14 @@ public class Status extends Command {
     }
 
     @Override
-    public void run() {
+    public void run() throws IOException {
         checkOperands();
         String status = getStatus();
         System.out.print(status);
     }
 
     /** Return the status information now. */
-    String getStatus() {
+    String getStatus() throws IOException {
         String status = branchStatus();
         status += stagedFileStatus();
         status += removedFileStatus();
@@ -41,11 +46,16 @@ public class Status extends Command {
         return status;
     }
 
-    /** Return branch status. */
+    /** Return branch status. Remote branches are only listed while
+     *  checked out. */
     private String branchStatus() {
         StringBuilder status = new StringBuilder("=== Branches ===\n");
         List<String> branches = repo.branchFolder.getAllBranches();
         String currBranch = repo.getCurrBranch();
+        if (!branches.contains(currBranch)) {
+            branches.add(currBranch);
+            Collections.sort(branches);
+        }
         for (String branch : branches) {
             if (!branch.equals(currBranch)) {
                 status.append(branch).append("\n");
@@ -57,17 +67,44 @@ public class Status extends Command {
         return status.toString();
     }
 
-    /** Return staged files status. */
+    /** Return staged files status. A new file staged with the removal of
+     *  a file with the same or similar content is shown as renamed. */
     private String stagedFileStatus() {
         StringBuilder status = new StringBuilder("=== Staged Files ===\n");
+        Map<String, String> renames = stagedRenames();
         Set<String> set = repo.getStage().additionMap.keySet();
         for (String file : set) {
-            status.append(file).append("\n");
+            status.append(file);
+            if (renames.containsKey(file)) {
+                status.append(" (renamed from ").append(renames.get(file)).append(")");
+            }
+            status.append("\n");
         }
         status.append("\n");
         return status.toString();
     }
 
+    /** Return the renames staged for commit, a map from new file names
+     *  to old file names. */
+    private Map<String, String> stagedRenames() {
+        Map<String, String> removed = new TreeMap<>();
+        for (String file : repo.getStage().removalSet) {
+            if (repo.getCurrCommit().containsFile(file)) {
+                removed.put(file, repo.getCurrCommit().getBolbUid(file));
+            }
+        }
+        Map<String, String> added = new TreeMap<>();
+        for (Map.Entry<String, String> entry : repo.getStage().additionMap.entrySet()) {
+            if (!repo.getCurrCommit().containsFile(entry.getKey())) {
+                added.put(entry.getKey(), entry.getValue());
+            }
+        }
+        if (removed.isEmpty() || added.isEmpty()) {
+            return new TreeMap<>();
+        }
+        return Renames.detect(removed, added);
+    }
+
     /** Return removed files status. */
     private String removedFileStatus() {
         StringBuilder status = new StringBuilder("=== Removed Files ===\n");
@@ -80,16 +117,25 @@ public class Status extends Command {
     }
 
     /** Return modifications not staged for commit status. */
-    private String notStagedStatus() {
+    private String notStagedStatus() throws IOException {
         StringBuilder status = new StringBuilder("=== Modifications Not Staged For Commit ===\n");
         TreeSet<String> set = new TreeSet<>();
 
-        for (String fileName: repo.getCurrCommit().getAllFileName()) {
+        // tracked files outside the sparse checkout are not in the working directory.
+        Set<String> tracked = repo.getSparse().filter(repo.getCurrCommit().getAllFileName());
+
+        // hash all tracked and staged working files at once, in parallel.
+        Set<String> existing = new TreeSet<>(tracked);
+        existing.addAll(repo.getStage().additionMap.keySet());
+        existing.removeIf(fileName -> !repo.workFolder.checkExist(fileName));
+        Map<String, String> uids = repo.workFolder.getUidsOfFiles(existing);
+
+        for (String fileName: tracked) {
             if (!repo.workFolder.checkExist(fileName)) {
                 if (!repo.getStage().removalSet.contains(fileName)) {
                     set.add(fileName + " (deleted)\n");
                 }
-            } else if (!repo.workFolder.compareFile(fileName, repo.getCurrCommit())
+            } else if (!uids.get(fileName).equals(repo.getCurrCommit().getBolbUid(fileName))
                        && !repo.getStage().additionMap.containsKey(fileName)) {
                 set.add(fileName + " (modified)\n");
             }
@@ -99,7 +145,7 @@ public class Status extends Command {
         for (String file : stageSet) {
             if (!repo.workFolder.checkExist(file)) {
                 set.add(file + " (deleted)\n");
-            } else if (!repo.workFolder.compareFile(file, repo.getStage())) {
+            } else if (!uids.get(file).equals(repo.getStage().getBolbUid(file))) {
                 set.add(file + " (modified)\n");
             }
         }
@@ -0,0 +1,35 @@
+package gitlet.commands;
+
+import gitlet.repo.Remote;
+
+import java.io.IOException;
+
+/**
+ * This class is the upload-pack command class.
+ * It is run by fetch in the repository fetched from, and sends it the
+ * missing commits through its standard input and output.
+ *
+ * @author ryan ma
+ */
+
+public class UploadPack extends Command {
+
+    /**
+     * Constructor function with ARGS.
+     */
+    public UploadPack(String[] args) {
+        super(args, 0);
+        checkInitial();
+        checkOperandsNum();
+    }
+
+    @Override
+    void checkOperands() {
+    }
+
+    @Override
+    public void run() throws IOException {
+        checkOperands();
+        Remote.upload();
+    }
+}
@@ -1,13 +1,46 @@
 package gitlet.objects;
 
-import gitlet.repo.Repo;
 import gitlet.Utils;
 
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectStreamField;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
 /**
  * This class stores the content of a file. The content of a file
  * at a particular time is called bolb. Bolb objects are stored
  * in .gitlet/objects directory.
  * A new bolb should only be created when we run the add command.
+ * Contents are raw bytes, so binary files are stored unchanged. Bolbs
+ * are stored and checked out by streaming; a Bolb object holding the
+ * whole content is only built when the content is needed in memory.
+ * <p>
+ * A stored bolb may be delta-encoded: instead of its content it keeps
+ * the UID of a base bolb and a delta against the base. Delta bolbs are
+ * rebuilt by the object folder and never leave it.
+ * <p>
+ * A large file is stored as a manifest: the list of the UIDs of its
+ * content-defined chunks, each chunk stored once as a full bolb. Like
+ * delta bolbs, manifests are rebuilt by the object folder.
+ * <p>
+ * A stored full bolb is the tag FULL_BOLB followed by the raw content.
+ * A stored delta bolb is the tag DELTA_BOLB, the depth, the raw 20-byte
+ * UID of the base and the delta. Delta bolbs written before the binary
+ * encoding have the tag LEGACY_DELTA_BOLB and a 40-character base UID.
+ * A stored manifest is the tag MANIFEST, the number of chunks and the
+ * raw UIDs of the chunks. A full bolb whose content is compressed is
+ * stored with the tag COMPRESSED_BOLB, the id of the codec, the length of
+ * the content and the compressed content; it is decompressed by the
+ * object folder.
+ * <p>
+ * Bolbs written before the binary encoding are Java-serialized with the
+ * content as a String; they are read back as full bolbs.
  *
  * @author ryan ma
  */
@@ -15,26 +48,261 @@ import gitlet.Utils;
 public class Bolb extends GitletObject {
 
     /**
-     * Constructor function with FILENAME.
+     * Tag of a stored full bolb.
+     */
+    public static final byte FULL_BOLB = 'F';
+
+    /**
+     * Tag of a stored delta bolb.
+     */
+    public static final byte DELTA_BOLB = 'X';
+
+    /**
+     * Tag of a stored delta bolb with a hexadecimal base UID.
+     */
+    public static final byte LEGACY_DELTA_BOLB = 'D';
+
+    /**
+     * Tag of a stored manifest of chunks.
+     */
+    public static final byte MANIFEST = 'M';
+
+    /**
+     * Tag of a stored full bolb with compressed content.
+     */
+    public static final byte COMPRESSED_BOLB = 'Z';
+
+    /**
+     * Length of the tag, the codec id and the content length of a stored
+     * compressed bolb.
+     */
+    public static final int COMPRESSED_HEADER = 6;
+
+    /**
+     * Length of the tag and the depth of a stored delta bolb.
+     */
+    public static final int DELTA_HEADER = 5;
+
+    /**
+     * The serialization version of this class when bolbs were stored
+     * with Java serialization.
+     */
+    private static final long serialVersionUID = 6601270930887770624L;
+
+    /**
+     * The fields of a bolb stored with Java serialization.
      */
-    public Bolb(String content) {
+    private static final ObjectStreamField[] serialPersistentFields = {
+        new ObjectStreamField("content", String.class)
+    };
+
+    /**
+     * Constructor function with CONTENT.
+     */
+    public Bolb(byte[] content) {
         this.content = content;
+        uid = null;
+        baseUid = null;
+        delta = null;
+        depth = 0;
+        chunkUids = null;
+    }
+
+    /**
+     * Constructor function of a delta bolb with UID, BASEUID, DELTA and
+     * DEPTH, the length of the delta chain ending at this bolb.
+     */
+    public Bolb(String uid, String baseUid, byte[] delta, int depth) {
+        content = null;
+        this.uid = uid;
+        this.baseUid = baseUid;
+        this.delta = delta;
+        this.depth = depth;
+        chunkUids = null;
+    }
+
+    /**
+     * Constructor function of a manifest with UID and CHUNKUIDS, the UIDs
+     * of the chunks of the content in order.
+     */
+    public Bolb(String uid, List<String> chunkUids) {
+        content = null;
+        this.uid = uid;
+        baseUid = null;
+        delta = null;
+        depth = 0;
+        this.chunkUids = Collections.unmodifiableList(new ArrayList<>(chunkUids));
     }
 
     /**
      * Return the content of this bolb.
      */
-    public String getContent() {
+    public byte[] getContent() {
+        assert !isDelta() && !isManifest();
         return content;
     }
 
+    /**
+     * Return true if this bolb is stored as a manifest of chunks.
+     */
+    public boolean isManifest() {
+        return chunkUids != null;
+    }
+
+    /**
+     * Return the UIDs of the chunks of this manifest, in order.
+     */
+    public List<String> getChunkUids() {
+        return chunkUids;
+    }
+
+    /**
+     * Return true if this bolb is stored as a delta.
+     */
+    public boolean isDelta() {
+        return delta != null;
+    }
+
+    /**
+     * Return the UID of the base of this delta bolb.
+     */
+    public String getBaseUid() {
+        return baseUid;
+    }
+
+    /**
+     * Return the delta against the base of this delta bolb.
+     */
+    public byte[] getDelta() {
+        return delta;
+    }
+
+    /**
+     * Return the length of the delta chain ending at this bolb,
+     * 0 for a full bolb.
+     */
+    public int getDepth() {
+        return depth;
+    }
+
+    /**
+     * Return true if stored bolb bytes starting with TAG are a delta.
+     */
+    public static boolean isDeltaTag(byte tag) {
+        return tag == DELTA_BOLB || tag == LEGACY_DELTA_BOLB;
+    }
+
+    @Override
+    public byte[] encode() {
+        if (isManifest()) {
+            ByteBuffer buffer = ByteBuffer.allocate(5 + chunkUids.size() * Utils.UID_LENGTH / 2);
+            buffer.put(MANIFEST);
+            buffer.putInt(chunkUids.size());
+            for (String chunkUid : chunkUids) {
+                buffer.put(Utils.uidToBytes(chunkUid));
+            }
+            return buffer.array();
+        }
+        if (!isDelta()) {
+            ByteBuffer buffer = ByteBuffer.allocate(1 + content.length);
+            buffer.put(FULL_BOLB);
+            buffer.put(content);
+            return buffer.array();
+        }
+        ByteBuffer buffer = ByteBuffer.allocate(DELTA_HEADER + Utils.UID_LENGTH / 2 + delta.length);
+        buffer.put(DELTA_BOLB);
+        buffer.putInt(depth);
+        buffer.put(Utils.uidToBytes(baseUid));
+        buffer.put(delta);
+        return buffer.array();
+    }
+
+    /**
+     * Return the bolb with full UID decoded from its stored form BYTES,
+     * which may also be a bolb stored with Java serialization.
+     */
+    public static Bolb decode(String uid, byte[] bytes) {
+        if (Utils.isJavaSerialized(bytes)) {
+            return Utils.deserialize(bytes, Bolb.class);
+        }
+        if (bytes[0] == FULL_BOLB) {
+            return new Bolb(Arrays.copyOfRange(bytes, 1, bytes.length));
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        byte tag = buffer.get();
+        if (tag == MANIFEST) {
+            List<String> chunkUids = new ArrayList<>();
+            byte[] chunkUid = new byte[Utils.UID_LENGTH / 2];
+            for (int n = buffer.getInt(); n > 0; n -= 1) {
+                buffer.get(chunkUid);
+                chunkUids.add(Utils.bytesToUid(chunkUid));
+            }
+            return new Bolb(uid, chunkUids);
+        }
+        int depth = buffer.getInt();
+        int baseLength = tag == LEGACY_DELTA_BOLB ? Utils.UID_LENGTH : Utils.UID_LENGTH / 2;
+        byte[] base = Arrays.copyOfRange(bytes, DELTA_HEADER, DELTA_HEADER + baseLength);
+        String baseUid = tag == LEGACY_DELTA_BOLB
+                ? new String(base, StandardCharsets.US_ASCII) : Utils.bytesToUid(base);
+        byte[] delta = Arrays.copyOfRange(bytes, DELTA_HEADER + baseLength, bytes.length);
+        return new Bolb(uid, baseUid, delta, depth);
+    }
+
+    /**
+     * Read the content of a bolb stored with Java serialization from IN.
+     */
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+        legacyContent = (String) in.readFields().get("content", null);
+    }
+
+    /**
+     * Return the full bolb with the content read by readObject.
+     */
+    private Object readResolve() {
+        return new Bolb(legacyContent.getBytes(StandardCharsets.UTF_8));
+    }
+
     @Override
     public String getUID() {
+        if (isDelta() || isManifest()) {
+            return uid;
+        }
         return Utils.sha1(content);
     }
 
     /**
      * The contents of this file.
      */
-    private final String content;
+    private final byte[] content;
+
+    /**
+     * The UID of this bolb, only kept by delta bolbs and manifests.
+     */
+    private final String uid;
+
+    /**
+     * The UID of the base bolb of this delta bolb.
+     */
+    private final String baseUid;
+
+    /**
+     * The delta against the base bolb.
+     */
+    private final byte[] delta;
+
+    /**
+     * The length of the delta chain ending at this bolb.
+     */
+    private final int depth;
+
+    /**
+     * The UIDs of the chunks of this manifest, in order.
+     */
+    private final List<String> chunkUids;
+
+    /**
+     * The content of a bolb stored with Java serialization, only set
+     * while it is deserialized.
+     */
+    private transient String legacyContent;
 }
@@ -2,6 +2,11 @@ package gitlet.objects;
 
 import gitlet.Utils;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
 import java.text.SimpleDateFormat;
 import java.util.*;
 
@@ -10,12 +15,49 @@ import static gitlet.Main.repo;
 /**
  * This class defines the components of a commit.
  * All pointers are instead of UID.
+ * <p>
+ * The files of a commit are kept in a Tree, shared with the other commits
+ * that have the same files, and only read when needed. Commits made
+ * before trees keep a map from file names to bolb UIDs instead.
+ * <p>
+ * A stored commit is the tag COMMIT, the format VERSION, the timestamp,
+ * the log message, the number of parents and their raw 20-byte UIDs,
+ * then the raw UID of its tree. In format FILE_MAP_VERSION the tree UID
+ * is replaced by the number of files and, for each file, its name and
+ * the raw UID of its bolb. Strings are stored as their length followed
+ * by their UTF-8 bytes.
+ * <p>
+ * A commit stored with Java serialization before the binary encoding has
+ * no tree UID field; it deserializes with a null tree UID and is read
+ * through its map of files.
  *
  * @author ryan ma
  */
 
 public class CommitData extends GitletObject {
 
+    /**
+     * Tag of a stored commit.
+     */
+    public static final byte COMMIT = 'C';
+
+    /**
+     * Version of the stored commit format.
+     */
+    static final byte VERSION = 2;
+
+    /**
+     * Version of the stored commit format with a map of files instead
+     * of a tree.
+     */
+    static final byte FILE_MAP_VERSION = 1;
+
+    /**
+     * The serialization version of this class when commits were stored
+     * with Java serialization.
+     */
+    private static final long serialVersionUID = 71110872936634602L;
+
     /**
      * Init constructor function with log message.
      * This constructor has no parent, means that it's the root of
@@ -24,56 +66,171 @@ public class CommitData extends GitletObject {
     public CommitData(String logMessage) {
         timestamp = new Date(0);
         this.logMessage = logMessage;
-        fileMap = new TreeMap<>();
+        treeUid = Tree.write(new TreeMap<>());
     }
 
     /**
      * Constructor function with log message, parent uid and the stage.
      */
     public CommitData(String logMessage, String parentUID, Stage stage) {
+        this(logMessage, parentUID, null, stage);
+    }
+
+    /**
+     * Constructor function with log message, parent uid, second parent uid and stage.
+     * The tree of this commit is the tree of the parent changed by the
+     * stage, so only the nodes on the paths to the staged files are new.
+     */
+    public CommitData(String logMessage, String parentUID, String secParentUID, Stage stage) {
         timestamp = new Date();
         this.logMessage = logMessage;
         _parentUID = parentUID;
+        _secParentUID = secParentUID;
         CommitData parentCommit = repo.objectFolder.getCommit(parentUID);
 
         assert parentCommit != null;
-        fileMap = new TreeMap<>(parentCommit.fileMap);
-        fileMap.putAll(stage.additionMap);
-        for (String fileName : stage.removalSet) {
-            fileMap.remove(fileName);
+        Map<String, String> changes = new TreeMap<>(stage.additionMap);
+        for (String file : stage.removalSet) {
+            changes.put(file, null);
         }
+        treeUid = Tree.update(parentCommit.getTreeUid(), changes);
     }
 
     /**
-     * Constructor function with log message, parent uid, second parent uid and stage.
+     * Constructor function of a decoded commit with TIMESTAMP, LOGMESSAGE,
+     * PARENTUID, SECPARENTUID and either TREEUID or FILEMAP.
      */
-    public CommitData(String logMessage, String parentUID, String secParentUID, Stage stage) {
-        timestamp = new Date();
+    private CommitData(Date timestamp, String logMessage, String parentUID,
+                       String secParentUID, String treeUid, TreeMap<String, String> fileMap) {
+        this.timestamp = timestamp;
         this.logMessage = logMessage;
         _parentUID = parentUID;
         _secParentUID = secParentUID;
-        CommitData parentCommit = repo.objectFolder.getCommit(parentUID);
+        this.treeUid = treeUid;
+        this.fileMap = fileMap;
+    }
 
-        assert parentCommit != null;
-        fileMap = new TreeMap<>(parentCommit.fileMap);
-        fileMap.putAll(stage.additionMap);
-        for (String file : stage.removalSet) {
-            fileMap.remove(file);
+    @Override
+    public byte[] encode() {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeByte(COMMIT);
+            out.writeByte(treeUid == null ? FILE_MAP_VERSION : VERSION);
+            out.writeLong(timestamp.getTime());
+            Utils.writeString(out, logMessage);
+            out.writeByte(_parentUID == null ? 0 : _secParentUID == null ? 1 : 2);
+            if (_parentUID != null) {
+                Utils.writeUid(out, _parentUID);
+            }
+            if (_secParentUID != null) {
+                Utils.writeUid(out, _secParentUID);
+            }
+            if (treeUid != null) {
+                Utils.writeUid(out, treeUid);
+            } else {
+                out.writeInt(fileMap.size());
+                for (Map.Entry<String, String> entry : fileMap.entrySet()) {
+                    Utils.writeString(out, entry.getKey());
+                    Utils.writeUid(out, entry.getValue());
+                }
+            }
+        } catch (IOException excp) {
+            throw new GitletException("Internal error encoding commit.");
         }
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Return true if BYTES, the stored form of an object, are a commit.
+     * Objects stored with Java serialization are taken to be commits,
+     * and decode checks their class.
+     */
+    public static boolean isCommit(byte[] bytes) {
+        return Utils.isJavaSerialized(bytes) || bytes.length > 0 && bytes[0] == COMMIT;
+    }
+
+    /**
+     * Return the commit decoded from its stored form BYTES, which may
+     * also be a commit stored with Java serialization.
+     */
+    public static CommitData decode(byte[] bytes) {
+        if (Utils.isJavaSerialized(bytes)) {
+            return Utils.deserialize(bytes, CommitData.class);
+        }
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes))) {
+            byte version = in.readByte() == COMMIT ? in.readByte() : 0;
+            if (version != VERSION && version != FILE_MAP_VERSION) {
+                throw new GitletException("Unknown commit format.");
+            }
+            Date timestamp = new Date(in.readLong());
+            String logMessage = Utils.readString(in);
+            int parents = in.readByte();
+            String parentUID = parents > 0 ? Utils.readUid(in) : null;
+            String secParentUID = parents > 1 ? Utils.readUid(in) : null;
+            if (version == VERSION) {
+                return new CommitData(timestamp, logMessage, parentUID, secParentUID,
+                        Utils.readUid(in), null);
+            }
+            TreeMap<String, String> fileMap = new TreeMap<>();
+            for (int n = in.readInt(); n > 0; n -= 1) {
+                String fileName = Utils.readString(in);
+                fileMap.put(fileName, Utils.readUid(in));
+            }
+            return new CommitData(timestamp, logMessage, parentUID, secParentUID, null, fileMap);
+        } catch (IOException excp) {
+            throw new GitletException("Internal error decoding commit.");
+        }
+    }
+
+    /**
+     * Return the UID of the tree of this commit. The tree of a commit
+     * made before trees is written from its map of files.
+     */
+    public String getTreeUid() {
+        if (treeUid != null) {
+            return treeUid;
+        }
+        return Tree.write(fileMap);
+    }
+
+    /**
+     * Return true if the files of this commit are stored in a tree, false
+     * for a commit made before trees, which stores its map of files.
+     */
+    public boolean hasTree() {
+        return treeUid != null;
+    }
+
+    /**
+     * Return the map from file names to bolb UIDs of this commit, reading
+     * the whole tree the first time.
+     */
+    private TreeMap<String, String> getFileMap() {
+        TreeMap<String, String> files = fileMap;
+        if (files == null) {
+            files = Tree.list(treeUid);
+            fileMap = files;
+        }
+        return files;
     }
 
     /**
      * Return true if this commit contains file FILENAME.
      */
     public boolean containsFile(String fileName) {
-        return fileMap.containsKey(fileName);
+        return getBolbUid(fileName) != null;
     }
 
     /**
-     * Return the UID of the file FILENAME.
+     * Return the UID of the file FILENAME. Unless the whole tree has
+     * been read, only the path to FILENAME is read.
      */
     public String getBolbUid(String fileName) {
-        return fileMap.get(fileName);
+        TreeMap<String, String> files = fileMap;
+        if (files == null) {
+            return Tree.lookup(treeUid, fileName);
+        }
+        return files.get(fileName);
     }
 
     /**
@@ -93,6 +250,21 @@ public class CommitData extends GitletObject {
         return null;
     }
 
+    /**
+     * Return the UID of the parent, or null if this commit has no parent.
+     */
+    public String getParentUid() {
+        return _parentUID;
+    }
+
+    /**
+     * Return the UID of the second parent, or null if this commit has
+     * no second parent.
+     */
+    public String getSecParentUid() {
+        return _secParentUID;
+    }
+
     /**
      * Return true if this commit has a second parent.
      */
@@ -117,6 +289,13 @@ public class CommitData extends GitletObject {
         return logMessage;
     }
 
+    /**
+     * Return the timestamp of this commit in milliseconds.
+     */
+    public long getTimestamp() {
+        return timestamp.getTime();
+    }
+
     /**
      * Return the timestamp of this commit.
      */
@@ -126,10 +305,11 @@ public class CommitData extends GitletObject {
     }
 
     /**
-     * Return a sorted set of all files in this commit.
+     * Return a sorted set of all files in this commit. Commits are
+     * shared through the object cache, so the set cannot be modified.
      */
     public Set<String> getAllFileName() {
-        return fileMap.keySet();
+        return Collections.unmodifiableSet(getFileMap().keySet());
     }
 
     /**
@@ -158,8 +338,12 @@ public class CommitData extends GitletObject {
         if (_secParentUID != null) {
             content.append(_secParentUID);
         }
-        for (String file : fileMap.keySet()) {
-            content.append(file).append(fileMap.get(file));
+        if (treeUid != null) {
+            content.append(treeUid);
+        } else {
+            for (String file : fileMap.keySet()) {
+                content.append(file).append(fileMap.get(file));
+            }
         }
         return Utils.sha1(content.toString());
     }
@@ -168,20 +352,22 @@ public class CommitData extends GitletObject {
      * Return a queue of all history commits of the given commit.
      */
     public Queue<CommitData> getHistoryCommit() {
-        /* Use BFS algorithm to retrieve commit tree. */
+        /* Use BFS algorithm to retrieve commit tree, visiting each commit once. */
         Queue<CommitData> queue = new LinkedList<>();
         Queue<CommitData> history = new LinkedList<>();
+        Set<String> visited = new HashSet<>();
         queue.add(this);
+        visited.add(getUID());
 
         while (!queue.isEmpty()) {
             CommitData commit = queue.poll();
             history.add(commit);
 
-            if (commit.hasParent()) {
+            if (commit.hasParent() && visited.add(commit._parentUID)) {
                 queue.add(commit.getParent());
             }
 
-            if (commit.hasSecParent()) {
+            if (commit.hasSecParent() && visited.add(commit._secParentUID)) {
                 queue.add(commit.getSecParent());
             }
         }
@@ -189,22 +375,23 @@ public class CommitData extends GitletObject {
     }
 
     /**
-     * Return false if this commit contains the same file UID with the given commit.
-     * If they both don't contain this file, then return false.
+     * Return the files that differ between this commit and the given
+     * commit, mapped to the pair of their bolb UIDs in this commit and
+     * in the given commit, null where a commit does not contain the file.
+     * If both commits have trees, identical subtrees are skipped.
      */
-    private boolean notContainSameFile(CommitData commit, String fileName) {
-        if (commit.containsFile(fileName) && containsFile(fileName)) {
-            return !fileMap.get(fileName).equals(commit.getBolbUid(fileName));
-        } else {
-            return (commit.containsFile(fileName) || containsFile(fileName));
+    private Map<String, String[]> diff(CommitData commit) {
+        if (treeUid != null && commit.treeUid != null) {
+            return Tree.diff(treeUid, commit.treeUid);
         }
+        return Tree.diff(getFileMap(), commit.getFileMap());
     }
 
     /**
      * Return the intersection set of this commit and the given commit.
      */
     public Set<String> getInterSet(CommitData commit) {
-        Set<String> intersection = new HashSet<>(fileMap.keySet());
+        Set<String> intersection = new HashSet<>(getFileMap().keySet());
         intersection.retainAll(commit.getAllFileName());
         return intersection;
     }
@@ -213,7 +400,7 @@ public class CommitData extends GitletObject {
      * Return the asymmetric difference set of this commit and the given commit.
      */
     public Set<String> getDiffSet(CommitData commit) {
-        Set<String> difference = new HashSet<>(fileMap.keySet());
+        Set<String> difference = new HashSet<>(getFileMap().keySet());
         difference.removeAll(commit.getAllFileName());
         return difference;
     }
@@ -222,11 +409,10 @@ public class CommitData extends GitletObject {
      * Return the different files set in intersection of this commit and the given commit.
      */
     public Set<String> getInterDiffFiles(CommitData commit) {
-        Set<String> intersection = getInterSet(commit);
         Set<String> interDiffFiles = new HashSet<>();
-        for (String fileName : intersection) {
-            if (notContainSameFile(commit, fileName)) {
-                interDiffFiles.add(fileName);
+        for (Map.Entry<String, String[]> entry : diff(commit).entrySet()) {
+            if (entry.getValue()[0] != null && entry.getValue()[1] != null) {
+                interDiffFiles.add(entry.getKey());
             }
         }
         return interDiffFiles;
@@ -238,15 +424,27 @@ public class CommitData extends GitletObject {
      */
     public Set<String> getDiffFiles(CommitData commit) {
         Set<String> diffFiles = new HashSet<>();
-        Set<String> others = commit.getAllFileName();
-        for (String fileName : others) {
-            if (notContainSameFile(commit, fileName)) {
-                diffFiles.add(fileName);
+        for (Map.Entry<String, String[]> entry : diff(commit).entrySet()) {
+            if (entry.getValue()[1] != null) {
+                diffFiles.add(entry.getKey());
             }
         }
         return diffFiles;
     }
 
+    /**
+     * Return the files of this commit that the given commit does not contain.
+     */
+    public Set<String> getRemovedFiles(CommitData commit) {
+        Set<String> removedFiles = new HashSet<>();
+        for (Map.Entry<String, String[]> entry : diff(commit).entrySet()) {
+            if (entry.getValue()[1] == null) {
+                removedFiles.add(entry.getKey());
+            }
+        }
+        return removedFiles;
+    }
+
     /**
      * The timestamp of this commit.
      */
@@ -268,7 +466,14 @@ public class CommitData extends GitletObject {
     private String _secParentUID = null;
 
     /**
-     * The map from file names to bolb UID.
+     * The UID of the tree of files of this commit, null for a commit
+     * made before trees.
+     */
+    private final String treeUid;
+
+    /**
+     * The map from file names to bolb UID: stored by a commit made
+     * before trees, otherwise the whole tree once it has been read.
      */
-    private final TreeMap<String, String> fileMap;
+    private volatile TreeMap<String, String> fileMap;
 }
@@ -6,12 +6,22 @@ import java.io.Serializable;
  * This class is the abstract class of bolbs and commits.
  * It's responsible for creating dirs and files, reading and writing
  * operations.
+ * Objects are stored in a compact binary encoding that starts with a
+ * one-byte tag naming the format. Objects are still Serializable so that
+ * the migrate command can read repositories written before the binary
+ * encoding.
  *
  * @author ryan ma
  */
 
 public abstract class GitletObject implements Serializable {
 
+    /**
+     * The serialization version of this class when objects were stored
+     * with Java serialization.
+     */
+    private static final long serialVersionUID = -6278716368981790434L;
+
     /**
      * An empty constructor function.
      */
@@ -23,4 +33,9 @@ public abstract class GitletObject implements Serializable {
      * Return the sha1 code of this object.
      */
     public abstract String getUID();
+
+    /**
+     * Return the stored form of this object.
+     */
+    public abstract byte[] encode();
 }
@@ -2,16 +2,31 @@ package gitlet.objects;
 
 import gitlet.Utils;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
 import java.io.File;
 import java.io.IOException;
+import java.io.ObjectInputStream;
 import java.io.Serializable;
+import java.util.Map;
 import java.util.TreeMap;
 import java.util.TreeSet;
 
+import static gitlet.Main.repo;
+
 /**
  * This class represents staging area in gitlet.
  * It contains an addition area and a removal area.
+ * It also caches the stat data and UID of working files.
  * This class object will store in .gitlet/index file.
+ * <p>
+ * The index file is the tag INDEX, the format VERSION, then the staged
+ * additions (name and raw 20-byte bolb UID), the staged removals and the
+ * stat cache, each preceded by its size. An index written with Java
+ * serialization is still read, with an empty stat cache, and is rewritten
+ * in the binary encoding the next time the stage is saved.
  *
  * @author ryan ma
  */
@@ -23,12 +38,29 @@ public class Stage implements Serializable {
      */
     public static final File INDEX_FILE = new File(".gitlet/index");
 
+    /**
+     * Tag of the index file.
+     */
+    static final byte INDEX = 'I';
+
+    /**
+     * Version of the index file format.
+     */
+    static final byte VERSION = 1;
+
+    /**
+     * The serialization version of this class when the stage was stored
+     * with Java serialization.
+     */
+    private static final long serialVersionUID = -4990117383416211460L;
+
     /**
      * The constructor function.
      */
     public Stage() {
         additionMap = new TreeMap<>();
         removalSet = new TreeSet<>();
+        statCache = new TreeMap<>();
     }
 
     public String getBolbUid(String fileName) {
@@ -36,7 +68,38 @@ public class Stage implements Serializable {
     }
 
     /**
-     * Clean the staging area.
+     * Return the UID of working file FILENAME recorded in the stat cache,
+     * or null if CURRENT, the stat data of the file now, shows that the
+     * file may have changed since it was hashed.
+     */
+    public String getCachedUid(String fileName, StatEntry current) {
+        StatEntry entry = statCache.get(fileName);
+        if (entry != null && entry.matches(current)) {
+            return entry.getUid();
+        }
+        return null;
+    }
+
+    /**
+     * Record ENTRY as the stat data and UID of working file FILENAME.
+     */
+    public void cacheUid(String fileName, StatEntry entry) {
+        if (entry == null) {
+            statCache.remove(fileName);
+        } else {
+            statCache.put(fileName, entry);
+        }
+    }
+
+    /**
+     * Forget the stat data of working file FILENAME.
+     */
+    public void uncache(String fileName) {
+        statCache.remove(fileName);
+    }
+
+    /**
+     * Clean the staging area. The stat cache is kept.
      */
     public void clean() {
         additionMap.clear();
@@ -44,20 +107,92 @@ public class Stage implements Serializable {
     }
 
     /**
-     * Return the object. Reads in and deserializes the index file.
+     * Return the object. Reads in and decodes the index file.
      */
     public static Stage readFromFile() {
-        return Utils.readObject(INDEX_FILE, Stage.class);
+        return decode(repo.journal.read(INDEX_FILE));
     }
 
     /**
-     * Write Stage object into file index.
+     * Return the stage decoded from the index file content BYTES, which
+     * may also be a stage stored with Java serialization.
+     */
+    public static Stage decode(byte[] bytes) {
+        if (Utils.isJavaSerialized(bytes)) {
+            return Utils.deserialize(bytes, Stage.class);
+        }
+        Stage stage = new Stage();
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes))) {
+            if (in.readByte() != INDEX || in.readByte() != VERSION) {
+                throw new GitletException("Unknown index format.");
+            }
+            for (int n = in.readInt(); n > 0; n -= 1) {
+                String fileName = Utils.readString(in);
+                stage.additionMap.put(fileName, Utils.readUid(in));
+            }
+            for (int n = in.readInt(); n > 0; n -= 1) {
+                stage.removalSet.add(Utils.readString(in));
+            }
+            for (int n = in.readInt(); n > 0; n -= 1) {
+                String fileName = Utils.readString(in);
+                stage.statCache.put(fileName, StatEntry.read(in));
+            }
+        } catch (IOException excp) {
+            throw new GitletException("Internal error reading index.");
+        }
+        stage.readAdditions = new TreeMap<>(stage.additionMap);
+        stage.readRemovals = new TreeSet<>(stage.removalSet);
+        return stage;
+    }
+
+    /**
+     * Read a stage stored with Java serialization from IN. The stage was
+     * stored without a stat cache, so it starts with an empty one.
+     */
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+        in.defaultReadObject();
+        if (statCache == null) {
+            statCache = new TreeMap<>();
+        }
+    }
+
+    /**
+     * Write Stage object into file index. If only the stat cache changed
+     * since the index was read, the write is dropped when another process
+     * changed the index meanwhile, as the stat cache can be rebuilt.
      */
     public void save() throws IOException {
-        if (!INDEX_FILE.exists()) {
-            INDEX_FILE.createNewFile();
+        if (additionMap.equals(readAdditions) && removalSet.equals(readRemovals)) {
+            repo.journal.refresh(INDEX_FILE, encode());
+        } else {
+            repo.journal.write(INDEX_FILE, encode());
+        }
+    }
+
+    /**
+     * Return the content of the index file for this stage.
+     */
+    public byte[] encode() throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeByte(INDEX);
+            out.writeByte(VERSION);
+            out.writeInt(additionMap.size());
+            for (Map.Entry<String, String> entry : additionMap.entrySet()) {
+                Utils.writeString(out, entry.getKey());
+                Utils.writeUid(out, entry.getValue());
+            }
+            out.writeInt(removalSet.size());
+            for (String fileName : removalSet) {
+                Utils.writeString(out, fileName);
+            }
+            out.writeInt(statCache.size());
+            for (Map.Entry<String, StatEntry> entry : statCache.entrySet()) {
+                Utils.writeString(out, entry.getKey());
+                entry.getValue().write(out);
+            }
         }
-        Utils.writeObject(INDEX_FILE, this);
+        return bytes.toByteArray();
     }
 
     /**
@@ -69,4 +204,19 @@ public class Stage implements Serializable {
      * Staged for removal, store the file name in this set.
      */
     public final TreeSet<String> removalSet;
+
+    /**
+     * Stat cache, map of working file name to its stat data and UID.
+     */
+    private TreeMap<String, StatEntry> statCache;
+
+    /**
+     * The staged additions when the index was read, null for a new stage.
+     */
+    private transient TreeMap<String, String> readAdditions;
+
+    /**
+     * The staged removals when the index was read, null for a new stage.
+     */
+    private transient TreeSet<String> readRemovals;
 }
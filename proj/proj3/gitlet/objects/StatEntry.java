@@ -0,0 +1,141 @@
+package gitlet.objects;
+
+import gitlet.Utils;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.File;
+import java.io.IOException;
+import java.io.Serializable;
+import java.nio.file.Files;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * This class records the stat data of a working file (size, modification
+ * time and inode) together with the UID it had when it was last hashed.
+ * Stat entries are kept in the stage, so that a file whose stat data has
+ * not changed does not need to be hashed again.
+ *
+ * @author ryan ma
+ */
+
+public class StatEntry implements Serializable {
+
+    /**
+     * A file modified less than this long before it was hashed is racy:
+     * a later change within the same timestamp granularity would not
+     * change its modification time, so its UID is never trusted.
+     */
+    static final long RACY_WINDOW = TimeUnit.SECONDS.toNanos(2);
+
+    /**
+     * The serialization version of this class when the stage was stored
+     * with Java serialization.
+     */
+    private static final long serialVersionUID = 665575562880996142L;
+
+    /**
+     * Constructor function with the stat data of FILE and its UID.
+     * HASHEDAT is the time, in nanoseconds, when the file was hashed.
+     */
+    private StatEntry(long size, long mtime, String inode, String uid, long hashedAt) {
+        this.size = size;
+        this.mtime = mtime;
+        this.inode = inode;
+        this.uid = uid;
+        this.hashedAt = hashedAt;
+    }
+
+    /**
+     * Return the stat entry of FILE with UID, hashed at time HASHEDAT,
+     * or null if FILE cannot be stat'ed.
+     */
+    public static StatEntry of(File file, String uid, long hashedAt) {
+        try {
+            BasicFileAttributes attrs = Files.readAttributes(file.toPath(), BasicFileAttributes.class);
+            Object key = attrs.fileKey();
+            return new StatEntry(attrs.size(), attrs.lastModifiedTime().to(TimeUnit.NANOSECONDS),
+                    key == null ? null : key.toString(), uid, hashedAt);
+        } catch (IOException excp) {
+            return null;
+        }
+    }
+
+    /**
+     * Write this entry to OUT: size, modification time, whether there is
+     * an inode and the inode, the raw UID and the time it was hashed.
+     */
+    void write(DataOutput out) throws IOException {
+        out.writeLong(size);
+        out.writeLong(mtime);
+        out.writeBoolean(inode != null);
+        if (inode != null) {
+            Utils.writeString(out, inode);
+        }
+        Utils.writeUid(out, uid);
+        out.writeLong(hashedAt);
+    }
+
+    /**
+     * Return the entry written by write to IN.
+     */
+    static StatEntry read(DataInput in) throws IOException {
+        long size = in.readLong();
+        long mtime = in.readLong();
+        String inode = in.readBoolean() ? Utils.readString(in) : null;
+        return new StatEntry(size, mtime, inode, Utils.readUid(in), in.readLong());
+    }
+
+    /**
+     * Return the current time in the unit of HASHEDAT.
+     */
+    public static long now() {
+        return TimeUnit.MILLISECONDS.toNanos(System.currentTimeMillis());
+    }
+
+    /**
+     * Return true if CURRENT, the stat data of the file now, matches this
+     * entry and this entry is not racy, so that its UID can be trusted.
+     */
+    public boolean matches(StatEntry current) {
+        return current != null
+                && size == current.size
+                && mtime == current.mtime
+                && Objects.equals(inode, current.inode)
+                && mtime + RACY_WINDOW < hashedAt;
+    }
+
+    /**
+     * Return the UID of the file when it was hashed.
+     */
+    public String getUid() {
+        return uid;
+    }
+
+    /**
+     * The size of the file.
+     */
+    private final long size;
+
+    /**
+     * The modification time of the file in nanoseconds.
+     */
+    private final long mtime;
+
+    /**
+     * The inode of the file, or null if the file system has none.
+     */
+    private final String inode;
+
+    /**
+     * The UID of the file when it was hashed.
+     */
+    private final String uid;
+
+    /**
+     * The time, in nanoseconds, when the file was hashed.
+     */
+    private final long hashedAt;
+}
@@ -0,0 +1,455 @@
+package gitlet.objects;
+
+import gitlet.Utils;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import static gitlet.Main.repo;
+
+/**
+ * This class is a node of the tree of files of a commit. Commits share
+ * the subtrees they have in common, so a commit that changes one file
+ * only writes the nodes on the path to that file.
+ * <p>
+ * Gitlet tracks the plain files of the working directory, which have no
+ * directories to build trees from, so the tree is a trie on the SHA-1 of
+ * the file names: a node at depth d with more than MAX_LEAF files is an
+ * inner node with up to FANOUT children, one for each value of the d-th
+ * hexadecimal digit of the SHA-1 of the names below it. Other nodes are
+ * leaves mapping file names to bolb UIDs. The shape of a tree only
+ * depends on its files, so equal trees have equal UIDs, and comparing
+ * two trees skips the subtrees with equal UIDs.
+ * <p>
+ * A stored tree is the tag TREE and the format VERSION, then either
+ * LEAF, the number of files and, for each file, its name and the raw
+ * 20-byte UID of its bolb; or INNER, the number of files below, a bitmap
+ * of the present children and their raw UIDs.
+ *
+ * @author ryan ma
+ */
+
+public class Tree extends GitletObject {
+
+    /**
+     * Tag of a stored tree.
+     */
+    public static final byte TREE = 'T';
+
+    /**
+     * Version of the stored tree format.
+     */
+    static final byte VERSION = 1;
+
+    /**
+     * Kind of a leaf node.
+     */
+    static final byte LEAF = 0;
+
+    /**
+     * Kind of an inner node.
+     */
+    static final byte INNER = 1;
+
+    /**
+     * Number of children of an inner node.
+     */
+    static final int FANOUT = 16;
+
+    /**
+     * The most files in a leaf.
+     */
+    static final int MAX_LEAF = 32;
+
+    /**
+     * Constructor function of a leaf with ENTRIES, the map from file
+     * names to bolb UIDs.
+     */
+    private Tree(TreeMap<String, String> entries) {
+        this.entries = entries;
+        children = null;
+        size = entries.size();
+    }
+
+    /**
+     * Constructor function of an inner node with CHILDREN, the UIDs of
+     * the children or null, and SIZE, the number of files below it.
+     */
+    private Tree(String[] children, int size) {
+        entries = null;
+        this.children = children;
+        this.size = size;
+    }
+
+    /**
+     * Store the tree of FILES, a map from file names to bolb UIDs, and
+     * return the UID of its root.
+     */
+    public static String write(Map<String, String> files) {
+        return build(new TreeMap<>(files), 0).getUID();
+    }
+
+    /**
+     * Store the tree with root UID changed by CHANGES, a map from file
+     * names to their new bolb UIDs, or to null for removed files, and
+     * return the UID of its root. Only the nodes on the paths to the
+     * changed files are written.
+     */
+    public static String update(String uid, Map<String, String> changes) {
+        if (changes.isEmpty()) {
+            return uid;
+        }
+        return update(load(uid), changes, 0).getUID();
+    }
+
+    /**
+     * Return the UID of the bolb of FILENAME in the tree with root UID,
+     * or null if the tree does not contain it.
+     */
+    public static String lookup(String uid, String fileName) {
+        String hash = Utils.sha1(fileName);
+        Tree node = load(uid);
+        for (int depth = 0; !node.isLeaf(); depth += 1) {
+            String child = node.children[digit(hash, depth)];
+            if (child == null) {
+                return null;
+            }
+            node = load(child);
+        }
+        return node.entries.get(fileName);
+    }
+
+    /**
+     * Return the map from file names to bolb UIDs of the tree with
+     * root UID.
+     */
+    public static TreeMap<String, String> list(String uid) {
+        TreeMap<String, String> files = new TreeMap<>();
+        list(uid, files);
+        return files;
+    }
+
+    /**
+     * Return the files that differ between the trees with roots UID and
+     * OTHER: a map from each file name to a pair of the UIDs of its bolb
+     * in UID and in OTHER, null where the tree does not contain it.
+     * Subtrees with equal UIDs are skipped without being read.
+     */
+    public static Map<String, String[]> diff(String uid, String other) {
+        Map<String, String[]> result = new HashMap<>();
+        diff(uid, other, result);
+        return result;
+    }
+
+    /**
+     * Return the files that differ between FILES and OTHERFILES, maps
+     * from file names to bolb UIDs, in the form returned by diff.
+     */
+    public static Map<String, String[]> diff(Map<String, String> files,
+                                             Map<String, String> otherFiles) {
+        Map<String, String[]> result = new HashMap<>();
+        diff(files, otherFiles, result);
+        return result;
+    }
+
+    /**
+     * Return the root of the tree of ENTRIES at DEPTH, storing all of its
+     * nodes.
+     */
+    private static Tree build(TreeMap<String, String> entries, int depth) {
+        if (entries.size() <= MAX_LEAF || depth == Utils.UID_LENGTH) {
+            return store(new Tree(entries));
+        }
+        List<TreeMap<String, String>> groups = partition(entries, depth);
+        String[] children = new String[FANOUT];
+        for (int d = 0; d < FANOUT; d += 1) {
+            if (groups.get(d) != null) {
+                children[d] = build(groups.get(d), depth + 1).getUID();
+            }
+        }
+        return store(new Tree(children, entries.size()));
+    }
+
+    /**
+     * Return the root of NODE at DEPTH changed by CHANGES, storing the
+     * changed nodes. An inner node left with at most MAX_LEAF files
+     * becomes a leaf again.
+     */
+    private static Tree update(Tree node, Map<String, String> changes, int depth) {
+        if (node.isLeaf()) {
+            TreeMap<String, String> entries = new TreeMap<>(node.entries);
+            for (Map.Entry<String, String> change : changes.entrySet()) {
+                if (change.getValue() == null) {
+                    entries.remove(change.getKey());
+                } else {
+                    entries.put(change.getKey(), change.getValue());
+                }
+            }
+            return build(entries, depth);
+        }
+
+        List<TreeMap<String, String>> groups = partition(changes, depth);
+        String[] children = node.children.clone();
+        int size = node.size;
+        for (int d = 0; d < FANOUT; d += 1) {
+            if (groups.get(d) == null) {
+                continue;
+            }
+            Tree child = children[d] == null ? new Tree(new TreeMap<>()) : load(children[d]);
+            Tree changed = update(child, groups.get(d), depth + 1);
+            children[d] = changed.size == 0 ? null : changed.getUID();
+            size += changed.size - child.size;
+        }
+
+        Tree result = new Tree(children, size);
+        if (size <= MAX_LEAF) {
+            TreeMap<String, String> entries = new TreeMap<>();
+            for (String child : children) {
+                if (child != null) {
+                    list(child, entries);
+                }
+            }
+            result = new Tree(entries);
+        }
+        return store(result);
+    }
+
+    /**
+     * Add the files of the tree with root UID to FILES.
+     */
+    private static void list(String uid, Map<String, String> files) {
+        Tree node = load(uid);
+        if (node.isLeaf()) {
+            files.putAll(node.entries);
+            return;
+        }
+        for (String child : node.children) {
+            if (child != null) {
+                list(child, files);
+            }
+        }
+    }
+
+    /**
+     * Add the files that differ between the trees with roots UID and
+     * OTHER to RESULT. A null root is an empty tree.
+     */
+    private static void diff(String uid, String other, Map<String, String[]> result) {
+        if (uid != null && uid.equals(other)) {
+            return;
+        }
+        Tree node = uid == null ? null : load(uid);
+        Tree otherNode = other == null ? null : load(other);
+        if (node != null && otherNode != null && !node.isLeaf() && !otherNode.isLeaf()) {
+            for (int d = 0; d < FANOUT; d += 1) {
+                diff(node.children[d], otherNode.children[d], result);
+            }
+            return;
+        }
+
+        Map<String, String> files = uid == null ? new TreeMap<>() : list(uid);
+        Map<String, String> otherFiles = other == null ? new TreeMap<>() : list(other);
+        diff(files, otherFiles, result);
+    }
+
+    /**
+     * Add the files that differ between FILES and OTHERFILES to RESULT.
+     */
+    private static void diff(Map<String, String> files, Map<String, String> otherFiles,
+                             Map<String, String[]> result) {
+        for (Map.Entry<String, String> entry : files.entrySet()) {
+            String otherBolb = otherFiles.get(entry.getKey());
+            if (!entry.getValue().equals(otherBolb)) {
+                result.put(entry.getKey(), new String[]{entry.getValue(), otherBolb});
+            }
+        }
+        for (Map.Entry<String, String> entry : otherFiles.entrySet()) {
+            if (!files.containsKey(entry.getKey())) {
+                result.put(entry.getKey(), new String[]{null, entry.getValue()});
+            }
+        }
+    }
+
+    /**
+     * Return ENTRIES split by the DEPTH-th digit of the SHA-1 of their
+     * keys, null for digits without entries.
+     */
+    private static List<TreeMap<String, String>> partition(Map<String, String> entries,
+                                                           int depth) {
+        List<TreeMap<String, String>> groups = new ArrayList<>(Collections.nCopies(FANOUT, null));
+        for (Map.Entry<String, String> entry : entries.entrySet()) {
+            int d = digit(Utils.sha1(entry.getKey()), depth);
+            if (groups.get(d) == null) {
+                groups.set(d, new TreeMap<>());
+            }
+            groups.get(d).put(entry.getKey(), entry.getValue());
+        }
+        return groups;
+    }
+
+    /**
+     * Return the DEPTH-th hexadecimal digit of HASH.
+     */
+    private static int digit(String hash, int depth) {
+        return Character.digit(hash.charAt(depth), 16);
+    }
+
+    /**
+     * Return the tree node with full UID.
+     */
+    private static Tree load(String uid) {
+        return repo.objectFolder.getTree(uid);
+    }
+
+    /**
+     * Save NODE in the object folder and return it.
+     */
+    private static Tree store(Tree node) {
+        try {
+            repo.objectFolder.save(node);
+        } catch (IOException excp) {
+            throw new GitletException(excp.getMessage());
+        }
+        return node;
+    }
+
+    /**
+     * Return true if this node is a leaf.
+     */
+    private boolean isLeaf() {
+        return entries != null;
+    }
+
+    /**
+     * Return the UIDs of the children of this node, empty for a leaf.
+     */
+    public List<String> getChildUids() {
+        List<String> uids = new ArrayList<>();
+        if (!isLeaf()) {
+            for (String child : children) {
+                if (child != null) {
+                    uids.add(child);
+                }
+            }
+        }
+        return uids;
+    }
+
+    /**
+     * Return the UIDs of the bolbs of the files of this node, empty for
+     * an inner node.
+     */
+    public Collection<String> getBolbUids() {
+        return isLeaf() ? entries.values() : new ArrayList<>();
+    }
+
+    @Override
+    public byte[] encode() {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeByte(TREE);
+            out.writeByte(VERSION);
+            if (isLeaf()) {
+                out.writeByte(LEAF);
+                out.writeInt(entries.size());
+                for (Map.Entry<String, String> entry : entries.entrySet()) {
+                    Utils.writeString(out, entry.getKey());
+                    Utils.writeUid(out, entry.getValue());
+                }
+            } else {
+                out.writeByte(INNER);
+                out.writeInt(size);
+                int bitmap = 0;
+                for (int d = 0; d < FANOUT; d += 1) {
+                    if (children[d] != null) {
+                        bitmap |= 1 << d;
+                    }
+                }
+                out.writeShort(bitmap);
+                for (String child : children) {
+                    if (child != null) {
+                        Utils.writeUid(out, child);
+                    }
+                }
+            }
+        } catch (IOException excp) {
+            throw new GitletException("Internal error encoding tree.");
+        }
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Return the tree node decoded from its stored form BYTES.
+     */
+    public static Tree decode(byte[] bytes) {
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes))) {
+            if (in.readByte() != TREE || in.readByte() != VERSION) {
+                throw new GitletException("Unknown tree format.");
+            }
+            if (in.readByte() == LEAF) {
+                TreeMap<String, String> entries = new TreeMap<>();
+                for (int n = in.readInt(); n > 0; n -= 1) {
+                    String fileName = Utils.readString(in);
+                    entries.put(fileName, Utils.readUid(in));
+                }
+                return new Tree(entries);
+            }
+            int size = in.readInt();
+            int bitmap = in.readUnsignedShort();
+            String[] children = new String[FANOUT];
+            for (int d = 0; d < FANOUT; d += 1) {
+                if ((bitmap & (1 << d)) != 0) {
+                    children[d] = Utils.readUid(in);
+                }
+            }
+            return new Tree(children, size);
+        } catch (IOException excp) {
+            throw new GitletException("Internal error decoding tree.");
+        }
+    }
+
+    @Override
+    public String getUID() {
+        if (uid == null) {
+            uid = Utils.sha1((Object) encode());
+        }
+        return uid;
+    }
+
+    /**
+     * The serialization version of this class.
+     */
+    private static final long serialVersionUID = -2105672367450291388L;
+
+    /**
+     * The map from file names to bolb UIDs of a leaf, null for an inner
+     * node.
+     */
+    private final TreeMap<String, String> entries;
+
+    /**
+     * The UIDs of the children of an inner node, null where there is no
+     * child; null for a leaf.
+     */
+    private final String[] children;
+
+    /**
+     * The number of files in this subtree.
+     */
+    private final int size;
+
+    /**
+     * The UID of this node, computed when first needed.
+     */
+    private String uid;
+}
@@ -0,0 +1,237 @@
+package gitlet.repo;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static gitlet.Main.repo;
+
+/**
+ * This class represents a bisection in progress, the search of the
+ * commit that introduced a bug, recorded in ".gitlet/bisect" one item
+ * per line: "branch" and the branch checked out when it started, "bad"
+ * and the UID of the bad commit, then "good" and "skip" and the UIDs of
+ * the good and skipped commits.
+ * <p>
+ * The candidates are the commits reachable from the bad commit but from
+ * no good commit, following both parents of merges. The midpoint is the
+ * candidate whose number of ancestors among the candidates is the
+ * closest to half of them: whether it is good or bad, about half of the
+ * candidates are left. Skipped commits are never chosen.
+ *
+ * @author ryan ma
+ */
+
+public class Bisection {
+
+    /**
+     * The file recording the bisection.
+     */
+    public static final File BISECT_FILE = new File(".gitlet/bisect");
+
+    /**
+     * The branch following the commits to test.
+     */
+    public static final String BRANCH = "bisect";
+
+    /**
+     * Constructor function of a bisection started on BRANCH, or of no
+     * bisection if BRANCH is null.
+     */
+    public Bisection(String branch) {
+        this.branch = branch;
+    }
+
+    /**
+     * Return the bisection recorded in the repository, as updated in the
+     * current transaction of the journal.
+     */
+    public static Bisection readFromFile() {
+        if (!repo.journal.exists(BISECT_FILE)) {
+            return new Bisection(null);
+        }
+        Bisection bisection = null;
+        String content = new String(repo.journal.read(BISECT_FILE), StandardCharsets.UTF_8);
+        for (String line : content.split("\n")) {
+            int i = line.indexOf(' ');
+            if (i < 0) {
+                continue;
+            }
+            String key = line.substring(0, i);
+            String value = line.substring(i + 1);
+            switch (key) {
+                case "branch" -> bisection = new Bisection(value);
+                case "bad" -> bisection.bad = value;
+                case "good" -> bisection.goods.add(value);
+                case "skip" -> bisection.skipped.add(value);
+                default -> {
+                }
+            }
+        }
+        return bisection;
+    }
+
+    /**
+     * Record this bisection in the repository.
+     */
+    public void save() {
+        StringBuilder content = new StringBuilder();
+        content.append("branch ").append(branch).append("\n");
+        if (bad != null) {
+            content.append("bad ").append(bad).append("\n");
+        }
+        for (String uid : goods) {
+            content.append("good ").append(uid).append("\n");
+        }
+        for (String uid : skipped) {
+            content.append("skip ").append(uid).append("\n");
+        }
+        repo.journal.write(BISECT_FILE, content.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Forget the bisection recorded in the repository.
+     */
+    public static void delete() {
+        if (repo.journal.exists(BISECT_FILE)) {
+            repo.journal.delete(BISECT_FILE);
+        }
+    }
+
+    /**
+     * Return true if a bisection is in progress.
+     */
+    public boolean isStarted() {
+        return branch != null;
+    }
+
+    /**
+     * Return the branch checked out when the bisection started.
+     */
+    public String getBranch() {
+        return branch;
+    }
+
+    /**
+     * Mark the commit with full UID bad.
+     */
+    public void markBad(String uid) {
+        bad = uid;
+    }
+
+    /**
+     * Mark the commit with full UID good.
+     */
+    public void markGood(String uid) {
+        if (!goods.contains(uid)) {
+            goods.add(uid);
+        }
+    }
+
+    /**
+     * Mark the commit with full UID skipped, one that cannot be tested.
+     */
+    public void markSkipped(String uid) {
+        if (!skipped.contains(uid)) {
+            skipped.add(uid);
+        }
+    }
+
+    /**
+     * Return the full UIDs of the commits marked bad, good or skipped,
+     * which gc must keep while the bisection is in progress.
+     */
+    public List<String> getMarkedCommits() {
+        List<String> result = new ArrayList<>();
+        if (bad != null) {
+            result.add(bad);
+        }
+        result.addAll(goods);
+        result.addAll(skipped);
+        return result;
+    }
+
+    /**
+     * Return true if a bad commit and a good commit are known.
+     */
+    public boolean isReady() {
+        return bad != null && !goods.isEmpty();
+    }
+
+    /**
+     * Return the full UIDS of the candidates, newest first, the bad
+     * commit being the first. Empty if the bad commit is reachable from
+     * a good commit.
+     */
+    public List<String> getCandidates() {
+        return repo.commitGraph.findMissing(List.of(bad), goods);
+    }
+
+    /**
+     * Return the full UID of the midpoint of CANDIDATES, or null if all
+     * the candidates but the bad commit are skipped. Sets the number of
+     * candidates left to test after it.
+     */
+    public String findMidpoint(List<String> candidates) {
+        int[] counts = repo.commitGraph.countAncestors(candidates);
+        int n = candidates.size();
+        Set<String> skip = new HashSet<>(skipped);
+        String midpoint = null;
+        int best = 0;
+        for (int k = 0; k < n; k += 1) {
+            int score = Math.min(counts[k], n - counts[k]);
+            if (score > best && !skip.contains(candidates.get(k))) {
+                midpoint = candidates.get(k);
+                best = score;
+                remaining = Math.max(counts[k] - 1, n - counts[k] - 1);
+            }
+        }
+        return midpoint;
+    }
+
+    /**
+     * Return the number of candidates left to test after the last
+     * midpoint found, whether it is good or bad.
+     */
+    public int getRemaining() {
+        return remaining;
+    }
+
+    /**
+     * Return the candidates of CANDIDATES that are skipped.
+     */
+    public List<String> getSkipped(Collection<String> candidates) {
+        List<String> result = new ArrayList<>(candidates);
+        result.retainAll(skipped);
+        return result;
+    }
+
+    /**
+     * The branch checked out when the bisection started, or null.
+     */
+    private final String branch;
+
+    /**
+     * The full UID of the bad commit, or null.
+     */
+    private String bad;
+
+    /**
+     * The full UIDs of the good commits.
+     */
+    private final List<String> goods = new ArrayList<>();
+
+    /**
+     * The full UIDs of the skipped commits.
+     */
+    private final List<String> skipped = new ArrayList<>();
+
+    /**
+     * The number of candidates left to test after the last midpoint.
+     */
+    private int remaining;
+}
@@ -0,0 +1,261 @@
+package gitlet.repo;
+
+import gitlet.objects.CommitData;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+
+import static gitlet.Main.repo;
+
+/**
+ * This class finds, for each line of a file in a commit, the commit that
+ * last changed it.
+ * <p>
+ * The lines not attributed yet are carried backwards from commit to
+ * parent. Commits are visited newest first, in decreasing generation
+ * order, so that a commit is only visited after all its children and the
+ * lines reaching it from several children are handled at once. At each
+ * commit, the lines the first parent also has are passed to it, then the
+ * remaining lines the second parent has; the lines no parent has are
+ * attributed to the commit. A parent with the same bolb takes all lines
+ * without a diff, so the long runs of commits that do not touch the file
+ * only cost reading the commits. The walk stops as soon as every line is
+ * attributed.
+ * <p>
+ * Each version of the file is read and split into lines once: its lines,
+ * as numbers shared by all versions, are kept in a cache for the diffs
+ * with its child and with its parents.
+ *
+ * @author ryan ma
+ */
+
+public class Blame {
+
+    /**
+     * The total number of lines kept in the cache of line numbers.
+     */
+    static final long LINE_CACHE_SIZE = 4L << 20;
+
+    /**
+     * Constructor function attributing the lines of FILENAME in the
+     * commit with full UID, which must contain it.
+     */
+    public Blame(String uid, String fileName) {
+        this.fileName = fileName;
+        CommitData commit = repo.objectFolder.getCommit(uid);
+        String bolbUid = commit.getBolbUid(fileName);
+        lines = Diff.splitLines(repo.objectFolder.getBolb(bolbUid).getContent());
+        owners = new String[lines.size()];
+
+        int[] identity = new int[lines.size()];
+        for (int i = 0; i < identity.length; i += 1) {
+            identity[i] = i;
+        }
+        queue = new PriorityQueue<>((a, b) -> Integer.compare(
+                repo.commitGraph.getGeneration(b), repo.commitGraph.getGeneration(a)));
+        if (identity.length > 0) {
+            give(uid, new Suspects(bolbUid, identity, identity.clone(), identity.length));
+        }
+        run();
+    }
+
+    /**
+     * Return the lines of the file, each with its line terminator.
+     */
+    public List<String> getLines() {
+        return lines;
+    }
+
+    /**
+     * Return the full UID of the commit that last changed line I.
+     */
+    public String getOwner(int i) {
+        return owners[i];
+    }
+
+    /**
+     * Visit commits until every line is attributed.
+     */
+    private void run() {
+        int remaining = owners.length;
+        while (remaining > 0) {
+            String uid = queue.poll();
+            Suspects suspects = pending.remove(uid);
+            CommitData commit = repo.objectFolder.getCommit(uid);
+
+            for (String parentUid : new String[]{commit.getParentUid(), commit.getSecParentUid()}) {
+                if (parentUid == null || suspects.size == 0) {
+                    continue;
+                }
+                String parentBolb = repo.objectFolder.getCommit(parentUid).getBolbUid(fileName);
+                if (parentBolb == null) {
+                    continue;
+                }
+                if (parentBolb.equals(suspects.bolbUid)) {
+                    give(parentUid, suspects.moveTo(parentBolb));
+                    continue;
+                }
+                int[] matches = Diff.match(getNumbers(suspects.bolbUid), getNumbers(parentBolb));
+                give(parentUid, suspects.split(matches, parentBolb));
+            }
+
+            for (int i = 0; i < suspects.size; i += 1) {
+                owners[suspects.origins[i]] = uid;
+            }
+            remaining -= suspects.size;
+        }
+    }
+
+    /**
+     * Pass SUSPECTS, if any, to the commit with full UID, queueing it the
+     * first time.
+     */
+    private void give(String uid, Suspects suspects) {
+        if (suspects.size == 0) {
+            return;
+        }
+        Suspects waiting = pending.get(uid);
+        if (waiting == null) {
+            pending.put(uid, suspects);
+            queue.add(uid);
+        } else {
+            waiting.addAll(suspects);
+        }
+    }
+
+    /**
+     * Return the lines of the bolb with full UID as numbers, from the
+     * cache if possible.
+     */
+    private int[] getNumbers(String bolbUid) {
+        int[] result = lineCache.get(bolbUid);
+        if (result == null) {
+            byte[] content = repo.objectFolder.getBolb(bolbUid).getContent();
+            result = Diff.number(Diff.splitLines(content), numbers);
+            lineCache.put(bolbUid, result);
+        }
+        return result;
+    }
+
+    /**
+     * The lines of one version of the file that are not attributed yet.
+     */
+    private static class Suspects {
+        /**
+         * Constructor function with BOLBUID, the version of the file, and
+         * the first SIZE entries of LINES, line indices in that version,
+         * and ORIGINS, the indices of the same lines in the blamed file.
+         */
+        Suspects(String bolbUid, int[] lines, int[] origins, int size) {
+            this.bolbUid = bolbUid;
+            this.lines = lines;
+            this.origins = origins;
+            this.size = size;
+        }
+
+        /**
+         * Return all the lines, unchanged in version PARENTBOLB, leaving
+         * none here.
+         */
+        Suspects moveTo(String parentBolb) {
+            Suspects moved = new Suspects(parentBolb, lines, origins, size);
+            size = 0;
+            return moved;
+        }
+
+        /**
+         * Return the lines matched in version PARENTBOLB, where line i of
+         * this version is line MATCHES[i], and keep the others here.
+         */
+        Suspects split(int[] matches, String parentBolb) {
+            int[] passedLines = new int[size];
+            int[] passedOrigins = new int[size];
+            int passed = 0;
+            int kept = 0;
+            for (int i = 0; i < size; i += 1) {
+                int match = matches[lines[i]];
+                if (match >= 0) {
+                    passedLines[passed] = match;
+                    passedOrigins[passed] = origins[i];
+                    passed += 1;
+                } else {
+                    lines[kept] = lines[i];
+                    origins[kept] = origins[i];
+                    kept += 1;
+                }
+            }
+            size = kept;
+            return new Suspects(parentBolb, passedLines, passedOrigins, passed);
+        }
+
+        /**
+         * Add the lines of OTHER, of the same version.
+         */
+        void addAll(Suspects other) {
+            lines = Arrays.copyOf(lines, size + other.size);
+            origins = Arrays.copyOf(origins, size + other.size);
+            System.arraycopy(other.lines, 0, lines, size, other.size);
+            System.arraycopy(other.origins, 0, origins, size, other.size);
+            size += other.size;
+        }
+
+        /**
+         * The version of the file.
+         */
+        private final String bolbUid;
+
+        /**
+         * The indices of the lines in this version.
+         */
+        private int[] lines;
+
+        /**
+         * The indices of the same lines in the blamed file.
+         */
+        private int[] origins;
+
+        /**
+         * The number of lines.
+         */
+        private int size;
+    }
+
+    /**
+     * The blamed file.
+     */
+    private final String fileName;
+
+    /**
+     * The lines of the blamed file.
+     */
+    private final List<String> lines;
+
+    /**
+     * The full UID of the commit that last changed each line.
+     */
+    private final String[] owners;
+
+    /**
+     * The commits to visit, newest first.
+     */
+    private final PriorityQueue<String> queue;
+
+    /**
+     * The lines not attributed yet waiting at each queued commit.
+     */
+    private final Map<String, Suspects> pending = new HashMap<>();
+
+    /**
+     * The numbers of all distinct lines of the versions read.
+     */
+    private final Map<String, Integer> numbers = new HashMap<>();
+
+    /**
+     * LRU cache from bolb UID to its lines as numbers.
+     */
+    private final ObjectCache<int[]> lineCache =
+            new ObjectCache<>("lines", LINE_CACHE_SIZE, numbers -> numbers.length);
+}
@@ -1,7 +1,11 @@
 package gitlet.repo;
 
+import gitlet.Utils;
 import gitlet.objects.CommitData;
 
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.Queue;
 
@@ -10,6 +14,11 @@ import static gitlet.Main.repo;
 /**
  * This class represents the ".gitlet/refs/heads" folder.
  * It records the current head UID of each branch.
+ * <p>
+ * The remote branches "REMOTE/BRANCH" set by fetch are kept apart, in
+ * the folder REMOTES_FOLDER/REMOTE, so they are not listed with the
+ * branches of this repository. A name with a "/" is always a remote
+ * branch; the branches of this repository cannot contain one.
  *
  * @author ryan ma
  */
@@ -21,43 +30,103 @@ public class BranchFolder extends Folder {
      */
     public static final String FOLDER_NAME = ".gitlet/refs/heads";
 
+    /**
+     * Folder for storing the HEAD UID of each remote branch, in a folder
+     * per remote.
+     */
+    public static final String REMOTES_FOLDER = ".gitlet/refs/remotes";
+
     public BranchFolder() {
         super(FOLDER_NAME);
     }
 
     /**
-     * Return a list of all branches.
+     * Return a sorted list of all branches of this repository. Lock files
+     * of branch heads being updated by another process are skipped.
      */
     public List<String> getAllBranches() {
-        return getAllFileName();
+        List<String> branches = new ArrayList<>(getAllFileName());
+        branches.removeIf(name -> name.endsWith(Journal.LOCK_SUFFIX));
+        Collections.sort(branches);
+        return branches;
+    }
+
+    /**
+     * Return a sorted list of all remote branches "REMOTE/BRANCH" fetched
+     * from each remote.
+     */
+    public List<String> getRemoteBranches() {
+        List<String> branches = new ArrayList<>();
+        File[] remotes = new File(REMOTES_FOLDER).listFiles(File::isDirectory);
+        if (remotes != null) {
+            for (File remote : remotes) {
+                for (String branch : Utils.plainFilenamesIn(remote)) {
+                    branches.add(remote.getName() + "/" + branch);
+                }
+            }
+        }
+        branches.removeIf(name -> name.endsWith(Journal.LOCK_SUFFIX));
+        Collections.sort(branches);
+        return branches;
+    }
+
+    /**
+     * Return the branches of this repository followed by the remote
+     * branches: every ref whose commits must be kept.
+     */
+    public List<String> getAllRefs() {
+        List<String> refs = getAllBranches();
+        refs.addAll(getRemoteBranches());
+        return refs;
+    }
+
+    /**
+     * Return true if BRANCH may name a branch of this repository.
+     */
+    public static boolean isValidName(String branch) {
+        return !branch.isEmpty() && !branch.equals(".")
+                && !branch.contains("/") && !branch.contains("\\")
+                && !branch.contains(File.separator) && !branch.contains("..")
+                && !branch.endsWith(Journal.LOCK_SUFFIX);
+    }
+
+    /**
+     * Return the file of the branch or remote branch with the given name.
+     */
+    @Override
+    public File getFile(String branchName) {
+        if (branchName.contains("/")) {
+            return Utils.join(REMOTES_FOLDER, branchName);
+        }
+        return super.getFile(branchName);
     }
 
     /**
      * Return true if this repository contains the given branch.
      */
     public boolean hasBranch(String branch) {
-        return checkExist(branch);
+        return existsJournaled(branch);
     }
 
     /**
      * Return the HEAD UID of the branch.
      */
     public String getHeadUid(String branchName) {
-        return readFromFile(branchName);
+        return readJournaled(branchName);
     }
 
     /**
      * Set the HEAD UID of the branch.
      */
     public void setHeadUid(String branchName, String uid) {
-        writeToFile(branchName, uid);
+        writeJournaled(branchName, uid);
     }
 
     /**
      * Delete the branch with the given name.
      */
     public void deleteBranch(String branchName) {
-        deleteFile(branchName);
+        deleteJournaled(branchName);
     }
 
     /**
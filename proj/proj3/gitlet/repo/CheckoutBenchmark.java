@@ -0,0 +1,158 @@
+package gitlet.repo;
+
+import gitlet.Main;
+import gitlet.Utils;
+import gitlet.objects.CommitData;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import static gitlet.Main.repo;
+
+/**
+ * This class measures checking out a branch that changes a few files of
+ * a large tree, against rewriting every file of the tree as checkout did
+ * before it compared the two commits.
+ * <p>
+ * Usage: java gitlet.repo.CheckoutBenchmark [--files=N] [--changed=K] [--rounds=R]
+ * <p>
+ * It must run in an empty directory, where it creates a repository whose
+ * master branch has N files and whose other branch changes K of them.
+ * Each round checks out the other branch and master again; then each
+ * round writes all the files of master, which changes their modification
+ * times and is therefore done last. The fastest of the rounds is
+ * reported. Checkout is timed as a whole command, hashing included,
+ * while the rewrite only counts the writes.
+ *
+ * @author ryan ma
+ */
+
+public class CheckoutBenchmark {
+
+    /**
+     * The default number of files.
+     */
+    static final int FILES = 50000;
+
+    /**
+     * The default number of files changed by the other branch.
+     */
+    static final int CHANGED = 100;
+
+    /**
+     * The default number of rounds.
+     */
+    static final int ROUNDS = 5;
+
+    /**
+     * Run the benchmark with ARGS.
+     */
+    public static void main(String[] args) throws IOException {
+        int files = FILES;
+        int changed = CHANGED;
+        int rounds = ROUNDS;
+        for (String arg : args) {
+            if (arg.startsWith("--files=")) {
+                files = Integer.parseInt(arg.substring("--files=".length()));
+            } else if (arg.startsWith("--changed=")) {
+                changed = Integer.parseInt(arg.substring("--changed=".length()));
+            } else if (arg.startsWith("--rounds=")) {
+                rounds = Integer.parseInt(arg.substring("--rounds=".length()));
+            } else {
+                System.err.println("Usage: java gitlet.repo.CheckoutBenchmark"
+                        + " [--files=N] [--changed=K] [--rounds=R]");
+                System.exit(1);
+            }
+        }
+        List<String> existing = repo.workFolder.getAllFileName();
+        if (Repo.GITLET_FOLDER.exists() || existing != null && !existing.isEmpty()) {
+            System.err.println("Run the benchmark in an empty directory.");
+            System.exit(1);
+        }
+
+        List<String> fileNames = new ArrayList<>();
+        for (int i = 0; i < files; i += 1) {
+            fileNames.add(String.format("f%06d.txt", i));
+        }
+        List<String> changedNames = new ArrayList<>();
+        for (int i = 0; i < changed; i += 1) {
+            changedNames.add(fileNames.get((int) ((long) i * files / changed)));
+        }
+
+        long start = System.nanoTime();
+        run("init");
+        commit(fileNames, "base", "");
+        run("branch", "other");
+        run("checkout", "other");
+        commit(changedNames, "changed", "changed\n");
+        run("checkout", "master");
+        System.out.printf("%d files, %d changed: repository built in %.1f s%n",
+                files, changed, (System.nanoTime() - start) / 1e9);
+
+        long bestCheckout = Long.MAX_VALUE;
+        long bestRewrite = Long.MAX_VALUE;
+        String stats = null;
+        for (int round = 0; round < rounds; round += 1) {
+            start = System.nanoTime();
+            run("checkout", "other");
+            stats = repo.workFolder.getCheckoutStats();
+            run("checkout", "master");
+            bestCheckout = Math.min(bestCheckout, (System.nanoTime() - start) / 2);
+        }
+        for (int round = 0; round < rounds; round += 1) {
+            start = System.nanoTime();
+            rewrite(repo.getCurrCommit());
+            bestRewrite = Math.min(bestRewrite, System.nanoTime() - start);
+        }
+        System.out.printf("checkout:    %8.1f ms, whole command (%s)%n", bestCheckout / 1e6, stats);
+        System.out.printf("rewrite all: %8.1f ms, writes only (%d files written)%n",
+                bestRewrite / 1e6, files);
+    }
+
+    /**
+     * Run the gitlet command with ARGS, forgetting the state of the
+     * previous command first as the daemon does.
+     */
+    static void run(String... args) throws IOException {
+        repo.refresh();
+        Main.main(args);
+    }
+
+    /**
+     * Write FILENAMES, each with its name and EXTRA as content, stage
+     * them and commit them with MESSAGE. They are staged directly rather
+     * than by one add command each, which would write the index each time.
+     */
+    static void commit(List<String> fileNames, String message, String extra)
+            throws IOException {
+        repo.refresh();
+        repo.journal.begin();
+        for (String fileName : fileNames) {
+            File file = repo.workFolder.getFile(fileName);
+            Utils.writeContents(file, fileName + "\n" + extra);
+            String uid = repo.workFolder.getUidOfFile(fileName);
+            repo.objectFolder.saveBolb(file, uid, null);
+            repo.getStage().additionMap.put(fileName, uid);
+        }
+        repo.getStage().save();
+        repo.journal.commit();
+        run("commit", message);
+    }
+
+    /**
+     * Write every file of COMMIT, in parallel, as checkout did before
+     * comparing the current commit with the one checked out.
+     */
+    private static void rewrite(CommitData commit) {
+        commit.getAllFileName().parallelStream().forEach(fileName -> {
+            try {
+                repo.workFolder.checkoutFileWithCommit(commit, fileName);
+            } catch (IOException excp) {
+                throw new UncheckedIOException(excp);
+            }
+        });
+    }
+}
@@ -0,0 +1,96 @@
+package gitlet.repo;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * This class splits a stream into content-defined chunks.
+ * <p>
+ * A gear hash rolls over the bytes of the current chunk: each byte shifts
+ * the hash left and adds a fixed pseudo-random value for the byte, so the
+ * hash only depends on the last 64 bytes. A chunk ends where the high
+ * bits of the hash, which depend on the most bytes, are all zero. Since
+ * boundaries depend on content rather than on offsets, inserting or
+ * appending bytes only changes the chunks around the edit, and the other
+ * chunks keep their UIDs.
+ * Chunks are between MIN_CHUNK and MAX_CHUNK bytes long, AVG_CHUNK bytes
+ * on average.
+ *
+ * @author ryan ma
+ */
+
+class Chunker {
+
+    /**
+     * The smallest chunk, except for the last one.
+     */
+    static final int MIN_CHUNK = 16 << 10;
+
+    /**
+     * The average chunk size, a power of two.
+     */
+    static final int AVG_CHUNK = 64 << 10;
+
+    /**
+     * The largest chunk.
+     */
+    static final int MAX_CHUNK = 256 << 10;
+
+    /**
+     * A boundary is where the hash has these bits all zero: as many high
+     * bits as make one position in AVG_CHUNK a boundary.
+     */
+    private static final long MASK =
+            (AVG_CHUNK - 1L) << Long.numberOfLeadingZeros(AVG_CHUNK - 1L);
+
+    /**
+     * The pseudo-random value of each byte, fixed so that every
+     * repository cuts the same content at the same places.
+     */
+    private static final long[] GEAR = new long[256];
+
+    static {
+        long state = 0x6769746c6574L;
+        for (int i = 0; i < GEAR.length; i += 1) {
+            /* SplitMix64. */
+            state += 0x9e3779b97f4a7c15L;
+            long z = state;
+            z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+            z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+            GEAR[i] = z ^ (z >>> 31);
+        }
+    }
+
+    /**
+     * Receives the chunks of a stream in order.
+     */
+    interface ChunkSink {
+        /**
+         * Receive the chunk in the first LENGTH bytes of BUFFER.
+         */
+        void accept(byte[] buffer, int length) throws IOException;
+    }
+
+    /**
+     * Split all bytes of IN into chunks and pass them to SINK. An empty
+     * stream has no chunks.
+     */
+    static void split(InputStream in, ChunkSink sink) throws IOException {
+        byte[] chunk = new byte[MAX_CHUNK];
+        int length = 0;
+        long hash = 0;
+        int b;
+        while ((b = in.read()) >= 0) {
+            chunk[length++] = (byte) b;
+            hash = (hash << 1) + GEAR[b];
+            if (length == MAX_CHUNK || (length >= MIN_CHUNK && (hash & MASK) == 0)) {
+                sink.accept(chunk, length);
+                length = 0;
+                hash = 0;
+            }
+        }
+        if (length > 0) {
+            sink.accept(chunk, length);
+        }
+    }
+}
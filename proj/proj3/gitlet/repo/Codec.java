@@ -0,0 +1,159 @@
+package gitlet.repo;
+
+import gitlet.objects.GitletException;
+
+import java.io.ByteArrayOutputStream;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * This enum lists the codecs that compress the content of stored bolbs.
+ * Each codec has a one-byte id, stored in front of the bolbs it
+ * compressed, so that any bolb can be read whatever codec the repository
+ * is set to now.
+ *
+ * @author ryan ma
+ */
+
+public enum Codec {
+
+    /**
+     * No compression.
+     */
+    NONE((byte) 0, "none"),
+
+    /**
+     * zlib (java.util.zip.Deflater), the default: about 3 to 5 times
+     * smaller source files.
+     */
+    DEFLATE((byte) 1, "deflate"),
+
+    /**
+     * LZ4 blocks: a lower ratio than deflate, but several times faster to
+     * compress and to decompress.
+     */
+    LZ4((byte) 2, "lz4");
+
+    /**
+     * Constructor function with ID and NAME.
+     */
+    Codec(byte id, String name) {
+        this.id = id;
+        this.name = name;
+    }
+
+    /**
+     * Return the codec called NAME, or null if there is none.
+     */
+    public static Codec forName(String name) {
+        for (Codec codec : values()) {
+            if (codec.name.equals(name)) {
+                return codec;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Return the codec with ID. Throws a GitletException if there is none.
+     */
+    static Codec forId(byte id) {
+        for (Codec codec : values()) {
+            if (codec.id == id) {
+                return codec;
+            }
+        }
+        throw new GitletException("Unknown compression of a stored object.");
+    }
+
+    /**
+     * Return the id of this codec.
+     */
+    byte getId() {
+        return id;
+    }
+
+    /**
+     * Return the name of this codec.
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Return CONTENT compressed with this codec.
+     */
+    byte[] compress(byte[] content) {
+        switch (this) {
+            case DEFLATE -> {
+                Deflater deflater = new Deflater();
+                deflater.setInput(content);
+                deflater.finish();
+                ByteArrayOutputStream out = new ByteArrayOutputStream(content.length / 2 + 64);
+                byte[] buffer = new byte[8192];
+                while (!deflater.finished()) {
+                    out.write(buffer, 0, deflater.deflate(buffer));
+                }
+                deflater.end();
+                return out.toByteArray();
+            }
+            case LZ4 -> {
+                return Lz4.compress(content);
+            }
+            default -> {
+                return content;
+            }
+        }
+    }
+
+    /**
+     * Return the RAWLENGTH bytes of content decompressed from the LENGTH
+     * bytes of BYTES starting at START. Throws a GitletException if they
+     * are corrupt.
+     */
+    byte[] decompress(byte[] bytes, int start, int length, int rawLength) {
+        try {
+            switch (this) {
+                case DEFLATE -> {
+                    Inflater inflater = new Inflater();
+                    inflater.setInput(bytes, start, length);
+                    byte[] content = new byte[rawLength];
+                    int done = 0;
+                    while (done < rawLength && !inflater.finished()) {
+                        int n = inflater.inflate(content, done, rawLength - done);
+                        if (n == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                            break;
+                        }
+                        done += n;
+                    }
+                    inflater.end();
+                    if (done != rawLength) {
+                        throw new DataFormatException("wrong length");
+                    }
+                    return content;
+                }
+                case LZ4 -> {
+                    return Lz4.decompress(bytes, start, length, rawLength);
+                }
+                default -> {
+                    byte[] content = new byte[length];
+                    System.arraycopy(bytes, start, content, 0, length);
+                    return content;
+                }
+            }
+        } catch (DataFormatException | IllegalArgumentException excp) {
+            throw new GitletException("Corrupt object: " + excp.getMessage());
+        }
+    }
+
+    /**
+     * The id stored in front of compressed bolbs.
+     */
+    private final byte id;
+
+    /**
+     * The name of this codec in the configuration.
+     */
+    private final String name;
+}
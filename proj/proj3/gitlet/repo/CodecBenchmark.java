@@ -0,0 +1,128 @@
+package gitlet.repo;
+
+import gitlet.Utils;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * This class measures the store and read throughput of each codec
+ * against its compression ratio, on the files of real source trees.
+ * <p>
+ * Usage: java gitlet.repo.CodecBenchmark [--rounds=N] DIR...
+ * <p>
+ * Every regular file under the DIRs, except those in ".gitlet"
+ * directories, is a bolb. Storing encodes each bolb as the object folder
+ * does and writes it to its own file in a temporary directory; reading
+ * reads each file back and decodes it. Each round stores and reads all
+ * bolbs, and the fastest of the rounds is reported, so that the first
+ * rounds warm up the JIT compiler.
+ *
+ * @author ryan ma
+ */
+
+public class CodecBenchmark {
+
+    /**
+     * The default number of rounds.
+     */
+    static final int ROUNDS = 5;
+
+    /**
+     * Run the benchmark with ARGS.
+     */
+    public static void main(String[] args) throws IOException {
+        int rounds = ROUNDS;
+        List<File> dirs = new ArrayList<>();
+        for (String arg : args) {
+            if (arg.startsWith("--rounds=")) {
+                rounds = Integer.parseInt(arg.substring("--rounds=".length()));
+            } else {
+                dirs.add(new File(arg));
+            }
+        }
+        if (dirs.isEmpty()) {
+            System.err.println("Usage: java gitlet.repo.CodecBenchmark [--rounds=N] DIR...");
+            System.exit(1);
+        }
+
+        List<byte[]> bolbs = new ArrayList<>();
+        long rawSize = 0;
+        for (File dir : dirs) {
+            for (File file : listFiles(dir)) {
+                byte[] content = Utils.readContents(file);
+                bolbs.add(content);
+                rawSize += content.length;
+            }
+        }
+        System.out.printf("%d files, %.1f MB%n", bolbs.size(), rawSize / 1e6);
+        System.out.printf("%-8s %10s %7s %12s %12s%n", "codec", "stored MB", "ratio",
+                "store MB/s", "read MB/s");
+
+        Path tmp = Files.createTempDirectory("gitlet-bench-");
+        try {
+            for (Codec codec : Codec.values()) {
+                run(codec, bolbs, rawSize, rounds, tmp);
+            }
+        } finally {
+            try (Stream<Path> paths = Files.walk(tmp)) {
+                paths.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+            }
+        }
+    }
+
+    /**
+     * Store and read BOLBS, of RAWSIZE bytes in total, with CODEC in
+     * ROUNDS rounds under directory TMP, and print the results.
+     */
+    private static void run(Codec codec, List<byte[]> bolbs, long rawSize, int rounds, Path tmp)
+            throws IOException {
+        long bestStore = Long.MAX_VALUE;
+        long bestRead = Long.MAX_VALUE;
+        long storedSize = 0;
+        for (int round = 0; round < rounds; round += 1) {
+            storedSize = 0;
+            long start = System.nanoTime();
+            for (int i = 0; i < bolbs.size(); i += 1) {
+                byte[] stored = ObjectFolder.encodeBolb(bolbs.get(i), codec);
+                Files.write(tmp.resolve(Integer.toString(i)), stored);
+                storedSize += stored.length;
+            }
+            bestStore = Math.min(bestStore, System.nanoTime() - start);
+
+            start = System.nanoTime();
+            for (int i = 0; i < bolbs.size(); i += 1) {
+                byte[] stored = Files.readAllBytes(tmp.resolve(Integer.toString(i)));
+                byte[] content = ObjectFolder.decodeBolb(null, stored).getContent();
+                if (!Arrays.equals(content, bolbs.get(i))) {
+                    throw new IllegalStateException(codec.getName() + " changed a file");
+                }
+            }
+            bestRead = Math.min(bestRead, System.nanoTime() - start);
+        }
+        System.out.printf("%-8s %10.2f %7.2f %12.1f %12.1f%n", codec.getName(),
+                storedSize / 1e6, (double) rawSize / storedSize,
+                rawSize / 1e6 / (bestStore / 1e9), rawSize / 1e6 / (bestRead / 1e9));
+    }
+
+    /**
+     * Return the regular files under DIR, outside ".gitlet" directories,
+     * in a fixed order.
+     */
+    private static List<File> listFiles(File dir) throws IOException {
+        try (Stream<Path> paths = Files.walk(dir.toPath())) {
+            return paths.filter(Files::isRegularFile)
+                    .filter(path -> !path.toString().contains(".gitlet"))
+                    .sorted()
+                    .map(Path::toFile)
+                    .toList();
+        }
+    }
+}
@@ -0,0 +1,588 @@
+package gitlet.repo;
+
+import gitlet.Utils;
+import gitlet.objects.CommitData;
+import gitlet.objects.GitletException;
+
+import java.io.*;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+
+import static gitlet.Main.repo;
+
+/**
+ * This class represents the ".gitlet/commit-graph" file.
+ * It records, for each commit, the indices of its parents, its generation
+ * number and its timestamp, so that history can be walked without
+ * deserializing commits. Entries are appended in the order commits are
+ * created, so parents always come before their children.
+ * <p>
+ * The generation number of a root commit is 1, and the generation number
+ * of any other commit is one more than the largest generation number of
+ * its parents. A commit can only be an ancestor of commits with a larger
+ * generation number.
+ * <p>
+ * The graph file is only appended to through the journal, by commands
+ * that create commits, so its entries are written under the lock of the
+ * journal and only if the command succeeds. A commit missing from the
+ * graph, for example one created before the graph existed, is read from
+ * the object folder and added to the graph in memory only; the next
+ * command creating a commit also appends it to the file.
+ *
+ * @author ryan ma
+ */
+
+public class CommitGraph {
+
+    /**
+     * File for the commit graph.
+     */
+    public static final File GRAPH_FILE = new File(".gitlet/commit-graph");
+
+    /**
+     * Magic header of the commit graph file.
+     */
+    static final int MAGIC = 0x43475048;
+
+    /**
+     * Version of the commit graph format.
+     */
+    static final int VERSION = 1;
+
+    /**
+     * Length of the header: magic and version.
+     */
+    static final int HEADER_WIDTH = 8;
+
+    /**
+     * Length of an entry: raw SHA-1, two parent indices, generation
+     * number and timestamp.
+     */
+    static final int ENTRY_WIDTH = 20 + 4 + 4 + 4 + 8;
+
+    /**
+     * Index of a missing parent.
+     */
+    static final int NONE = -1;
+
+    /**
+     * Flag of a commit reachable from the commits wanted by findMissing.
+     */
+    private static final byte WANT = 1;
+
+    /**
+     * Flag of a commit reachable from the common commits of findMissing.
+     */
+    private static final byte COMMON = 2;
+
+    /**
+     * Flag of a commit queued by findMissing.
+     */
+    private static final byte QUEUED = 4;
+
+    CommitGraph() {
+    }
+
+    /**
+     * Record COMMIT in the commit graph, in the current transaction of the
+     * journal. Its parents must already be in the graph or in the object
+     * folder.
+     */
+    public void add(CommitData commit) throws IOException {
+        load();
+        String uid = commit.getUID();
+        if (!index.containsKey(uid)) {
+            int p1 = indexOf(commit.getParentUid());
+            int p2 = indexOf(commit.getSecParentUid());
+            append(uid, p1, p2, commit.getTimestamp());
+        }
+        flush();
+    }
+
+    /**
+     * Forget the loaded graph if the graph file changed since it was
+     * loaded, because another process appended commits to it or the
+     * transaction that appended the last commits failed.
+     */
+    public void refresh() {
+        if (uids != null && (GRAPH_FILE.isFile() ? GRAPH_FILE.length() : -1) != fileLength) {
+            uids = null;
+        }
+    }
+
+    /**
+     * Return true if the commit with full UID ANCESTOR is UID or one of
+     * its ancestors. The walk skips commits whose generation number is
+     * not larger than the one of ANCESTOR.
+     */
+    public boolean isAncestor(String ancestor, String uid) {
+        int target = indexOf(ancestor);
+        int start = indexOf(uid);
+        BitSet visited = new BitSet(size);
+        Deque<Integer> stack = new ArrayDeque<>();
+        stack.push(start);
+
+        while (!stack.isEmpty()) {
+            int i = stack.pop();
+            if (i == target) {
+                return true;
+            }
+            if (visited.get(i) || generation[i] <= generation[target]) {
+                continue;
+            }
+            visited.set(i);
+            for (int p : new int[]{parent1[i], parent2[i]}) {
+                if (p != NONE) {
+                    stack.push(p);
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Return the full UID of the split point of the commits with full
+     * UIDS CURR and OTHER. If one is an ancestor of the other, it is the
+     * split point. Otherwise the split point is the first commit reached
+     * by a breadth-first walk from OTHER that is an ancestor of CURR.
+     */
+    public String findMergeBase(String curr, String other) {
+        if (isAncestor(other, curr)) {
+            return other;
+        }
+        if (isAncestor(curr, other)) {
+            return curr;
+        }
+
+        BitSet ancestorsOfCurr = new BitSet(size);
+        for (int i : walk(indexOf(curr))) {
+            ancestorsOfCurr.set(i);
+        }
+        for (int i : walk(indexOf(other))) {
+            if (ancestorsOfCurr.get(i)) {
+                return uids.get(i);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Return the full UIDs of the commit with full UID and all its
+     * ancestors, in breadth-first order, each commit once.
+     */
+    public List<String> getHistory(String uid) {
+        List<String> history = new ArrayList<>();
+        for (int i : walk(indexOf(uid))) {
+            history.add(uids.get(i));
+        }
+        return history;
+    }
+
+    /**
+     * Return the generation number of the commit with full UID.
+     */
+    public int getGeneration(String uid) {
+        int i = indexOf(uid);
+        return generation[i];
+    }
+
+    /**
+     * Return the timestamp, in milliseconds, of the commit with full UID.
+     */
+    public long getTimestamp(String uid) {
+        int i = indexOf(uid);
+        return timestamp[i];
+    }
+
+    /**
+     * Return the full UID of the first parent of the commit with full
+     * UID, or null if it is a root commit.
+     */
+    public String getParentUid(String uid) {
+        int i = indexOf(uid);
+        int p = parent1[i];
+        return p == NONE ? null : uids.get(p);
+    }
+
+    /**
+     * Return the full UID of the second parent of the commit with full
+     * UID, or null if it is not a merge commit.
+     */
+    public String getSecParentUid(String uid) {
+        int i = indexOf(uid);
+        int p = parent2[i];
+        return p == NONE ? null : uids.get(p);
+    }
+
+    /**
+     * Return the full UIDs of the commits reachable from WANTS that are
+     * not reachable from COMMON, newest first. Commits are painted from
+     * both sides in decreasing generation order, so that a commit is
+     * only popped after all its children; the walk stops as soon as no
+     * commit painted only from WANTS is left, without walking the common
+     * history.
+     */
+    public List<String> findMissing(Collection<String> wants, Collection<String> common) {
+        List<Integer> wantIndices = new ArrayList<>();
+        for (String uid : wants) {
+            wantIndices.add(indexOf(uid));
+        }
+        List<Integer> commonIndices = new ArrayList<>();
+        for (String uid : common) {
+            commonIndices.add(indexOf(uid));
+        }
+
+        byte[] flags = new byte[size];
+        PriorityQueue<Integer> queue = new PriorityQueue<>(
+            (a, b) -> Integer.compare(generation[b], generation[a]));
+        int[] wantOnly = new int[1];
+        for (int i : commonIndices) {
+            paint(i, COMMON, flags, queue, wantOnly);
+        }
+        for (int i : wantIndices) {
+            paint(i, WANT, flags, queue, wantOnly);
+        }
+
+        List<String> missing = new ArrayList<>();
+        while (wantOnly[0] > 0) {
+            int i = queue.poll();
+            byte flag = (flags[i] & COMMON) != 0 ? COMMON : WANT;
+            if (flag == WANT) {
+                wantOnly[0] -= 1;
+                missing.add(uids.get(i));
+            }
+            for (int p : new int[]{parent1[i], parent2[i]}) {
+                if (p != NONE) {
+                    paint(p, flag, flags, queue, wantOnly);
+                }
+            }
+        }
+        return missing;
+    }
+
+    /**
+     * Return, for each of the commits with full UIDS, the number of the
+     * commits of UIDS that are it or one of its ancestors. UIDS must be in
+     * decreasing generation order and contain every commit on a path
+     * between two of its commits, as the commits returned by findMissing
+     * do. Then a commit with one parent in UIDS has one more than its
+     * parent, and only the merges of two commits of UIDS are walked.
+     */
+    public int[] countAncestors(List<String> uids) {
+        int n = uids.size();
+        int[] indices = new int[n];
+        Map<Integer, Integer> position = new HashMap<>();
+        for (int k = 0; k < n; k += 1) {
+            indices[k] = indexOf(uids.get(k));
+            position.put(indices[k], k);
+        }
+
+        int[] counts = new int[n];
+        for (int k = n - 1; k >= 0; k -= 1) {
+            Integer a = position.get(parent1[indices[k]]);
+            Integer b = position.get(parent2[indices[k]]);
+            if (a == null && b == null) {
+                counts[k] = 1;
+            } else if (a == null || b == null) {
+                counts[k] = counts[a == null ? b : a] + 1;
+            } else {
+                counts[k] = countReachable(indices[k], position);
+            }
+        }
+        return counts;
+    }
+
+    /**
+     * Return the number of commits that are the commit at index START or
+     * its ancestors and have a POSITION.
+     */
+    private int countReachable(int start, Map<Integer, Integer> position) {
+        BitSet visited = new BitSet(size);
+        Deque<Integer> stack = new ArrayDeque<>();
+        stack.push(start);
+        visited.set(start);
+        int count = 0;
+
+        while (!stack.isEmpty()) {
+            int i = stack.pop();
+            count += 1;
+            for (int p : new int[]{parent1[i], parent2[i]}) {
+                if (p != NONE && !visited.get(p) && position.containsKey(p)) {
+                    visited.set(p);
+                    stack.push(p);
+                }
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Add FLAG to the flags of the commit at index I in FLAGS, queueing it
+     * in QUEUE the first time, and keep WANTONLY[0], the number of queued
+     * commits painted only with WANT, up to date.
+     */
+    private static void paint(int i, byte flag, byte[] flags, PriorityQueue<Integer> queue,
+                              int[] wantOnly) {
+        boolean wasWantOnly = flags[i] == (WANT | QUEUED);
+        flags[i] |= flag;
+        if ((flags[i] & QUEUED) == 0) {
+            flags[i] |= QUEUED;
+            queue.add(i);
+        }
+        boolean isWantOnly = flags[i] == (WANT | QUEUED);
+        wantOnly[0] += (isWantOnly ? 1 : 0) - (wasWantOnly ? 1 : 0);
+    }
+
+    /**
+     * Return the indices of the commit at START and all its ancestors,
+     * in breadth-first order (first parent before second parent).
+     */
+    private int[] walk(int start) {
+        BitSet visited = new BitSet(size);
+        int[] queue = new int[size];
+        int head = 0, tail = 0;
+        queue[tail++] = start;
+        visited.set(start);
+
+        while (head < tail) {
+            int i = queue[head++];
+            for (int p : new int[]{parent1[i], parent2[i]}) {
+                if (p != NONE && !visited.get(p)) {
+                    visited.set(p);
+                    queue[tail++] = p;
+                }
+            }
+        }
+        return Arrays.copyOf(queue, tail);
+    }
+
+    /**
+     * Return the index of the commit with full UID, or NONE if UID is
+     * null. A commit missing from the graph is added to the graph in
+     * memory with its ancestors from the object folder; the file is not
+     * written.
+     */
+    private int indexOf(String uid) {
+        if (uid == null) {
+            return NONE;
+        }
+        load();
+        Integer i = index.get(uid);
+        if (i == null) {
+            importCommits(uid);
+            i = index.get(uid);
+        }
+        return i;
+    }
+
+    /**
+     * Append the commit with full UID and its missing ancestors, read
+     * from the object folder, parents first.
+     */
+    private void importCommits(String uid) {
+        Deque<CommitData> stack = new ArrayDeque<>();
+        stack.push(readCommit(uid));
+
+        while (!stack.isEmpty()) {
+            CommitData commit = stack.peek();
+            if (index.containsKey(commit.getUID())) {
+                stack.pop();
+                continue;
+            }
+            boolean ready = true;
+            for (String p : new String[]{commit.getParentUid(), commit.getSecParentUid()}) {
+                if (p != null && !index.containsKey(p)) {
+                    stack.push(readCommit(p));
+                    ready = false;
+                }
+            }
+            if (ready) {
+                stack.pop();
+                append(commit.getUID(), parentIndex(commit.getParentUid()),
+                        parentIndex(commit.getSecParentUid()), commit.getTimestamp());
+            }
+        }
+    }
+
+    /**
+     * Return the index of parent UID, which must be in the graph.
+     */
+    private int parentIndex(String uid) {
+        return uid == null ? NONE : index.get(uid);
+    }
+
+    /**
+     * Return the commit with full UID from the object folder.
+     */
+    private CommitData readCommit(String uid) {
+        CommitData commit = repo.objectFolder.getCommit(uid);
+        if (commit == null) {
+            throw new GitletException("No commit with that id exists.");
+        }
+        return commit;
+    }
+
+    /**
+     * Append the commit with full UID, parent indices P1 and P2 and TIME
+     * to the graph in memory.
+     */
+    private void append(String uid, int p1, int p2, long time) {
+        if (size == parent1.length) {
+            int capacity = Math.max(16, size * 2);
+            parent1 = Arrays.copyOf(parent1, capacity);
+            parent2 = Arrays.copyOf(parent2, capacity);
+            generation = Arrays.copyOf(generation, capacity);
+            timestamp = Arrays.copyOf(timestamp, capacity);
+        }
+        int gen = 1;
+        if (p1 != NONE) {
+            gen = Math.max(gen, generation[p1] + 1);
+        }
+        if (p2 != NONE) {
+            gen = Math.max(gen, generation[p2] + 1);
+        }
+        uids.add(uid);
+        index.put(uid, size);
+        parent1[size] = p1;
+        parent2[size] = p2;
+        generation[size] = gen;
+        timestamp[size] = time;
+        size += 1;
+    }
+
+    /**
+     * Append the entries not yet in the graph file to it, through the
+     * journal. The journal only appends them if the file still has the
+     * length it was loaded with; a file ending with a partial entry is
+     * rewritten whole instead.
+     */
+    private void flush() throws IOException {
+        if (flushed == size) {
+            return;
+        }
+        long length = HEADER_WIDTH + (long) flushed * ENTRY_WIDTH;
+        if (fileLength == -1 || fileLength == length) {
+            repo.journal.append(GRAPH_FILE, fileLength, encode(flushed, fileLength == -1));
+        } else {
+            repo.journal.write(GRAPH_FILE, encode(0, true));
+        }
+        flushed = size;
+        fileLength = HEADER_WIDTH + (long) size * ENTRY_WIDTH;
+    }
+
+    /**
+     * Return the entries from index FROM on, after the header of the file
+     * if HEADER.
+     */
+    private byte[] encode(int from, boolean header) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        if (header) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+        }
+        for (int i = from; i < size; i += 1) {
+            out.write(Utils.uidToBytes(uids.get(i)));
+            out.writeInt(parent1[i]);
+            out.writeInt(parent2[i]);
+            out.writeInt(generation[i]);
+            out.writeLong(timestamp[i]);
+        }
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Read the graph file, once per process. A missing file means an
+     * empty graph; a partial entry at the end of the file is ignored.
+     */
+    private void load() {
+        if (uids != null) {
+            return;
+        }
+        uids = new ArrayList<>();
+        index = new HashMap<>();
+        parent1 = new int[0];
+        parent2 = new int[0];
+        generation = new int[0];
+        timestamp = new long[0];
+        size = 0;
+        flushed = 0;
+        fileLength = GRAPH_FILE.isFile() ? GRAPH_FILE.length() : -1;
+        if (fileLength == -1) {
+            return;
+        }
+
+        long count = (fileLength - HEADER_WIDTH) / ENTRY_WIDTH;
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(
+                new FileInputStream(GRAPH_FILE)))) {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+                throw new GitletException("Bad commit graph.");
+            }
+            byte[] sha = new byte[20];
+            for (long n = 0; n < count; n += 1) {
+                in.readFully(sha);
+                int p1 = in.readInt();
+                int p2 = in.readInt();
+                in.readInt();
+                append(Utils.bytesToUid(sha), p1, p2, in.readLong());
+            }
+        } catch (IOException excp) {
+            throw new GitletException("Cannot read commit graph.");
+        }
+        flushed = size;
+    }
+
+    /**
+     * UIDs of all commits, by index.
+     */
+    private List<String> uids;
+
+    /**
+     * Map from UID to index.
+     */
+    private Map<String, Integer> index;
+
+    /**
+     * Index of the first parent of each commit, or NONE.
+     */
+    private int[] parent1;
+
+    /**
+     * Index of the second parent of each commit, or NONE.
+     */
+    private int[] parent2;
+
+    /**
+     * Generation number of each commit.
+     */
+    private int[] generation;
+
+    /**
+     * Timestamp of each commit in milliseconds.
+     */
+    private long[] timestamp;
+
+    /**
+     * Number of commits in the graph.
+     */
+    private int size;
+
+    /**
+     * Number of commits in the graph file, the first ones of the graph.
+     */
+    private int flushed;
+
+    /**
+     * Length of the graph file once the transaction appending the
+     * commits of the file commits, or -1 if it does not exist.
+     */
+    private long fileLength;
+}
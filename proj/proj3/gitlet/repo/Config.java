@@ -0,0 +1,106 @@
+package gitlet.repo;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.TreeMap;
+
+import static gitlet.Main.repo;
+
+/**
+ * This class represents the settings of a repository, recorded one per
+ * line as "key=value" in ".gitlet/config".
+ * <p>
+ * The only setting is "compression", the codec compressing the content
+ * of new bolbs: "deflate" (the default), "lz4" or "none". Bolbs already
+ * stored keep their codec.
+ *
+ * @author ryan ma
+ */
+
+public class Config {
+
+    /**
+     * The file recording the settings.
+     */
+    public static final File CONFIG_FILE = new File(".gitlet/config");
+
+    /**
+     * Key of the compression codec.
+     */
+    public static final String COMPRESSION = "compression";
+
+    /**
+     * Constructor function with SETTINGS.
+     */
+    Config(Map<String, String> settings) {
+        this.settings = new TreeMap<>(settings);
+    }
+
+    /**
+     * Return the settings recorded in the repository, as updated in the
+     * current transaction of the journal.
+     */
+    public static Config readFromFile() {
+        Map<String, String> settings = new TreeMap<>();
+        if (repo.journal.exists(CONFIG_FILE)) {
+            String content = new String(repo.journal.read(CONFIG_FILE), StandardCharsets.UTF_8);
+            for (String line : content.split("\n")) {
+                int i = line.indexOf('=');
+                if (i > 0) {
+                    settings.put(line.substring(0, i), line.substring(i + 1));
+                }
+            }
+        }
+        return new Config(settings);
+    }
+
+    /**
+     * Record these settings in the repository.
+     */
+    public void save() {
+        StringBuilder content = new StringBuilder();
+        for (Map.Entry<String, String> entry : settings.entrySet()) {
+            content.append(entry.getKey()).append("=").append(entry.getValue()).append("\n");
+        }
+        repo.journal.write(CONFIG_FILE, content.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Return true if KEY is a setting.
+     */
+    public static boolean isKey(String key) {
+        return key.equals(COMPRESSION);
+    }
+
+    /**
+     * Return the value of KEY, or its default if it is not set.
+     */
+    public String get(String key) {
+        String value = settings.get(key);
+        if (value == null && key.equals(COMPRESSION)) {
+            return Codec.DEFLATE.getName();
+        }
+        return value;
+    }
+
+    /**
+     * Set KEY to VALUE.
+     */
+    public void set(String key, String value) {
+        settings.put(key, value);
+    }
+
+    /**
+     * Return the codec compressing new bolbs.
+     */
+    public Codec getCodec() {
+        Codec codec = Codec.forName(get(COMPRESSION));
+        return codec == null ? Codec.DEFLATE : codec;
+    }
+
+    /**
+     * The settings by key.
+     */
+    private final Map<String, String> settings;
+}
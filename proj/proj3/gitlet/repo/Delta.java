@@ -0,0 +1,183 @@
+package gitlet.repo;
+
+import java.io.ByteArrayOutputStream;
+import java.util.HashMap;
+
+/**
+ * This class encodes a file version as a copy/insert delta against
+ * a base version, and rebuilds the version from the base and the delta.
+ * <p>
+ * A delta starts with the length of the result, followed by a list of
+ * instructions. A copy instruction copies a range of the base and an
+ * insert instruction inserts literal bytes. All numbers are varints.
+ *
+ * @author ryan ma
+ */
+
+class Delta {
+
+    /**
+     * Tag of a copy instruction: offset and length in the base follow.
+     */
+    private static final int COPY = 1;
+
+    /**
+     * Tag of an insert instruction: length and literal bytes follow.
+     */
+    private static final int INSERT = 2;
+
+    /**
+     * Size of the blocks of the base that are indexed for matching.
+     */
+    private static final int BLOCK = 16;
+
+    /**
+     * Weight of the first byte of a block in its hash, 31^(BLOCK - 1).
+     */
+    private static final int HIGH;
+
+    static {
+        int high = 1;
+        for (int i = 1; i < BLOCK; i += 1) {
+            high *= 31;
+        }
+        HIGH = high;
+    }
+
+    /**
+     * Return a delta that rebuilds TARGET from BASE.
+     */
+    static byte[] create(byte[] base, byte[] target) {
+        HashMap<Integer, Integer> blocks = new HashMap<>();
+        for (int i = 0; i + BLOCK <= base.length; i += BLOCK) {
+            blocks.putIfAbsent(hash(base, i), i);
+        }
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        writeVarint(out, target.length);
+
+        int insertStart = 0;
+        int i = 0;
+        int h = target.length >= BLOCK ? hash(target, 0) : 0;
+        while (i + BLOCK <= target.length) {
+            Integer match = blocks.get(h);
+            if (match == null || !sameBlock(base, match, target, i)) {
+                /* Roll the hash one byte forward. */
+                if (i + BLOCK < target.length) {
+                    h = (h - target[i] * HIGH) * 31 + target[i + BLOCK];
+                }
+                i += 1;
+                continue;
+            }
+
+            /* Extend the match backwards into pending literals and forwards. */
+            int start = match, tStart = i;
+            while (start > 0 && tStart > insertStart && base[start - 1] == target[tStart - 1]) {
+                start -= 1;
+                tStart -= 1;
+            }
+            int end = match + BLOCK, tEnd = i + BLOCK;
+            while (end < base.length && tEnd < target.length && base[end] == target[tEnd]) {
+                end += 1;
+                tEnd += 1;
+            }
+
+            writeInsert(out, target, insertStart, tStart);
+            out.write(COPY);
+            writeVarint(out, start);
+            writeVarint(out, end - start);
+            i = tEnd;
+            insertStart = tEnd;
+            if (i + BLOCK <= target.length) {
+                h = hash(target, i);
+            }
+        }
+        writeInsert(out, target, insertStart, target.length);
+        return out.toByteArray();
+    }
+
+    /**
+     * Return the version rebuilt from BASE and DELTA.
+     */
+    static byte[] apply(byte[] base, byte[] delta) {
+        int[] pos = {0};
+        byte[] result = new byte[readVarint(delta, pos)];
+        int length = 0;
+        while (pos[0] < delta.length) {
+            int tag = delta[pos[0]++];
+            if (tag == COPY) {
+                int offset = readVarint(delta, pos);
+                int size = readVarint(delta, pos);
+                System.arraycopy(base, offset, result, length, size);
+                length += size;
+            } else {
+                assert tag == INSERT;
+                int size = readVarint(delta, pos);
+                System.arraycopy(delta, pos[0], result, length, size);
+                pos[0] += size;
+                length += size;
+            }
+        }
+        assert length == result.length;
+        return result;
+    }
+
+    /**
+     * Write an insert instruction for TARGET[FROM, TO) to OUT, if not empty.
+     */
+    private static void writeInsert(ByteArrayOutputStream out, byte[] target, int from, int to) {
+        if (from < to) {
+            out.write(INSERT);
+            writeVarint(out, to - from);
+            out.write(target, from, to - from);
+        }
+    }
+
+    /**
+     * Return the hash of the block of BYTES starting at START.
+     */
+    private static int hash(byte[] bytes, int start) {
+        int h = 0;
+        for (int i = start; i < start + BLOCK; i += 1) {
+            h = 31 * h + bytes[i];
+        }
+        return h;
+    }
+
+    /**
+     * Return true if the blocks of A at I and B at J are the same.
+     */
+    private static boolean sameBlock(byte[] a, int i, byte[] b, int j) {
+        for (int k = 0; k < BLOCK; k += 1) {
+            if (a[i + k] != b[j + k]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Write the non-negative VALUE to OUT as a varint.
+     */
+    private static void writeVarint(ByteArrayOutputStream out, int value) {
+        while ((value & ~0x7f) != 0) {
+            out.write((value & 0x7f) | 0x80);
+            value >>>= 7;
+        }
+        out.write(value);
+    }
+
+    /**
+     * Return the varint in BYTES at POS[0], and advance POS[0] past it.
+     */
+    private static int readVarint(byte[] bytes, int[] pos) {
+        int value = 0, shift = 0;
+        byte b;
+        do {
+            b = bytes[pos[0]++];
+            value |= (b & 0x7f) << shift;
+            shift += 7;
+        } while ((b & 0x80) != 0);
+        return value;
+    }
+}
@@ -0,0 +1,265 @@
+package gitlet.repo;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * This class compares two sequences of lines with Myers' O(ND)
+ * difference algorithm, in its linear space form: the middle snake of
+ * the shortest edit script is found by searching forwards and backwards
+ * at the same time, and the two halves around it are compared
+ * recursively. Memory is linear in the number of lines, so large files
+ * can be compared.
+ * <p>
+ * Lines are compared as numbers: each distinct line of both sequences
+ * is given a number first.
+ *
+ * @author ryan ma
+ */
+
+public class Diff {
+
+    /**
+     * A changed region: lines [aStart, aEnd) of the first sequence are
+     * replaced by lines [bStart, bEnd) of the second.
+     */
+    public static class Hunk {
+        /**
+         * Constructor function with the bounds of the region.
+         */
+        Hunk(int aStart, int aEnd, int bStart, int bEnd) {
+            this.aStart = aStart;
+            this.aEnd = aEnd;
+            this.bStart = bStart;
+            this.bEnd = bEnd;
+        }
+
+        /**
+         * First changed line of the first sequence.
+         */
+        public final int aStart;
+
+        /**
+         * End of the changed lines of the first sequence.
+         */
+        public final int aEnd;
+
+        /**
+         * First changed line of the second sequence.
+         */
+        public final int bStart;
+
+        /**
+         * End of the changed lines of the second sequence.
+         */
+        public final int bEnd;
+    }
+
+    /**
+     * Constructor function comparing A and B, lines given as numbers.
+     */
+    private Diff(int[] a, int[] b) {
+        this.a = a;
+        this.b = b;
+    }
+
+    /**
+     * Return the lines of CONTENT, each with its line terminator. The
+     * last line has none if CONTENT does not end with a newline. Bytes
+     * are kept as Latin-1 characters, so any content is split and
+     * joined back unchanged.
+     */
+    public static List<String> splitLines(byte[] content) {
+        List<String> lines = new ArrayList<>();
+        int start = 0;
+        for (int i = 0; i < content.length; i += 1) {
+            if (content[i] == '\n') {
+                lines.add(new String(content, start, i + 1 - start, StandardCharsets.ISO_8859_1));
+                start = i + 1;
+            }
+        }
+        if (start < content.length) {
+            lines.add(new String(content, start, content.length - start,
+                    StandardCharsets.ISO_8859_1));
+        }
+        return lines;
+    }
+
+    /**
+     * Return LINES as numbers, giving new lines the next free number
+     * in NUMBERS.
+     */
+    public static int[] number(List<String> lines, Map<String, Integer> numbers) {
+        int[] result = new int[lines.size()];
+        for (int i = 0; i < result.length; i += 1) {
+            result[i] = numbers.computeIfAbsent(lines.get(i), line -> numbers.size());
+        }
+        return result;
+    }
+
+    /**
+     * Return the hunks of the shortest edit script from lines A to lines
+     * B, in order.
+     */
+    public static List<Hunk> diff(List<String> a, List<String> b) {
+        Map<String, Integer> numbers = new HashMap<>();
+        return diff(number(a, numbers), number(b, numbers));
+    }
+
+    /**
+     * Return the hunks of the shortest edit script from A to B, lines
+     * given as numbers, in order.
+     */
+    public static List<Hunk> diff(int[] a, int[] b) {
+        int[] matches = match(a, b);
+        List<Hunk> hunks = new ArrayList<>();
+        int i = 0, j = 0;
+        for (int m = 0; m <= a.length; m += 1) {
+            if (m < a.length && matches[m] < 0) {
+                continue;
+            }
+            int k = m < a.length ? matches[m] : b.length;
+            if (i < m || j < k) {
+                hunks.add(new Hunk(i, m, j, k));
+            }
+            i = m + 1;
+            j = k + 1;
+        }
+        return hunks;
+    }
+
+    /**
+     * Return, for each line of A, the index of the line of B it is
+     * matched with in the shortest edit script, or -1.
+     */
+    public static int[] match(int[] a, int[] b) {
+        Diff diff = new Diff(a, b);
+        diff.matches = new int[a.length];
+        Arrays.fill(diff.matches, -1);
+        diff.compare(0, a.length, 0, b.length);
+        return diff.matches;
+    }
+
+    /**
+     * Match lines [ASTART, AEND) of a with lines [BSTART, BEND) of b.
+     */
+    private void compare(int aStart, int aEnd, int bStart, int bEnd) {
+        while (aStart < aEnd && bStart < bEnd && a[aStart] == b[bStart]) {
+            matches[aStart++] = bStart++;
+        }
+        while (aStart < aEnd && bStart < bEnd && a[aEnd - 1] == b[bEnd - 1]) {
+            matches[--aEnd] = --bEnd;
+        }
+        if (aStart == aEnd || bStart == bEnd) {
+            return;
+        }
+        int[] split = bisect(aStart, aEnd, bStart, bEnd);
+        if (split != null) {
+            compare(aStart, split[0], bStart, split[1]);
+            compare(split[0], aEnd, split[1], bEnd);
+        }
+    }
+
+    /**
+     * Return the point where the forward and the backward searches of
+     * the shortest edit script from lines [ASTART, AEND) of a to lines
+     * [BSTART, BEND) of b meet, or null if the lines have nothing in
+     * common.
+     */
+    private int[] bisect(int aStart, int aEnd, int bStart, int bEnd) {
+        int n = aEnd - aStart;
+        int m = bEnd - bStart;
+        int maxD = (n + m + 1) / 2;
+        int offset = maxD;
+        int length = 2 * maxD + 2;
+        int[] forward = new int[length];
+        int[] backward = new int[length];
+        Arrays.fill(forward, -1);
+        Arrays.fill(backward, -1);
+        forward[offset + 1] = 0;
+        backward[offset + 1] = 0;
+        int delta = n - m;
+        boolean front = delta % 2 != 0;
+        int k1Start = 0, k1End = 0, k2Start = 0, k2End = 0;
+
+        for (int d = 0; d < maxD; d += 1) {
+            for (int k1 = -d + k1Start; k1 <= d - k1End; k1 += 2) {
+                int k1Offset = offset + k1;
+                int x1;
+                if (k1 == -d || (k1 != d && forward[k1Offset - 1] < forward[k1Offset + 1])) {
+                    x1 = forward[k1Offset + 1];
+                } else {
+                    x1 = forward[k1Offset - 1] + 1;
+                }
+                int y1 = x1 - k1;
+                while (x1 < n && y1 < m && a[aStart + x1] == b[bStart + y1]) {
+                    x1 += 1;
+                    y1 += 1;
+                }
+                forward[k1Offset] = x1;
+                if (x1 > n) {
+                    k1End += 2;
+                } else if (y1 > m) {
+                    k1Start += 2;
+                } else if (front) {
+                    int k2Offset = offset + delta - k1;
+                    if (k2Offset >= 0 && k2Offset < length && backward[k2Offset] != -1
+                            && x1 >= n - backward[k2Offset]) {
+                        return new int[]{aStart + x1, bStart + y1};
+                    }
+                }
+            }
+
+            for (int k2 = -d + k2Start; k2 <= d - k2End; k2 += 2) {
+                int k2Offset = offset + k2;
+                int x2;
+                if (k2 == -d || (k2 != d && backward[k2Offset - 1] < backward[k2Offset + 1])) {
+                    x2 = backward[k2Offset + 1];
+                } else {
+                    x2 = backward[k2Offset - 1] + 1;
+                }
+                int y2 = x2 - k2;
+                while (x2 < n && y2 < m
+                        && a[aEnd - 1 - x2] == b[bEnd - 1 - y2]) {
+                    x2 += 1;
+                    y2 += 1;
+                }
+                backward[k2Offset] = x2;
+                if (x2 > n) {
+                    k2End += 2;
+                } else if (y2 > m) {
+                    k2Start += 2;
+                } else if (!front) {
+                    int k1Offset = offset + delta - k2;
+                    if (k1Offset >= 0 && k1Offset < length && forward[k1Offset] != -1) {
+                        int x1 = forward[k1Offset];
+                        int y1 = offset + x1 - k1Offset;
+                        if (x1 >= n - x2) {
+                            return new int[]{aStart + x1, bStart + y1};
+                        }
+                    }
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * The first sequence of lines.
+     */
+    private final int[] a;
+
+    /**
+     * The second sequence of lines.
+     */
+    private final int[] b;
+
+    /**
+     * For each line of a, the matched line of b or -1.
+     */
+    private int[] matches;
+}
@@ -0,0 +1,201 @@
+package gitlet.repo;
+
+import gitlet.Utils;
+import gitlet.objects.CommitData;
+import gitlet.objects.GitletObject;
+import gitlet.objects.Stage;
+import gitlet.objects.Tree;
+
+import java.io.IOException;
+import java.io.Serializable;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Function;
+
+import static gitlet.Main.repo;
+
+/**
+ * This class measures the binary encoding of commits, trees and the index
+ * against the Java serialization they were stored with before, in stored
+ * size and in encode and decode time.
+ * <p>
+ * Usage: java gitlet.repo.EncodingBenchmark [--files=N] [--commits=C] [--rounds=R]
+ * <p>
+ * It must run in an empty directory, where it creates a repository whose
+ * first commit has N files, followed by C - 1 commits each changing one
+ * file; the index then holds the stat data of the N files. Each round
+ * encodes and decodes every commit, every tree reachable from them and
+ * the index in both encodings, and the fastest of the rounds is reported,
+ * so that the first rounds warm up the JIT compiler.
+ *
+ * @author ryan ma
+ */
+
+public class EncodingBenchmark {
+
+    /**
+     * The default number of files.
+     */
+    static final int FILES = 10000;
+
+    /**
+     * The default number of commits.
+     */
+    static final int COMMITS = 200;
+
+    /**
+     * The default number of rounds.
+     */
+    static final int ROUNDS = 5;
+
+    /**
+     * Run the benchmark with ARGS.
+     */
+    public static void main(String[] args) throws IOException {
+        int files = FILES;
+        int commits = COMMITS;
+        int rounds = ROUNDS;
+        for (String arg : args) {
+            if (arg.startsWith("--files=")) {
+                files = Integer.parseInt(arg.substring("--files=".length()));
+            } else if (arg.startsWith("--commits=")) {
+                commits = Integer.parseInt(arg.substring("--commits=".length()));
+            } else if (arg.startsWith("--rounds=")) {
+                rounds = Integer.parseInt(arg.substring("--rounds=".length()));
+            } else {
+                System.err.println("Usage: java gitlet.repo.EncodingBenchmark"
+                        + " [--files=N] [--commits=C] [--rounds=R]");
+                System.exit(1);
+            }
+        }
+        List<String> existing = repo.workFolder.getAllFileName();
+        if (Repo.GITLET_FOLDER.exists() || existing != null && !existing.isEmpty()) {
+            System.err.println("Run the benchmark in an empty directory.");
+            System.exit(1);
+        }
+
+        List<String> fileNames = new ArrayList<>();
+        for (int i = 0; i < files; i += 1) {
+            fileNames.add(String.format("f%06d.txt", i));
+        }
+        long start = System.nanoTime();
+        CheckoutBenchmark.run("init");
+        CheckoutBenchmark.commit(fileNames, "base", "");
+        for (int i = 1; i < commits; i += 1) {
+            String fileName = fileNames.get((int) ((long) i * files / commits));
+            CheckoutBenchmark.commit(List.of(fileName), "change " + i, "change " + i + "\n");
+        }
+        System.out.printf("%d files, %d commits: repository built in %.1f s%n",
+                files, commits, (System.nanoTime() - start) / 1e9);
+
+        List<CommitData> commitObjects = new ArrayList<>(repo.getCurrCommit().getHistoryCommit());
+        List<Tree> trees = listTrees(commitObjects);
+        Stage stage = Stage.readFromFile();
+
+        System.out.printf("%-8s %7s %-8s %12s %10s %10s%n", "object", "count", "encoding",
+                "stored KB", "encode ms", "decode ms");
+        run("commit", commitObjects, CommitData::decode, rounds);
+        run("tree", trees, EncodingBenchmark::decodeTree, rounds);
+        run("index", List.of(stage), EncodingBenchmark::encodeStage,
+                bytes -> Stage.decode(bytes), rounds);
+    }
+
+    /**
+     * Return the trees reachable from the trees of COMMITS, each once.
+     */
+    private static List<Tree> listTrees(List<CommitData> commits) {
+        List<Tree> trees = new ArrayList<>();
+        Set<String> visited = new HashSet<>();
+        Deque<String> toVisit = new ArrayDeque<>();
+        for (CommitData commit : commits) {
+            toVisit.push(commit.getTreeUid());
+        }
+        while (!toVisit.isEmpty()) {
+            String uid = toVisit.pop();
+            if (visited.add(uid)) {
+                Tree tree = repo.objectFolder.getTree(uid);
+                trees.add(tree);
+                tree.getChildUids().forEach(toVisit::push);
+            }
+        }
+        return trees;
+    }
+
+    /**
+     * Measure the objects of KIND, OBJECTS, encoded by their encode
+     * method and decoded by DECODER, in ROUNDS rounds.
+     */
+    private static <T extends GitletObject> void run(String kind, List<T> objects,
+                                                     Function<byte[], ?> decoder, int rounds) {
+        run(kind, objects, GitletObject::encode, decoder, rounds);
+    }
+
+    /**
+     * Measure the objects of KIND, OBJECTS, encoded by ENCODER and
+     * decoded by DECODER, against their Java serialization, in ROUNDS
+     * rounds, and print the results.
+     */
+    private static <T extends Serializable> void run(String kind, List<T> objects,
+                                                  Function<T, byte[]> encoder,
+                                                  Function<byte[], ?> decoder,
+                                                  int rounds) {
+        measure(kind, objects.size(), "java", objects, Utils::serialize, decoder, rounds);
+        measure(kind, objects.size(), "binary", objects, encoder, decoder, rounds);
+    }
+
+    /**
+     * Encode OBJECTS with ENCODER and decode them with DECODER in ROUNDS
+     * rounds, and print a line for KIND, COUNT objects, in ENCODING.
+     */
+    private static <T> void measure(String kind, int count, String encoding, List<T> objects,
+                                    Function<? super T, byte[]> encoder,
+                                    Function<byte[], ?> decoder, int rounds) {
+        long bestEncode = Long.MAX_VALUE;
+        long bestDecode = Long.MAX_VALUE;
+        long storedSize = 0;
+        for (int round = 0; round < rounds; round += 1) {
+            List<byte[]> stored = new ArrayList<>(objects.size());
+            long start = System.nanoTime();
+            for (T obj : objects) {
+                stored.add(encoder.apply(obj));
+            }
+            bestEncode = Math.min(bestEncode, System.nanoTime() - start);
+
+            start = System.nanoTime();
+            for (byte[] bytes : stored) {
+                decoder.apply(bytes);
+            }
+            bestDecode = Math.min(bestDecode, System.nanoTime() - start);
+            storedSize = stored.stream().mapToLong(bytes -> bytes.length).sum();
+        }
+        System.out.printf("%-8s %7d %-8s %12.1f %10.2f %10.2f%n", kind, count, encoding,
+                storedSize / 1e3, bestEncode / 1e6, bestDecode / 1e6);
+    }
+
+    /**
+     * Return the tree decoded from BYTES, in either encoding. Trees were
+     * never stored with Java serialization, so Tree.decode only reads
+     * the binary encoding.
+     */
+    private static Tree decodeTree(byte[] bytes) {
+        if (Utils.isJavaSerialized(bytes)) {
+            return Utils.deserialize(bytes, Tree.class);
+        }
+        return Tree.decode(bytes);
+    }
+
+    /**
+     * Return the content of the index file for STAGE.
+     */
+    private static byte[] encodeStage(Stage stage) {
+        try {
+            return stage.encode();
+        } catch (IOException excp) {
+            throw new IllegalStateException(excp);
+        }
+    }
+}
@@ -4,8 +4,13 @@ import gitlet.Utils;
 
 import java.io.File;
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
 import java.util.List;
 
+import static gitlet.Main.repo;
+
 /**
  * This class is the parent class for any folder.
  *
@@ -31,7 +36,7 @@ public class Folder {
     /**
      * Return the absolute path of the given file.
      */
-    protected File getFile(String fileName) {
+    public File getFile(String fileName) {
         return Utils.join(folder, fileName);
     }
 
@@ -50,10 +55,51 @@ public class Folder {
     }
 
     /**
-     * Write content to file.
+     * Write contents to file. Each content may be a String or a byte array.
+     */
+    public void writeToFile(String fileName, Object... contents) {
+        Utils.writeContents(getFile(fileName), contents);
+    }
+
+    /**
+     * Append content to file, creating the file if needed.
+     */
+    public void appendToFile(String fileName, String content) throws IOException {
+        Files.writeString(getFile(fileName).toPath(), content, StandardCharsets.UTF_8,
+                StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+    }
+
+    /**
+     * Return String read from this file, as updated in the current
+     * transaction of the journal.
+     */
+    protected String readJournaled(String fileName) {
+        return new String(repo.journal.read(getFile(fileName)), StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Write CONTENT to file in the current transaction of the journal.
+     * The folder of the file, such as the folder of the remote branches
+     * of a remote, is created if needed.
+     */
+    protected void writeJournaled(String fileName, String content) {
+        getFile(fileName).getParentFile().mkdirs();
+        repo.journal.write(getFile(fileName), content.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Delete the file in the current transaction of the journal.
+     */
+    protected void deleteJournaled(String fileName) {
+        repo.journal.delete(getFile(fileName));
+    }
+
+    /**
+     * Return true if the file exists, as updated in the current
+     * transaction of the journal.
      */
-    public void writeToFile(String fileName, String content) {
-        Utils.writeContents(getFile(fileName), content);
+    protected boolean existsJournaled(String fileName) {
+        return repo.journal.exists(getFile(fileName));
     }
 
     /**
@@ -0,0 +1,844 @@
+package gitlet.repo;
+
+import gitlet.Utils;
+import gitlet.objects.GitletException;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.zip.CRC32;
+
+/**
+ * This class is the write-ahead journal of the ".gitlet/journal" file,
+ * which makes the updates of refs, logs, HEAD and the index made by one
+ * command atomic.
+ * <p>
+ * During a transaction, writes and deletes of these files are only kept
+ * in memory, and reads see them. Committing the transaction appends all
+ * of them to the journal as one record, forces the journal to disk once,
+ * and only then applies them to the files. The record is then marked as
+ * applied, without forcing. If gitlet stops before the record is forced,
+ * none of the updates happened; if it stops after, the next gitlet run
+ * replays the records not marked as applied.
+ * <p>
+ * Several processes may use the repository at once. A commit holds the
+ * lock file of the journal and of each updated file, created atomically
+ * with the ".lock" suffix, and new contents are written to the lock files
+ * and renamed over the files. A file is only updated if it still has the
+ * content it had when the transaction first used it, so an update made
+ * by another process in the meantime is never lost: the commit fails
+ * instead, and the command can be run again.
+ * <p>
+ * A record is the tag RECORD, the length of its body, the body, the CRC-32
+ * of the body and a status byte, PENDING or APPLIED. The body is the number
+ * of updates and, for each update, the path of the file, then the length
+ * and the bytes of its new content, or DELETED; then the number of appends
+ * and, for each, the path, the offset of the end of the file, and the
+ * length and bytes appended there. Replaying an append first cuts the file
+ * at the offset, so it is only appended once. A record that is cut short
+ * or fails its checksum ends the journal. When the journal grows beyond
+ * CHECKPOINT_SIZE, the files it updated are forced to disk and it is
+ * emptied.
+ * <p>
+ * Commands that only read the repository run a read-only transaction,
+ * which never touches the journal: its only updates are caches made with
+ * refresh, each written directly to its file under the lock of the file,
+ * and dropped if the lock is held or the file changed.
+ * <p>
+ * A command that must keep other processes from committing while it
+ * runs, such as gc, holds the lock of the journal with lock and unlock.
+ *
+ * @author ryan ma
+ */
+
+public class Journal {
+
+    /**
+     * The journal file.
+     */
+    public static final File JOURNAL_FILE = new File(".gitlet/journal");
+
+    /**
+     * Tag at the start of each record.
+     */
+    static final int RECORD = 0x4a524e4c;
+
+    /**
+     * Content length of a deleted file.
+     */
+    static final int DELETED = -1;
+
+    /**
+     * Status of a record not yet applied to the files.
+     */
+    static final byte PENDING = 0;
+
+    /**
+     * Status of a record applied to the files.
+     */
+    static final byte APPLIED = 1;
+
+    /**
+     * Size in bytes beyond which the journal is checkpointed.
+     */
+    static final long CHECKPOINT_SIZE = 1 << 20;
+
+    /**
+     * Suffix of the name of a lock file.
+     */
+    public static final String LOCK_SUFFIX = ".lock";
+
+    /**
+     * Milliseconds to wait for a lock held by another process.
+     */
+    static final long LOCK_TIMEOUT = 10000;
+
+    /**
+     * Average milliseconds between attempts to take a lock.
+     */
+    static final int LOCK_RETRY = 10;
+
+    /**
+     * Spreads the attempts of processes waiting for the same lock.
+     */
+    private static final Random RANDOM = new Random();
+
+    /**
+     * Start a transaction. Updates are kept until commit.
+     */
+    public void begin() {
+        pending = new LinkedHashMap<>();
+        appended.clear();
+        expected.clear();
+        expectedLength.clear();
+        optional.clear();
+        readOnly = false;
+    }
+
+    /**
+     * Start a read-only transaction. Only updates made with refresh are
+     * allowed; commit writes them without the journal.
+     */
+    public void beginReadOnly() {
+        begin();
+        readOnly = true;
+    }
+
+    /**
+     * Write CONTENT to FILE. In a transaction, the write is kept until
+     * commit, and dropped if FILE already has CONTENT.
+     */
+    public void write(File file, byte[] content) {
+        if (pending == null) {
+            Utils.writeContents(file, (Object) content);
+            return;
+        }
+        checkWritable(file);
+        String path = file.getPath();
+        appended.remove(path);
+        byte[] old = expect(file);
+        if (!pending.containsKey(path) && Arrays.equals(old, content)) {
+            return;
+        }
+        pending.put(path, content);
+    }
+
+    /**
+     * Write CONTENT to FILE like write, but drop the write instead of
+     * failing the commit if another process changed FILE meanwhile. Used
+     * for content that is only a cache.
+     */
+    public void refresh(File file, byte[] content) {
+        if (readOnly) {
+            if (Arrays.equals(expect(file), content)) {
+                pending.remove(file.getPath());
+            } else {
+                pending.put(file.getPath(), content);
+                optional.add(file.getPath());
+            }
+            return;
+        }
+        write(file, content);
+        if (pending != null && pending.containsKey(file.getPath())) {
+            optional.add(file.getPath());
+        }
+    }
+
+    /**
+     * Delete FILE. In a transaction, the delete is kept until commit.
+     */
+    public void delete(File file) {
+        if (pending == null) {
+            file.delete();
+            return;
+        }
+        checkWritable(file);
+        appended.remove(file.getPath());
+        expect(file);
+        pending.put(file.getPath(), null);
+    }
+
+    /**
+     * Append CONTENT to FILE, creating it if needed. In a transaction, the
+     * append is kept until commit, and FILE is not read: commit only
+     * checks that it still has the length it had when first appended to.
+     * A file that the transaction already read or wrote is written whole.
+     */
+    public void append(File file, byte[] content) throws IOException {
+        append(file, file.isFile() ? file.length() : -1, content);
+    }
+
+    /**
+     * Append CONTENT to FILE, as append does, for a caller that read the
+     * first LENGTH bytes of FILE, -1 if it did not exist, before the
+     * transaction first appended to it: commit checks that FILE still has
+     * LENGTH bytes rather than the length it has now.
+     */
+    public void append(File file, long length, byte[] content) throws IOException {
+        if (pending == null) {
+            Files.write(file.toPath(), content, StandardOpenOption.CREATE,
+                    StandardOpenOption.APPEND);
+            return;
+        }
+        checkWritable(file);
+        String path = file.getPath();
+        if (pending.containsKey(path) || expected.containsKey(path)) {
+            byte[] old = read(file);
+            byte[] joined = Arrays.copyOf(old, old.length + content.length);
+            System.arraycopy(content, 0, joined, old.length, content.length);
+            write(file, joined);
+            return;
+        }
+        expectedLength.putIfAbsent(path, length);
+        appended.computeIfAbsent(path, key -> new ByteArrayOutputStream()).writeBytes(content);
+    }
+
+    /**
+     * Turn the appends kept for the file with PATH into a write of its
+     * whole content, before the transaction reads it.
+     */
+    private void joinAppends(String path) {
+        ByteArrayOutputStream appends = appended.remove(path);
+        if (appends == null) {
+            return;
+        }
+        byte[] old = expect(new File(path));
+        ByteArrayOutputStream content = new ByteArrayOutputStream();
+        if (old != null) {
+            content.writeBytes(old);
+        }
+        content.writeBytes(appends.toByteArray());
+        pending.put(path, content.toByteArray());
+    }
+
+    /**
+     * Throw IllegalStateException if the transaction is read-only, as an
+     * update of FILE is then a bug of the command.
+     */
+    private void checkWritable(File file) {
+        if (readOnly) {
+            throw new IllegalStateException("update of " + file.getPath()
+                    + " in a read-only transaction");
+        }
+    }
+
+    /**
+     * Return the content of FILE, as updated in the transaction.
+     */
+    public byte[] read(File file) {
+        if (pending == null) {
+            return Utils.readContents(file);
+        }
+        String path = file.getPath();
+        joinAppends(path);
+        byte[] content = pending.containsKey(path) ? pending.get(path) : expect(file);
+        if (content == null) {
+            throw new IllegalArgumentException(path + " does not exist");
+        }
+        return content;
+    }
+
+    /**
+     * Return the first LENGTH bytes of FILE, as updated in the transaction,
+     * fewer if it is shorter, or null if it does not exist. Unlike read,
+     * FILE is not read whole, and appends to it are still kept as appends.
+     */
+    public byte[] readStart(File file, int length) throws IOException {
+        String path = file.getPath();
+        byte[] content;
+        if (pending != null && pending.containsKey(path)) {
+            content = pending.get(path);
+        } else if (pending != null && expected.containsKey(path)) {
+            content = expected.get(path);
+        } else {
+            content = file.isFile() ? readStartOnDisk(file, length) : null;
+            ByteArrayOutputStream appends = pending == null ? null : appended.get(path);
+            if (appends != null) {
+                ByteArrayOutputStream joined = new ByteArrayOutputStream();
+                joined.writeBytes(content == null ? new byte[0] : content);
+                joined.writeBytes(appends.toByteArray());
+                content = joined.toByteArray();
+            }
+        }
+        return content == null ? null : Arrays.copyOf(content, Math.min(length, content.length));
+    }
+
+    /**
+     * Return the first LENGTH bytes of FILE on disk, fewer if it is shorter.
+     */
+    private static byte[] readStartOnDisk(File file, int length) throws IOException {
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            ByteBuffer buffer = ByteBuffer.allocate((int) Math.min(length, channel.size()));
+            while (buffer.hasRemaining()) {
+                if (channel.read(buffer) < 0) {
+                    break;
+                }
+            }
+            return buffer.array();
+        }
+    }
+
+    /**
+     * Return true if FILE exists, as updated in the transaction.
+     */
+    public boolean exists(File file) {
+        if (pending == null) {
+            return file.exists();
+        }
+        String path = file.getPath();
+        if (appended.containsKey(path)) {
+            return true;
+        }
+        return (pending.containsKey(path) ? pending.get(path) : expect(file)) != null;
+    }
+
+    /**
+     * Make the updates of the transaction durable with one forced append
+     * to the journal, then apply them. The transaction stays open for
+     * further updates.
+     * <p>
+     * The journal and every updated file are locked first, and each file
+     * must still have the content it had when the transaction first used
+     * it: otherwise another process updated it meanwhile, and nothing is
+     * updated. Updates made with refresh are dropped instead. A file
+     * appended to must still have the length it had when first appended to.
+     * A read-only transaction writes its updates with replace instead.
+     */
+    public void commit() throws IOException {
+        if (pending == null || pending.isEmpty() && appended.isEmpty()) {
+            return;
+        }
+        Map<String, byte[]> updates = new TreeMap<>(pending);
+        Map<String, byte[]> appends = new TreeMap<>();
+        for (Map.Entry<String, ByteArrayOutputStream> entry : appended.entrySet()) {
+            appends.put(entry.getKey(), entry.getValue().toByteArray());
+        }
+        pending = new LinkedHashMap<>();
+        appended.clear();
+        if (readOnly) {
+            for (Map.Entry<String, byte[]> update : updates.entrySet()) {
+                replace(update.getKey(), update.getValue());
+            }
+            optional.clear();
+            return;
+        }
+
+        List<Path> locks = new ArrayList<>();
+        if (heldLock == null) {
+            lock(JOURNAL_FILE.getPath(), locks);
+        }
+        try {
+            for (String path : updates.keySet()) {
+                lock(path, locks);
+            }
+            for (String path : appends.keySet()) {
+                lock(path, locks);
+            }
+            for (String path : appends.keySet()) {
+                File file = new File(path);
+                if ((file.isFile() ? file.length() : -1) != expectedLength.get(path)) {
+                    throw new GitletException("Could not update " + path
+                            + ": it was changed by another gitlet process.");
+                }
+            }
+            for (String path : new ArrayList<>(updates.keySet())) {
+                if (Arrays.equals(readOrNull(new File(path)), expected.get(path))) {
+                    continue;
+                }
+                if (!optional.contains(path)) {
+                    throw new GitletException("Could not update " + path
+                            + ": it was changed by another gitlet process.");
+                }
+                updates.remove(path);
+            }
+            if (!updates.isEmpty() || !appends.isEmpty()) {
+                Map<String, Long> offsets = new TreeMap<>();
+                for (String path : appends.keySet()) {
+                    offsets.put(path, Math.max(expectedLength.get(path), 0));
+                }
+                append(new Record(updates, appends, offsets), locks);
+            }
+        } finally {
+            optional.clear();
+            for (Path lock : locks) {
+                Files.deleteIfExists(lock);
+            }
+        }
+        if (JOURNAL_FILE.length() > CHECKPOINT_SIZE) {
+            checkpoint();
+        }
+    }
+
+    /**
+     * Append RECORD to the journal, force it, and apply its updates. The
+     * journal is locked; the locks renamed over their files by apply are
+     * removed from LOCKS.
+     */
+    private void append(Record record, List<Path> locks) throws IOException {
+        byte[] bytes = encode(record);
+        try (FileChannel channel = FileChannel.open(JOURNAL_FILE.toPath(),
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
+            long start = channel.size();
+            writeFully(channel, ByteBuffer.wrap(bytes), start);
+            channel.force(false);
+            apply(record, locks);
+            writeFully(channel, ByteBuffer.wrap(new byte[]{APPLIED}), start + bytes.length - 1);
+        }
+        expected.putAll(record.writes);
+        for (Map.Entry<String, byte[]> append : record.appends.entrySet()) {
+            String path = append.getKey();
+            expectedLength.put(path, record.offsets.get(path) + append.getValue().length);
+        }
+    }
+
+    /**
+     * Write CONTENT to the file with PATH, without the journal, if the
+     * file still has the content it had when the transaction first used
+     * it. The content is forced to the lock file of the file, which is
+     * then renamed over it. The write is dropped if another process holds
+     * the lock, as only caches are written this way. Once renamed, the
+     * lock is no longer deleted, since another process may have taken it.
+     */
+    private void replace(String path, byte[] content) throws IOException {
+        Path lock = Paths.get(path + LOCK_SUFFIX);
+        try {
+            Files.createFile(lock);
+        } catch (FileAlreadyExistsException excp) {
+            return;
+        }
+        boolean held = true;
+        try {
+            if (!Arrays.equals(readOrNull(new File(path)), expected.get(path))) {
+                return;
+            }
+            try (FileChannel channel = FileChannel.open(lock, StandardOpenOption.WRITE)) {
+                writeFully(channel, ByteBuffer.wrap(content), 0);
+                channel.force(false);
+            }
+            Files.move(lock, Paths.get(path), StandardCopyOption.REPLACE_EXISTING,
+                    StandardCopyOption.ATOMIC_MOVE);
+            held = false;
+            expected.put(path, content);
+        } finally {
+            if (held) {
+                Files.deleteIfExists(lock);
+            }
+        }
+    }
+
+    /**
+     * Return the content FILE had when the transaction first used it,
+     * null if it did not exist, recording it for commit.
+     */
+    private byte[] expect(File file) {
+        String path = file.getPath();
+        if (!expected.containsKey(path)) {
+            expected.put(path, readOrNull(file));
+        }
+        return expected.get(path);
+    }
+
+    /**
+     * Return the content of FILE, or null if it does not exist.
+     */
+    private static byte[] readOrNull(File file) {
+        return file.isFile() ? Utils.readContents(file) : null;
+    }
+
+    /**
+     * Create the lock file of the file with PATH and add it to LOCKS,
+     * waiting up to LOCK_TIMEOUT milliseconds while another process
+     * holds it.
+     */
+    private static void lock(String path, List<Path> locks) throws IOException {
+        Path lock = Paths.get(path + LOCK_SUFFIX);
+        long deadline = System.currentTimeMillis() + LOCK_TIMEOUT;
+        while (true) {
+            try {
+                locks.add(Files.createFile(lock));
+                return;
+            } catch (FileAlreadyExistsException excp) {
+                if (System.currentTimeMillis() > deadline) {
+                    throw new GitletException("Unable to create '" + lock
+                            + "': another gitlet process seems to be running."
+                            + " If not, remove the file.");
+                }
+                try {
+                    Thread.sleep(LOCK_RETRY + RANDOM.nextInt(LOCK_RETRY));
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new GitletException("Interrupted waiting for '" + lock + "'.");
+                }
+            }
+        }
+    }
+
+    /**
+     * Take the lock of the journal until unlock, so that no other process
+     * commits a transaction meanwhile. Commits of this process keep it.
+     */
+    public void lock() throws IOException {
+        List<Path> locks = new ArrayList<>();
+        lock(JOURNAL_FILE.getPath(), locks);
+        heldLock = locks.get(0);
+    }
+
+    /**
+     * Release the lock of the journal taken by lock.
+     */
+    public void unlock() throws IOException {
+        if (heldLock != null) {
+            Files.deleteIfExists(heldLock);
+            heldLock = null;
+        }
+    }
+
+    /**
+     * Replay the records of the journal that were not applied, after
+     * gitlet stopped in the middle of a commit, then checkpoint. Does
+     * nothing if every record was applied.
+     */
+    public void recover() throws IOException {
+        if (!needsRecovery()) {
+            return;
+        }
+        List<Path> locks = new ArrayList<>();
+        lock(JOURNAL_FILE.getPath(), locks);
+        try {
+            List<Record> records = readRecords(true);
+            if (records.isEmpty() && validLength == JOURNAL_FILE.length()) {
+                return;
+            }
+            for (Record record : records) {
+                apply(record, locks);
+            }
+            checkpoint();
+        } finally {
+            Files.deleteIfExists(locks.get(0));
+        }
+    }
+
+    /**
+     * Return true if the journal may hold a record that was not applied:
+     * one not marked as applied, or one cut short. Only the headers and
+     * status bytes of the records are read, without taking the lock, so
+     * commands find an applied journal cheaply; a record being appended
+     * by another process meanwhile only makes recover take the lock.
+     */
+    private boolean needsRecovery() throws IOException {
+        if (!JOURNAL_FILE.isFile() || JOURNAL_FILE.length() == 0) {
+            return false;
+        }
+        try (FileChannel channel = FileChannel.open(JOURNAL_FILE.toPath(),
+                StandardOpenOption.READ)) {
+            long size = channel.size();
+            ByteBuffer header = ByteBuffer.allocate(2 * Integer.BYTES);
+            ByteBuffer status = ByteBuffer.allocate(1);
+            long position = 0;
+            while (position < size) {
+                header.clear();
+                status.clear();
+                if (channel.read(header, position) < header.capacity()
+                        || header.getInt(0) != RECORD) {
+                    return true;
+                }
+                long end = position + header.capacity() + header.getInt(4) + Integer.BYTES + 1;
+                if (header.getInt(4) < 0 || end > size
+                        || channel.read(status, end - 1) < 1 || status.get(0) != APPLIED) {
+                    return true;
+                }
+                position = end;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Force every file updated by the journal to disk, then empty it.
+     */
+    private void checkpoint() throws IOException {
+        Set<String> paths = new LinkedHashSet<>();
+        for (Record record : readRecords(false)) {
+            paths.addAll(record.writes.keySet());
+            paths.addAll(record.appends.keySet());
+        }
+        for (String path : paths) {
+            File file = new File(path);
+            if (file.isFile()) {
+                try (FileChannel channel = FileChannel.open(file.toPath(),
+                        StandardOpenOption.WRITE)) {
+                    channel.force(false);
+                }
+            }
+        }
+        try (FileChannel channel = FileChannel.open(JOURNAL_FILE.toPath(),
+                StandardOpenOption.WRITE)) {
+            channel.truncate(0);
+            channel.force(false);
+        }
+    }
+
+    /**
+     * Return the valid records of the journal, in order: only those not
+     * marked as applied if ONLYPENDING. Sets validLength to the length of
+     * the valid records.
+     */
+    private List<Record> readRecords(boolean onlyPending) throws IOException {
+        byte[] bytes = Utils.readContents(JOURNAL_FILE);
+        List<Record> records = new ArrayList<>();
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes));
+        validLength = 0;
+        while (in.available() >= 2 * Integer.BYTES) {
+            if (in.readInt() != RECORD) {
+                break;
+            }
+            int length = in.readInt();
+            if (length < 0 || in.available() < length + Integer.BYTES + 1) {
+                break;
+            }
+            byte[] body = new byte[length];
+            in.readFully(body);
+            CRC32 crc = new CRC32();
+            crc.update(body);
+            if (in.readInt() != (int) crc.getValue()) {
+                break;
+            }
+            byte status = in.readByte();
+            if (!onlyPending || status == PENDING) {
+                records.add(decode(body));
+            }
+            validLength = bytes.length - in.available();
+        }
+        return records;
+    }
+
+    /**
+     * Return the bytes of RECORD, with status PENDING.
+     */
+    private static byte[] encode(Record record) throws IOException {
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(body)) {
+            out.writeInt(record.writes.size());
+            for (Map.Entry<String, byte[]> update : record.writes.entrySet()) {
+                Utils.writeString(out, update.getKey());
+                byte[] content = update.getValue();
+                if (content == null) {
+                    out.writeInt(DELETED);
+                } else {
+                    out.writeInt(content.length);
+                    out.write(content);
+                }
+            }
+            out.writeInt(record.appends.size());
+            for (Map.Entry<String, byte[]> append : record.appends.entrySet()) {
+                Utils.writeString(out, append.getKey());
+                out.writeLong(record.offsets.get(append.getKey()));
+                out.writeInt(append.getValue().length);
+                out.write(append.getValue());
+            }
+        }
+        byte[] bodyBytes = body.toByteArray();
+        CRC32 crc = new CRC32();
+        crc.update(bodyBytes);
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeInt(RECORD);
+            out.writeInt(bodyBytes.length);
+            out.write(bodyBytes);
+            out.writeInt((int) crc.getValue());
+            out.writeByte(PENDING);
+        }
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Return the record with body BODY. Records written before appends
+     * end after the updates.
+     */
+    private static Record decode(byte[] body) throws IOException {
+        Record record = new Record(new LinkedHashMap<>(), new LinkedHashMap<>(),
+                new HashMap<>());
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(body));
+        for (int n = in.readInt(); n > 0; n -= 1) {
+            String path = Utils.readString(in);
+            int length = in.readInt();
+            byte[] content = null;
+            if (length != DELETED) {
+                content = new byte[length];
+                in.readFully(content);
+            }
+            record.writes.put(path, content);
+        }
+        if (in.available() == 0) {
+            return record;
+        }
+        for (int n = in.readInt(); n > 0; n -= 1) {
+            String path = Utils.readString(in);
+            record.offsets.put(path, in.readLong());
+            byte[] content = new byte[in.readInt()];
+            in.readFully(content);
+            record.appends.put(path, content);
+        }
+        return record;
+    }
+
+    /**
+     * Apply the updates of RECORD to the files. Each new content is
+     * written to the lock file of its file, which is then renamed over
+     * it, so a file always has either its old or its new content. The
+     * renamed lock is removed from LOCKS: it is gone, and a lock file of
+     * that name is now another process's, which must not be deleted. Each
+     * append is written at its offset, after cutting the file there.
+     */
+    private static void apply(Record record, List<Path> locks) throws IOException {
+        for (Map.Entry<String, byte[]> update : record.writes.entrySet()) {
+            Path file = Paths.get(update.getKey());
+            if (update.getValue() == null) {
+                Files.deleteIfExists(file);
+            } else {
+                Path lock = Paths.get(update.getKey() + LOCK_SUFFIX);
+                Files.write(lock, update.getValue());
+                Files.move(lock, file, StandardCopyOption.REPLACE_EXISTING,
+                        StandardCopyOption.ATOMIC_MOVE);
+                locks.remove(lock);
+            }
+        }
+        for (Map.Entry<String, byte[]> append : record.appends.entrySet()) {
+            long offset = record.offsets.get(append.getKey());
+            try (FileChannel channel = FileChannel.open(Paths.get(append.getKey()),
+                    StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
+                channel.truncate(offset);
+                writeFully(channel, ByteBuffer.wrap(append.getValue()), offset);
+            }
+        }
+    }
+
+    /**
+     * A record of the journal: the new contents of files, null for deleted
+     * files, and the bytes appended to files at their offsets.
+     */
+    private static final class Record {
+
+        /**
+         * Constructor function with WRITES, APPENDS and OFFSETS.
+         */
+        Record(Map<String, byte[]> writes, Map<String, byte[]> appends,
+               Map<String, Long> offsets) {
+            this.writes = writes;
+            this.appends = appends;
+            this.offsets = offsets;
+        }
+
+        /**
+         * The new contents of files, by path, null for deleted files.
+         */
+        final Map<String, byte[]> writes;
+
+        /**
+         * The bytes appended to files, by path.
+         */
+        final Map<String, byte[]> appends;
+
+        /**
+         * The offsets of the appends, the lengths of the files before them.
+         */
+        final Map<String, Long> offsets;
+    }
+
+    /**
+     * Write all of BUFFER to CHANNEL at POSITION.
+     */
+    private static void writeFully(FileChannel channel, ByteBuffer buffer, long position)
+            throws IOException {
+        while (buffer.hasRemaining()) {
+            position += channel.write(buffer, position);
+        }
+    }
+
+    /**
+     * Updates of the open transaction, from file paths to new contents or
+     * null for deleted files; null when no transaction is open.
+     */
+    private Map<String, byte[]> pending;
+
+    /**
+     * Bytes appended to files by the open transaction, by path.
+     */
+    private final Map<String, ByteArrayOutputStream> appended = new LinkedHashMap<>();
+
+    /**
+     * Content of each file used by the transaction when it was first
+     * used, null for files that did not exist.
+     */
+    private final Map<String, byte[]> expected = new HashMap<>();
+
+    /**
+     * Length of each file appended to by the transaction when it was
+     * first appended to, -1 for files that did not exist.
+     */
+    private final Map<String, Long> expectedLength = new HashMap<>();
+
+    /**
+     * Paths of the updates made with refresh.
+     */
+    private final Set<String> optional = new HashSet<>();
+
+    /**
+     * Length of the valid records found by the last read of the journal;
+     * a record cut short by a crash follows them.
+     */
+    private long validLength;
+
+    /**
+     * True if the open transaction is read-only.
+     */
+    private boolean readOnly;
+
+    /**
+     * The lock file of the journal while lock holds it, or null.
+     */
+    private Path heldLock;
+}
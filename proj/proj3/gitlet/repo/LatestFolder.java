@@ -1,5 +1,6 @@
 package gitlet.repo;
 
+import java.util.ArrayList;
 import java.util.List;
 
 /**
@@ -22,23 +23,25 @@ public class LatestFolder extends Folder {
     }
 
     /**
-     * Return all branches.
+     * Return all branches, skipping lock files.
      */
     public List<String> getAllBranches() {
-        return getAllFileName();
+        List<String> branches = new ArrayList<>(getAllFileName());
+        branches.removeIf(name -> name.endsWith(Journal.LOCK_SUFFIX));
+        return branches;
     }
 
     /**
      * Return the latest commit uid of the given branch.
      */
     public String getLatestUid(String branchName) {
-        return readFromFile(branchName);
+        return readJournaled(branchName);
     }
 
     /**
      * Set the latest commit uid for the given branch.
      */
     public void setLatestUid(String branchName, String uid) {
-        writeToFile(branchName, uid);
+        writeJournaled(branchName, uid);
     }
 }
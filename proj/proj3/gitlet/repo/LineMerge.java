@@ -0,0 +1,218 @@
+package gitlet.repo;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * This class merges two versions of a file line by line against their
+ * common base, like diff3.
+ * <p>
+ * Each version is compared with the base, giving the regions of the base
+ * that each version changed. Changes to separate regions are all taken.
+ * Where the regions changed by the two versions overlap or touch, they
+ * are combined into one region: if both versions made the same change it
+ * is taken once, otherwise the region is a conflict and both versions of
+ * it are written between conflict markers. Lines outside the changed
+ * regions are kept as they are in the base.
+ *
+ * @author ryan ma
+ */
+
+public class LineMerge {
+
+    /**
+     * Marker before the current version of a conflict.
+     */
+    static final String OURS_MARKER = "<<<<<<< HEAD\n";
+
+    /**
+     * Marker between the two versions of a conflict.
+     */
+    static final String SEPARATOR = "=======\n";
+
+    /**
+     * Marker after the given version of a conflict.
+     */
+    static final String THEIRS_MARKER = ">>>>>>>\n";
+
+    /**
+     * Constructor function merging OURS and THEIRS, changed from BASE.
+     */
+    public LineMerge(byte[] base, byte[] ours, byte[] theirs) {
+        baseLines = Diff.splitLines(base);
+        oursLines = Diff.splitLines(ours);
+        theirsLines = Diff.splitLines(theirs);
+        Map<String, Integer> numbers = new HashMap<>();
+        int[] baseNumbers = Diff.number(baseLines, numbers);
+        oursHunks = Diff.diff(baseNumbers, Diff.number(oursLines, numbers));
+        theirsHunks = Diff.diff(baseNumbers, Diff.number(theirsLines, numbers));
+        merge();
+    }
+
+    /**
+     * Return the conflict of the whole file between OURS and THEIRS, for
+     * a file deleted in one version, which is empty there, and changed
+     * in the other.
+     */
+    public static byte[] conflict(byte[] ours, byte[] theirs) {
+        ByteArrayOutputStream content = new ByteArrayOutputStream();
+        content.writeBytes(OURS_MARKER.getBytes(StandardCharsets.ISO_8859_1));
+        content.writeBytes(ours);
+        content.writeBytes(SEPARATOR.getBytes(StandardCharsets.ISO_8859_1));
+        content.writeBytes(theirs);
+        content.writeBytes(THEIRS_MARKER.getBytes(StandardCharsets.ISO_8859_1));
+        return content.toByteArray();
+    }
+
+    /**
+     * Return the merged content, with conflict markers around conflicts.
+     */
+    public byte[] getContent() {
+        return result.toByteArray();
+    }
+
+    /**
+     * Return true if the versions have conflicting changes.
+     */
+    public boolean hasConflict() {
+        return conflict;
+    }
+
+    /**
+     * Merge the hunks of both versions in the order of the base.
+     */
+    private void merge() {
+        int i = 0, j = 0;
+        int oursShift = 0, theirsShift = 0;
+        int basePos = 0;
+        while (i < oursHunks.size() || j < theirsHunks.size()) {
+            /* Grow a region of the base from the first hunk until no hunk
+               of either version overlaps or touches it. */
+            int start = Math.min(startOf(oursHunks, i), startOf(theirsHunks, j));
+            int end = start;
+            int firstOurs = i, firstTheirs = j;
+            boolean grown = true;
+            while (grown) {
+                grown = false;
+                if (i < oursHunks.size() && oursHunks.get(i).aStart <= end) {
+                    end = Math.max(end, oursHunks.get(i).aEnd);
+                    i += 1;
+                    grown = true;
+                }
+                if (j < theirsHunks.size() && theirsHunks.get(j).aStart <= end) {
+                    end = Math.max(end, theirsHunks.get(j).aEnd);
+                    j += 1;
+                    grown = true;
+                }
+            }
+
+            appendLines(baseLines, basePos, start);
+            basePos = end;
+            int oursStart = start + oursShift;
+            int theirsStart = start + theirsShift;
+            oursShift = shiftAfter(oursHunks, firstOurs, i, oursShift);
+            theirsShift = shiftAfter(theirsHunks, firstTheirs, j, theirsShift);
+            int oursEnd = end + oursShift;
+            int theirsEnd = end + theirsShift;
+
+            if (i == firstOurs) {
+                appendLines(theirsLines, theirsStart, theirsEnd);
+            } else if (j == firstTheirs) {
+                appendLines(oursLines, oursStart, oursEnd);
+            } else if (sameLines(oursStart, oursEnd, theirsStart, theirsEnd)) {
+                appendLines(oursLines, oursStart, oursEnd);
+            } else {
+                conflict = true;
+                append(OURS_MARKER);
+                appendLines(oursLines, oursStart, oursEnd);
+                append(SEPARATOR);
+                appendLines(theirsLines, theirsStart, theirsEnd);
+                append(THEIRS_MARKER);
+            }
+        }
+        appendLines(baseLines, basePos, baseLines.size());
+    }
+
+    /**
+     * Return the first base line of hunk I of HUNKS, or the largest
+     * integer if there is no such hunk.
+     */
+    private static int startOf(List<Diff.Hunk> hunks, int i) {
+        return i < hunks.size() ? hunks.get(i).aStart : Integer.MAX_VALUE;
+    }
+
+    /**
+     * Return SHIFT, the difference between the line numbers of a version
+     * and of the base, after hunks [FROM, TO) of HUNKS.
+     */
+    private static int shiftAfter(List<Diff.Hunk> hunks, int from, int to, int shift) {
+        for (int k = from; k < to; k += 1) {
+            Diff.Hunk hunk = hunks.get(k);
+            shift += (hunk.bEnd - hunk.bStart) - (hunk.aEnd - hunk.aStart);
+        }
+        return shift;
+    }
+
+    /**
+     * Return true if lines [OURSSTART, OURSEND) of ours are the same as
+     * lines [THEIRSSTART, THEIRSEND) of theirs.
+     */
+    private boolean sameLines(int oursStart, int oursEnd, int theirsStart, int theirsEnd) {
+        return oursLines.subList(oursStart, oursEnd)
+                .equals(theirsLines.subList(theirsStart, theirsEnd));
+    }
+
+    /**
+     * Append lines [FROM, TO) of LINES to the result.
+     */
+    private void appendLines(List<String> lines, int from, int to) {
+        for (int k = from; k < to; k += 1) {
+            append(lines.get(k));
+        }
+    }
+
+    /**
+     * Append TEXT, a string of Latin-1 bytes, to the result.
+     */
+    private void append(String text) {
+        result.writeBytes(text.getBytes(StandardCharsets.ISO_8859_1));
+    }
+
+    /**
+     * Lines of the base.
+     */
+    private final List<String> baseLines;
+
+    /**
+     * Lines of the current version.
+     */
+    private final List<String> oursLines;
+
+    /**
+     * Lines of the given version.
+     */
+    private final List<String> theirsLines;
+
+    /**
+     * Changes from the base to the current version.
+     */
+    private final List<Diff.Hunk> oursHunks;
+
+    /**
+     * Changes from the base to the given version.
+     */
+    private final List<Diff.Hunk> theirsHunks;
+
+    /**
+     * The merged content.
+     */
+    private final ByteArrayOutputStream result = new ByteArrayOutputStream();
+
+    /**
+     * True if there is a conflict.
+     */
+    private boolean conflict;
+}
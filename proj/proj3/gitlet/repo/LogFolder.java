@@ -2,8 +2,28 @@ package gitlet.repo;
 
 import gitlet.objects.CommitData;
 
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.function.Predicate;
+
+import static gitlet.Main.repo;
+
 /**
  * This class represents the log folder.
+ * <p>
+ * The log of a branch is the HEADER line followed by the log of each
+ * commit, oldest first, so that a commit only appends its entry through
+ * the journal. Logs are read newest first, backwards from the end of the
+ * file. Logs written before have no header and are newest first; such a
+ * log is rewritten oldest first the next time an entry is added to it.
  *
  * @author ryan ma
  */
@@ -15,22 +35,264 @@ public class LogFolder extends Folder {
      */
     public static final String LOG_FOLDER = ".gitlet/logs/refs/heads";
 
+    /**
+     * First line of a log whose entries are oldest first.
+     */
+    static final String HEADER = "# oldest first\n";
+
+    /**
+     * Separator line before each commit in a log.
+     */
+    static final String SEPARATOR = "===";
+
+    /**
+     * Line after a separator starting the log of a commit.
+     */
+    static final String COMMIT_LINE = "commit [0-9a-f]{40}";
+
+    /**
+     * Number of bytes read at a time when reading a log backwards.
+     */
+    static final int BLOCK_SIZE = 1 << 16;
+
     LogFolder() {
         super(LOG_FOLDER);
     }
 
     /**
-     * Return String. Read log record of the given branch.
+     * Return the entries of the log of the given branch, as updated in the
+     * current transaction of the journal, oldest first.
+     */
+    public List<String> readLogOfBranch(String branchName) {
+        String log = readJournaled(branchName);
+        List<String> entries = splitEntries(log);
+        if (!log.startsWith(HEADER)) {
+            Collections.reverse(entries);
+        }
+        return entries;
+    }
+
+    /**
+     * Write the given commit into log of the given branch, creating the
+     * log of a new branch. The entry is appended to the log, which is not
+     * read; a log without HEADER is first rewritten oldest first.
+     */
+    public void writeLogToBranch(String branchName, CommitData commit) throws IOException {
+        File file = getFile(branchName);
+        byte[] start = repo.journal.readStart(file, HEADER.length());
+        String log = commit.getLog();
+        if (start == null) {
+            log = HEADER + log;
+        } else if (!new String(start, StandardCharsets.UTF_8).equals(HEADER)) {
+            writeJournaled(branchName, HEADER + String.join("", readLogOfBranch(branchName)) + log);
+            return;
+        }
+        file.getParentFile().mkdirs();
+        repo.journal.append(file, log.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Return an iterator over the entries of the log of BRANCH on disk,
+     * newest first. A log with HEADER is read backwards, a block at a time,
+     * so only the blocks holding the entries iterated over are read.
      */
-    public String readLogOfBranch(String branchName) {
-        return readFromFile(branchName);
+    public Iterator<String> readEntriesNewestFirst(String branch) throws IOException {
+        File file = getFile(branch);
+        try (RandomAccessFile in = new RandomAccessFile(file, "r")) {
+            byte[] start = new byte[(int) Math.min(HEADER.length(), in.length())];
+            in.readFully(start);
+            if (!new String(start, StandardCharsets.UTF_8).equals(HEADER)) {
+                return splitEntries(readFromFile(branch)).iterator();
+            }
+        }
+        return new BackwardEntries(file);
     }
 
     /**
-     * Write the given commit into log of the given branch.
+     * Remove the commits whose UID is not accepted by ISKEPT from the
+     * logs of all branches. Return the number of entries removed.
      */
-    public void writeLogToBranch(String branchName, CommitData commit) {
-        String log = commit.getLog() + readLogOfBranch(branchName);
-        writeToFile(branchName, log);
+    public int prune(Predicate<String> isKept) {
+        int removed = 0;
+        for (String branch : getAllFileName()) {
+            if (branch.endsWith(Journal.LOCK_SUFFIX)) {
+                continue;
+            }
+            StringBuilder log = new StringBuilder(HEADER);
+            boolean changed = false;
+            for (String entry : readLogOfBranch(branch)) {
+                if (isKept.test(getUid(entry))) {
+                    log.append(entry);
+                } else {
+                    removed += 1;
+                    changed = true;
+                }
+            }
+            if (changed) {
+                writeJournaled(branch, log.toString());
+            }
+        }
+        return removed;
+    }
+
+    /**
+     * Return the UID of the commit of log ENTRY.
+     */
+    public static String getUid(String entry) {
+        int start = entry.indexOf('\n') + 1 + "commit ".length();
+        return entry.substring(start, start + ObjectFolder.LENGTH);
+    }
+
+    /**
+     * Return the entries of LOG, in the order of the log. An entry starts
+     * with a SEPARATOR line followed by a COMMIT_LINE; lines before the
+     * first entry, such as HEADER, are dropped.
+     */
+    static List<String> splitEntries(String log) {
+        String[] lines = log.split("\n", -1);
+        List<String> entries = new ArrayList<>();
+        StringBuilder entry = null;
+        for (int i = 0; i < lines.length - 1; i += 1) {
+            if (lines[i].equals(SEPARATOR) && lines[i + 1].matches(COMMIT_LINE)) {
+                if (entry != null) {
+                    entries.add(entry.toString());
+                }
+                entry = new StringBuilder();
+            }
+            if (entry != null) {
+                entry.append(lines[i]).append('\n');
+            }
+        }
+        if (entry != null) {
+            entries.add(entry.toString());
+        }
+        return entries;
+    }
+
+    /**
+     * Return true if BYTES, from index I to LENGTH, start with an entry: a
+     * SEPARATOR line followed by a COMMIT_LINE.
+     */
+    private static boolean isEntryStart(byte[] bytes, int i, int length) {
+        int lineEnd = i + SEPARATOR.length() + 1 + "commit ".length() + ObjectFolder.LENGTH;
+        if (lineEnd >= length || bytes[lineEnd] != '\n') {
+            return false;
+        }
+        String lines = new String(bytes, i, lineEnd - i, StandardCharsets.UTF_8);
+        return lines.startsWith(SEPARATOR + "\n")
+                && lines.substring(SEPARATOR.length() + 1).matches(COMMIT_LINE);
+    }
+
+    /**
+     * The entries of a log with HEADER, newest first, read backwards from
+     * the end of the file a block at a time.
+     */
+    private static class BackwardEntries implements Iterator<String> {
+
+        /**
+         * Constructor function reading the log FILE.
+         */
+        BackwardEntries(File file) {
+            this.file = file;
+            position = file.length();
+            tail = new byte[0];
+            tailLength = 0;
+        }
+
+        @Override
+        public boolean hasNext() {
+            if (next == null) {
+                next = findPrevious();
+            }
+            return next != null;
+        }
+
+        @Override
+        public String next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            String entry = next;
+            next = null;
+            return entry;
+        }
+
+        /**
+         * Return the last entry of the unread part of the log, or null if
+         * none is left, reading blocks backwards until its start is read.
+         */
+        private String findPrevious() {
+            int searched = tailLength;
+            while (true) {
+                for (int i = searched - 1; i >= 0; i -= 1) {
+                    if (mayStartEntry(i) && isEntryStart(tail, i, tailLength)) {
+                        String entry = new String(tail, i, tailLength - i, StandardCharsets.UTF_8);
+                        tailLength = i;
+                        return entry;
+                    }
+                }
+                if (position == 0) {
+                    return null;
+                }
+                searched = readBlock();
+            }
+        }
+
+        /**
+         * Return true if an entry may start at index I of the tail: at the
+         * start of the file or after a newline.
+         */
+        private boolean mayStartEntry(int i) {
+            return tail[i] == SEPARATOR.charAt(0)
+                    && (i == 0 ? position == 0 : tail[i - 1] == '\n');
+        }
+
+        /**
+         * Prepend the block before the tail to it. Return the index in the
+         * tail up to which entry starts remain to be searched: the end of
+         * the new block, plus the part of the old tail too short to hold
+         * an entry start on its own.
+         */
+        private int readBlock() {
+            int length = (int) Math.min(BLOCK_SIZE, position);
+            byte[] joined = new byte[length + tailLength];
+            try (RandomAccessFile in = new RandomAccessFile(file, "r")) {
+                in.seek(position - length);
+                in.readFully(joined, 0, length);
+            } catch (IOException excp) {
+                throw new UncheckedIOException(excp);
+            }
+            System.arraycopy(tail, 0, joined, length, tailLength);
+            position -= length;
+            tail = joined;
+            tailLength += length;
+            return Math.min(tailLength, length + 1);
+        }
+
+        /**
+         * The log file.
+         */
+        private final File file;
+
+        /**
+         * The offset in the file of the start of the tail.
+         */
+        private long position;
+
+        /**
+         * The bytes read from the file and not yet returned, from the
+         * position; only the first tailLength bytes are valid.
+         */
+        private byte[] tail;
+
+        /**
+         * The number of valid bytes of the tail.
+         */
+        private int tailLength;
+
+        /**
+         * The next entry, or null if it was not found yet.
+         */
+        private String next;
     }
 }
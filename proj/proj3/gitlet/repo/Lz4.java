@@ -0,0 +1,206 @@
+package gitlet.repo;
+
+import java.util.Arrays;
+
+/**
+ * This class compresses bytes in the LZ4 block format, a fast codec
+ * trading compression ratio for speed.
+ * <p>
+ * A block is a list of sequences. A sequence starts with a token byte:
+ * its high four bits are the number of literal bytes, its low four bits
+ * the length of the match minus MIN_MATCH; a value of 15 is continued by
+ * bytes added to it, up to the first byte that is not 255. The literal
+ * bytes follow, then the offset of the match back from the current
+ * position, two bytes little-endian. The last sequence only has literals.
+ * Matches are found through a hash table of the last position of each
+ * 4-byte string, so each byte is hashed once and never searched twice.
+ *
+ * @author ryan ma
+ */
+
+class Lz4 {
+
+    /**
+     * The shortest match.
+     */
+    private static final int MIN_MATCH = 4;
+
+    /**
+     * The largest offset of a match.
+     */
+    private static final int MAX_OFFSET = 0xFFFF;
+
+    /**
+     * The last bytes of a block are always literals.
+     */
+    private static final int LAST_LITERALS = 5;
+
+    /**
+     * No match starts in the last bytes of a block.
+     */
+    private static final int MATCH_LIMIT = 12;
+
+    /**
+     * The hash table has 2^HASH_BITS entries.
+     */
+    private static final int HASH_BITS = 14;
+
+    /**
+     * After 2^SKIP_STRENGTH positions without a match, the search moves
+     * forward by one more byte at each step, so that incompressible
+     * content is skipped quickly.
+     */
+    private static final int SKIP_STRENGTH = 6;
+
+    /**
+     * Return SRC compressed as one block.
+     */
+    static byte[] compress(byte[] src) {
+        byte[] out = new byte[src.length + src.length / 255 + 16];
+        int o = 0;
+        int[] table = new int[1 << HASH_BITS];
+        Arrays.fill(table, -1);
+        int limit = src.length - MATCH_LIMIT;
+        int matchEnd = src.length - LAST_LITERALS;
+
+        int anchor = 0;
+        int i = 0;
+        int misses = 0;
+        while (i < limit) {
+            int h = hash(readInt(src, i));
+            int ref = table[h];
+            table[h] = i;
+            if (ref < 0 || i - ref > MAX_OFFSET || readInt(src, ref) != readInt(src, i)) {
+                i += 1 + (misses >> SKIP_STRENGTH);
+                misses += 1;
+                continue;
+            }
+            misses = 0;
+            while (i > anchor && ref > 0 && src[i - 1] == src[ref - 1]) {
+                i -= 1;
+                ref -= 1;
+            }
+            int length = MIN_MATCH;
+            while (i + length < matchEnd && src[ref + length] == src[i + length]) {
+                length += 1;
+            }
+
+            o = writeLiterals(out, o, src, anchor, i - anchor, length - MIN_MATCH);
+            int offset = i - ref;
+            out[o++] = (byte) offset;
+            out[o++] = (byte) (offset >>> 8);
+            if (length - MIN_MATCH >= 15) {
+                o = writeLength(out, o, length - MIN_MATCH - 15);
+            }
+            i += length;
+            anchor = i;
+        }
+
+        o = writeLiterals(out, o, src, anchor, src.length - anchor, 0);
+        return Arrays.copyOf(out, o);
+    }
+
+    /**
+     * Return the RAWLENGTH bytes decompressed from the block of LENGTH
+     * bytes of SRC starting at START. Throws IllegalArgumentException if
+     * the block is corrupt.
+     */
+    static byte[] decompress(byte[] src, int start, int length, int rawLength) {
+        byte[] dst = new byte[rawLength];
+        int end = start + length;
+        int s = start;
+        int d = 0;
+        try {
+            while (true) {
+                int token = src[s++] & 0xFF;
+                int literals = token >>> 4;
+                if (literals == 15) {
+                    int b;
+                    do {
+                        b = src[s++] & 0xFF;
+                        literals += b;
+                    } while (b == 255);
+                }
+                System.arraycopy(src, s, dst, d, literals);
+                s += literals;
+                d += literals;
+                if (s >= end) {
+                    break;
+                }
+
+                int offset = (src[s] & 0xFF) | (src[s + 1] & 0xFF) << 8;
+                s += 2;
+                int match = token & 0x0F;
+                if (match == 15) {
+                    int b;
+                    do {
+                        b = src[s++] & 0xFF;
+                        match += b;
+                    } while (b == 255);
+                }
+                match += MIN_MATCH;
+                int from = d - offset;
+                if (offset == 0 || from < 0) {
+                    throw new IllegalArgumentException("bad match offset");
+                }
+                if (offset >= match) {
+                    System.arraycopy(dst, from, dst, d, match);
+                    d += match;
+                } else {
+                    for (int k = 0; k < match; k += 1) {
+                        dst[d++] = dst[from + k];
+                    }
+                }
+            }
+        } catch (IndexOutOfBoundsException excp) {
+            throw new IllegalArgumentException("truncated block");
+        }
+        if (d != rawLength) {
+            throw new IllegalArgumentException("wrong length");
+        }
+        return dst;
+    }
+
+    /**
+     * Write into OUT at O the token of a sequence with a match of MATCH
+     * plus MIN_MATCH bytes and the LENGTH literal bytes of SRC starting
+     * at START. Return the position after them.
+     */
+    private static int writeLiterals(byte[] out, int o, byte[] src, int start, int length,
+                                     int match) {
+        out[o++] = (byte) (Math.min(length, 15) << 4 | Math.min(match, 15));
+        if (length >= 15) {
+            o = writeLength(out, o, length - 15);
+        }
+        System.arraycopy(src, start, out, o, length);
+        return o + length;
+    }
+
+    /**
+     * Write into OUT at O the rest VALUE of a length, as bytes of 255 and
+     * a last byte. Return the position after them.
+     */
+    private static int writeLength(byte[] out, int o, int value) {
+        while (value >= 255) {
+            out[o++] = (byte) 255;
+            value -= 255;
+        }
+        out[o++] = (byte) value;
+        return o;
+    }
+
+    /**
+     * Return the four bytes of SRC starting at I.
+     */
+    private static int readInt(byte[] src, int i) {
+        return (src[i] & 0xFF) | (src[i + 1] & 0xFF) << 8
+                | (src[i + 2] & 0xFF) << 16 | (src[i + 3] & 0xFF) << 24;
+    }
+
+    /**
+     * Return the index in the hash table of the 4-byte string VALUE.
+     */
+    private static int hash(int value) {
+        return (value * -1640531535) >>> (32 - HASH_BITS);
+    }
+}
@@ -0,0 +1,169 @@
+package gitlet.repo;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * This class measures the line merge on large synthetic files: the time
+ * to compare a version with the base, and to merge two versions.
+ * <p>
+ * Usage: java gitlet.repo.MergeBenchmark [--lines=N] [--changes=C] [--rounds=R]
+ * <p>
+ * The base is N numbered lines of text. Ours and theirs each make C
+ * changes to it, at random positions drawn from a fixed seed: a change
+ * replaces or deletes a line, or inserts up to three lines before it.
+ * Some of the changes of both versions fall on the same lines, so the
+ * merge has conflicts as well.
+ * Each round compares ours with the base and merges both versions, and
+ * the fastest of the rounds is reported, so that the first rounds warm
+ * up the JIT compiler.
+ *
+ * @author ryan ma
+ */
+
+public class MergeBenchmark {
+
+    /**
+     * The default number of lines of the base.
+     */
+    static final int LINES = 200000;
+
+    /**
+     * The default number of changes of each version.
+     */
+    static final int CHANGES = 1000;
+
+    /**
+     * The default number of rounds.
+     */
+    static final int ROUNDS = 5;
+
+    /**
+     * Seed of the positions and kinds of the changes.
+     */
+    static final long SEED = 61;
+
+    /**
+     * Run the benchmark with ARGS.
+     */
+    public static void main(String[] args) {
+        int lines = LINES;
+        int changes = CHANGES;
+        int rounds = ROUNDS;
+        for (String arg : args) {
+            if (arg.startsWith("--lines=")) {
+                lines = Integer.parseInt(arg.substring("--lines=".length()));
+            } else if (arg.startsWith("--changes=")) {
+                changes = Integer.parseInt(arg.substring("--changes=".length()));
+            } else if (arg.startsWith("--rounds=")) {
+                rounds = Integer.parseInt(arg.substring("--rounds=".length()));
+            } else {
+                System.err.println("Usage: java gitlet.repo.MergeBenchmark"
+                        + " [--lines=N] [--changes=C] [--rounds=R]");
+                System.exit(1);
+            }
+        }
+
+        Random random = new Random(SEED);
+        List<String> baseLines = new ArrayList<>(lines);
+        for (int i = 0; i < lines; i += 1) {
+            baseLines.add(String.format("line %08d of the base, with some more text\n", i));
+        }
+        int[] shared = positions(random, lines, changes / 10);
+        byte[] base = join(baseLines);
+        byte[] ours = join(change(baseLines, positions(random, lines, changes), shared,
+                "ours", random));
+        byte[] theirs = join(change(baseLines, positions(random, lines, changes), shared,
+                "theirs", random));
+        System.out.printf("%d lines, %.1f MB, %d changes in each version%n",
+                lines, base.length / 1e6, changes);
+
+        long bestDiff = Long.MAX_VALUE;
+        long bestMerge = Long.MAX_VALUE;
+        int hunks = 0;
+        LineMerge merge = null;
+        for (int round = 0; round < rounds; round += 1) {
+            long start = System.nanoTime();
+            hunks = Diff.diff(Diff.splitLines(base), Diff.splitLines(ours)).size();
+            bestDiff = Math.min(bestDiff, System.nanoTime() - start);
+
+            start = System.nanoTime();
+            merge = new LineMerge(base, ours, theirs);
+            bestMerge = Math.min(bestMerge, System.nanoTime() - start);
+        }
+        System.out.printf("%-6s %10s %10s%n", "step", "ms", "MB/s");
+        System.out.printf("%-6s %10.1f %10.1f   %d hunks%n", "diff", bestDiff / 1e6,
+                base.length / 1e6 / (bestDiff / 1e9), hunks);
+        System.out.printf("%-6s %10.1f %10.1f   %.1f MB merged, %s%n", "merge", bestMerge / 1e6,
+                base.length / 1e6 / (bestMerge / 1e9), merge.getContent().length / 1e6,
+                merge.hasConflict() ? "with conflicts" : "without conflicts");
+    }
+
+    /**
+     * Return COUNT positions drawn by RANDOM among the LINES lines, in
+     * increasing order.
+     */
+    private static int[] positions(Random random, int lines, int count) {
+        return random.ints(count, 0, lines).sorted().toArray();
+    }
+
+    /**
+     * Return BASELINES with a change made by VERSION at each of POSITIONS
+     * and SHARED, drawn by RANDOM. A change replaces or deletes a line,
+     * or inserts up to three lines before it; the changes at SHARED
+     * replace the same lines in each version, with its own text.
+     */
+    private static List<String> change(List<String> baseLines, int[] positions, int[] shared,
+                                       String version, Random random) {
+        List<String> lines = new ArrayList<>(baseLines.size() + positions.length);
+        int p = 0, s = 0;
+        for (int i = 0; i < baseLines.size(); i += 1) {
+            boolean isShared = false;
+            boolean changed = false;
+            while (s < shared.length && shared[s] == i) {
+                s += 1;
+                isShared = true;
+            }
+            while (p < positions.length && positions[p] == i) {
+                p += 1;
+                changed = true;
+            }
+            if (isShared) {
+                lines.add(String.format("line %08d changed by %s in both\n", i, version));
+                continue;
+            }
+            if (!changed) {
+                lines.add(baseLines.get(i));
+                continue;
+            }
+            int count = 1 + random.nextInt(3);
+            switch (random.nextInt(3)) {
+                case 0 -> lines.add(String.format("line %08d changed by %s\n", i, version));
+                case 1 -> {
+                    for (int k = 0; k < count; k += 1) {
+                        lines.add(String.format("line inserted by %s before %08d\n", version, i));
+                    }
+                    lines.add(baseLines.get(i));
+                }
+                default -> {
+                    /* The line is deleted. */
+                }
+            }
+        }
+        return lines;
+    }
+
+    /**
+     * Return the content of a file made of LINES.
+     */
+    private static byte[] join(List<String> lines) {
+        ByteArrayOutputStream content = new ByteArrayOutputStream();
+        for (String line : lines) {
+            content.writeBytes(line.getBytes(StandardCharsets.UTF_8));
+        }
+        return content.toByteArray();
+    }
+}
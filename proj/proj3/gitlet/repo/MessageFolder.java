@@ -0,0 +1,239 @@
+package gitlet.repo;
+
+import gitlet.Utils;
+import gitlet.objects.CommitData;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.TreeSet;
+
+import static gitlet.Main.repo;
+
+/**
+ * This class represents the ".gitlet/messages" folder.
+ * It is an index from commit messages to commit UIDs, used by the find
+ * command. For each message there is a file named by the SHA-1 of the
+ * message, listing the UIDs of all commits with that message, one per
+ * line. The "tokens" sub-folder has one file per lowercase word,
+ * listing the UIDs of all commits whose message contains that word.
+ *
+ * @author ryan ma
+ */
+
+public class MessageFolder extends Folder {
+
+    /**
+     * Folder for the message index.
+     */
+    public static final String FOLDER_NAME = ".gitlet/messages";
+
+    /**
+     * Sub-folder for the token index.
+     */
+    static final String TOKEN_FOLDER = "tokens";
+
+    /**
+     * Words longer than this are not indexed.
+     */
+    static final int MAX_TOKEN_LENGTH = 200;
+
+    /**
+     * Token file listing the commits whose message has a word longer
+     * than MAX_TOKEN_LENGTH. It is not a valid word, so it cannot clash
+     * with a token.
+     */
+    static final String LONG_WORDS = "_long";
+
+    MessageFolder() {
+        super(FOLDER_NAME);
+        tokenFolder = new Folder(Utils.join(FOLDER_NAME, TOKEN_FOLDER).getPath());
+    }
+
+    /**
+     * Return true if the index has been created.
+     */
+    public boolean exists() {
+        return folder.isDirectory();
+    }
+
+    /**
+     * Create the index folders.
+     */
+    public void create() {
+        folder.mkdirs();
+        tokenFolder.folder.mkdir();
+    }
+
+    /**
+     * Add COMMIT to the index, creating the index first if this
+     * repository does not have one yet.
+     */
+    public void update(CommitData commit) throws IOException {
+        if (exists()) {
+            addCommit(commit);
+        } else {
+            rebuild();
+        }
+    }
+
+    /**
+     * Add COMMIT to the index.
+     */
+    private void addCommit(CommitData commit) throws IOException {
+        String uid = commit.getUID();
+        appendToFile(Utils.sha1(commit.getMessage()), uid + "\n");
+        for (String token : tokenize(commit.getMessage())) {
+            tokenFolder.appendToFile(token, uid + "\n");
+        }
+        if (hasLongWord(commit.getMessage())) {
+            tokenFolder.appendToFile(LONG_WORDS, uid + "\n");
+        }
+    }
+
+    /**
+     * Return the UIDs of all commits with exactly MESSAGE, in the order
+     * they were made.
+     */
+    public List<String> findMessage(String message) {
+        return readUids(this, Utils.sha1(message));
+    }
+
+    /**
+     * Return the UIDs of all commits whose message contains WORD,
+     * ignoring case.
+     */
+    public List<String> findWord(String word) {
+        String token = word.toLowerCase(Locale.ROOT);
+        if (!isToken(token)) {
+            return new ArrayList<>();
+        }
+        return readUids(tokenFolder, token);
+    }
+
+    /**
+     * Return the UIDs of all commits whose message contains TEXT.
+     * Candidates are the commits that, for every word of TEXT, have a
+     * token containing that word. Only candidates are read from the
+     * object folder to check their message.
+     */
+    public List<String> findSubstring(String text) {
+        Set<String> candidates = null;
+        List<String> allTokens = tokenFolder.getAllFileName();
+        for (String piece : tokenize(text)) {
+            Set<String> matches = new LinkedHashSet<>(readUids(tokenFolder, LONG_WORDS));
+            for (String token : allTokens) {
+                if (isToken(token) && token.contains(piece)) {
+                    matches.addAll(readUids(tokenFolder, token));
+                }
+            }
+            if (candidates == null) {
+                candidates = matches;
+            } else {
+                candidates.retainAll(matches);
+            }
+        }
+        if (candidates == null) {
+            candidates = getAllUids();
+        }
+
+        List<String> result = new ArrayList<>();
+        for (String uid : candidates) {
+            if (repo.objectFolder.getCommit(uid).getMessage().contains(text)) {
+                result.add(uid);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Return the UIDs of all indexed commits.
+     */
+    private Set<String> getAllUids() {
+        Set<String> uids = new LinkedHashSet<>();
+        for (String fileName : getAllFileName()) {
+            uids.addAll(readUids(this, fileName));
+        }
+        return uids;
+    }
+
+    /**
+     * Create the index from all commits reachable from any branch, for
+     * repositories made before the index existed or after gc deleted
+     * commits. An existing index is emptied first.
+     */
+    public void rebuild() throws IOException {
+        create();
+        for (String fileName : getAllFileName()) {
+            getFile(fileName).delete();
+        }
+        for (String fileName : tokenFolder.getAllFileName()) {
+            tokenFolder.getFile(fileName).delete();
+        }
+        Set<String> uids = new LinkedHashSet<>();
+        for (String branch : repo.latestFolder.getAllBranches()) {
+            uids.addAll(repo.commitGraph.getHistory(repo.latestFolder.getLatestUid(branch)));
+        }
+        for (String branch : repo.branchFolder.getAllRefs()) {
+            uids.addAll(repo.commitGraph.getHistory(repo.branchFolder.getHeadUid(branch)));
+        }
+        for (String uid : uids) {
+            addCommit(repo.objectFolder.getCommit(uid));
+        }
+    }
+
+    /**
+     * Return the UIDs listed in file FILENAME of DIR, without duplicates.
+     */
+    private static List<String> readUids(Folder dir, String fileName) {
+        if (!dir.checkExist(fileName)) {
+            return new ArrayList<>();
+        }
+        Set<String> uids = new LinkedHashSet<>(
+                Arrays.asList(dir.readFromFile(fileName).split("\n")));
+        uids.remove("");
+        return new ArrayList<>(uids);
+    }
+
+    /**
+     * Return the distinct lowercase words of TEXT that can be indexed.
+     */
+    private static Set<String> tokenize(String text) {
+        Set<String> tokens = new TreeSet<>();
+        for (String word : text.toLowerCase(Locale.ROOT).split("[^a-z0-9]+")) {
+            if (isToken(word)) {
+                tokens.add(word);
+            }
+        }
+        return tokens;
+    }
+
+    /**
+     * Return true if TEXT has a word too long to be indexed.
+     */
+    private static boolean hasLongWord(String text) {
+        for (String word : text.toLowerCase(Locale.ROOT).split("[^a-z0-9]+")) {
+            if (word.length() > MAX_TOKEN_LENGTH) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Return true if WORD can be indexed as a token.
+     */
+    private static boolean isToken(String word) {
+        return !word.isEmpty() && word.length() <= MAX_TOKEN_LENGTH
+                && word.matches("[a-z0-9]+");
+    }
+
+    /**
+     * The token index folder.
+     */
+    private final Folder tokenFolder;
+}
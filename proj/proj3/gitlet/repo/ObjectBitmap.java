@@ -0,0 +1,219 @@
+package gitlet.repo;
+
+import gitlet.Utils;
+
+import java.io.ByteArrayOutputStream;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.PriorityQueue;
+
+/**
+ * This class is a set of marked objects, used by gc to find the objects
+ * reachable from the branches. It is a bitmap over a sorted table of the
+ * UIDs of all objects of the repository, stored as one array of raw
+ * 20-byte SHA-1s: an object costs 20 bytes in the table and one bit in
+ * the bitmap, instead of a string in a hash set. Objects are found in the
+ * table by binary search.
+ *
+ * @author ryan ma
+ */
+
+public class ObjectBitmap {
+
+    /**
+     * Length of a raw SHA-1.
+     */
+    static final int SHA_WIDTH = 20;
+
+    /**
+     * Constructor function with SOURCES, iterators over UIDs in sorted
+     * order, such as the loose objects and each pack. A UID in several
+     * sources is in the table once.
+     */
+    ObjectBitmap(List<Iterator<String>> sources) {
+        PriorityQueue<Source> queue = new PriorityQueue<>();
+        for (Iterator<String> uids : sources) {
+            if (uids.hasNext()) {
+                queue.add(new Source(uids));
+            }
+        }
+        ByteArrayOutputStream table = new ByteArrayOutputStream();
+        String last = null;
+        while (!queue.isEmpty()) {
+            Source source = queue.poll();
+            if (!source.head.equals(last)) {
+                table.writeBytes(Utils.uidToBytes(source.head));
+                last = source.head;
+            }
+            if (source.advance()) {
+                queue.add(source);
+            }
+        }
+        uids = table.toByteArray();
+        size = uids.length / SHA_WIDTH;
+        marks = new BitSet(size);
+    }
+
+    /**
+     * Return the number of objects in the table.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Return the number of marked objects.
+     */
+    public int markedCount() {
+        return marks.cardinality();
+    }
+
+    /**
+     * Return the index of the object with full UID in the table, or -1
+     * if it is not in the table.
+     */
+    int indexOf(String uid) {
+        byte[] key = Utils.uidToBytes(uid);
+        int low = 0;
+        int high = size - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            int cmp = Arrays.compareUnsigned(uids, mid * SHA_WIDTH, (mid + 1) * SHA_WIDTH,
+                    key, 0, SHA_WIDTH);
+            if (cmp < 0) {
+                low = mid + 1;
+            } else if (cmp > 0) {
+                high = mid - 1;
+            } else {
+                return mid;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Mark the object with full UID. Return true if it is in the table
+     * and was not marked yet.
+     */
+    boolean mark(String uid) {
+        int index = indexOf(uid);
+        if (index < 0 || marks.get(index)) {
+            return false;
+        }
+        marks.set(index);
+        return true;
+    }
+
+    /**
+     * Return true if the object at INDEX of the table is marked.
+     */
+    boolean isMarked(int index) {
+        return marks.get(index);
+    }
+
+    /**
+     * Return true if the object with full UID is in the table and marked.
+     */
+    public boolean isMarked(String uid) {
+        int index = indexOf(uid);
+        return index >= 0 && marks.get(index);
+    }
+
+    /**
+     * Return the UID of the object at INDEX of the table.
+     */
+    String uidAt(int index) {
+        return Utils.bytesToUid(Arrays.copyOfRange(uids, index * SHA_WIDTH,
+                (index + 1) * SHA_WIDTH));
+    }
+
+    /**
+     * Mark every object of the table.
+     */
+    void markAll() {
+        marks.set(0, size);
+    }
+
+    /**
+     * Return the UIDs of the marked objects, in sorted order. Each UID is
+     * made from the table as it is iterated over, so the marked objects
+     * are never held as strings all at once.
+     */
+    Iterable<String> markedUids() {
+        return () -> new Iterator<>() {
+            private int next = marks.nextSetBit(0);
+
+            @Override
+            public boolean hasNext() {
+                return next >= 0;
+            }
+
+            @Override
+            public String next() {
+                if (next < 0) {
+                    throw new NoSuchElementException();
+                }
+                String uid = uidAt(next);
+                next = marks.nextSetBit(next + 1);
+                return uid;
+            }
+        };
+    }
+
+    /**
+     * A sorted source of UIDs with its next UID, ordered by that UID.
+     */
+    private static class Source implements Comparable<Source> {
+        /**
+         * Constructor function with UIDS, which has a next UID.
+         */
+        Source(Iterator<String> uids) {
+            this.uids = uids;
+            head = uids.next();
+        }
+
+        /**
+         * Move to the next UID. Return false if there is none.
+         */
+        boolean advance() {
+            if (!uids.hasNext()) {
+                return false;
+            }
+            head = uids.next();
+            return true;
+        }
+
+        @Override
+        public int compareTo(Source other) {
+            return head.compareTo(other.head);
+        }
+
+        /**
+         * The remaining UIDs.
+         */
+        private final Iterator<String> uids;
+
+        /**
+         * The next UID.
+         */
+        private String head;
+    }
+
+    /**
+     * The raw SHA-1s of all objects, in sorted order.
+     */
+    private final byte[] uids;
+
+    /**
+     * The number of objects.
+     */
+    private final int size;
+
+    /**
+     * One bit for each object of the table, set if it is marked.
+     */
+    private final BitSet marks;
+}
@@ -0,0 +1,104 @@
+package gitlet.repo;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.ToLongFunction;
+
+/**
+ * This class is a size-bounded LRU cache of objects read from the object
+ * folder, keyed by UID. Commits and bolbs never change once written,
+ * so entries never need to be invalidated.
+ * It counts hits and misses, which the --stats option prints.
+ *
+ * @author ryan ma
+ */
+
+class ObjectCache<V> {
+
+    /**
+     * Constructor function with NAME, used by the statistics, the
+     * maximum total weight MAXWEIGHT and WEIGHER, which returns the
+     * weight of a value.
+     */
+    ObjectCache(String name, long maxWeight, ToLongFunction<V> weigher) {
+        this.name = name;
+        this.maxWeight = maxWeight;
+        this.weigher = weigher;
+    }
+
+    /**
+     * Return the value cached for UID, or null.
+     */
+    synchronized V get(String uid) {
+        V value = entries.get(uid);
+        if (value == null) {
+            misses += 1;
+        } else {
+            hits += 1;
+        }
+        return value;
+    }
+
+    /**
+     * Cache VALUE for UID, evicting the least recently used entries
+     * until the total weight fits. A value heavier than a quarter of the
+     * maximum weight is not cached.
+     */
+    synchronized void put(String uid, V value) {
+        long weight = weigher.applyAsLong(value);
+        if (weight > maxWeight / 4 || entries.containsKey(uid)) {
+            return;
+        }
+        entries.put(uid, value);
+        totalWeight += weight;
+
+        var iterator = entries.entrySet().iterator();
+        while (totalWeight > maxWeight && iterator.hasNext()) {
+            totalWeight -= weigher.applyAsLong(iterator.next().getValue());
+            iterator.remove();
+        }
+    }
+
+    /**
+     * Return a line of statistics of this cache.
+     */
+    synchronized String getStats() {
+        return String.format("%s cache: %d hits, %d misses, %d entries",
+                name, hits, misses, entries.size());
+    }
+
+    /**
+     * The name of this cache.
+     */
+    private final String name;
+
+    /**
+     * The maximum total weight of the cached values.
+     */
+    private final long maxWeight;
+
+    /**
+     * Returns the weight of a value.
+     */
+    private final ToLongFunction<V> weigher;
+
+    /**
+     * The cached values, least recently used first.
+     */
+    private final Map<String, V> entries = new LinkedHashMap<>(16, 0.75f, true);
+
+    /**
+     * The total weight of the cached values.
+     */
+    private long totalWeight;
+
+    /**
+     * The number of lookups that found a value.
+     */
+    private long hits;
+
+    /**
+     * The number of lookups that found nothing.
+     */
+    private long misses;
+}
@@ -5,13 +5,46 @@ import gitlet.objects.Bolb;
 import gitlet.objects.CommitData;
 import gitlet.objects.GitletException;
 import gitlet.objects.GitletObject;
+import gitlet.objects.Tree;
 
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
 import java.io.File;
+import java.io.FileInputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.function.Predicate;
+import java.util.function.UnaryOperator;
+import java.util.stream.Stream;
+
+import static gitlet.Main.repo;
 
 /**
  * This class represents the object dir in .gitlet.
+ * Objects are stored either loose, one file per object in
+ * ".gitlet/objects/xx/", or in packs in ".gitlet/objects/pack".
+ * The content of full bolbs is compressed with the codec set for the
+ * repository.
  *
  * @author ryan ma
  */
@@ -23,33 +56,71 @@ public class ObjectFolder extends Folder {
      */
     public static final String FOLDER_NAME = ".gitlet/objects";
 
+    /**
+     * Folder for packs.
+     */
+    static final String PACK_FOLDER = ".gitlet/objects/pack";
+
     /**
      * The length of full UID.
      */
     static final int LENGTH = 40;
 
+    /**
+     * The maximum length of a delta chain.
+     */
+    static final int MAX_DEPTH = 16;
+
+    /**
+     * The number of commits kept in the commit cache.
+     */
+    static final int COMMIT_CACHE_SIZE = 1024;
+
+    /**
+     * The number of tree nodes kept in the tree cache.
+     */
+    static final int TREE_CACHE_SIZE = 4096;
+
+    /**
+     * The total size, in bytes, of bolb contents kept in the bolb cache.
+     */
+    static final long BOLB_CACHE_SIZE = 16L << 20;
+
+    /**
+     * The smallest file stored as a manifest of content-defined chunks.
+     * Smaller files may be stored as deltas, which needs both versions
+     * in memory; larger ones share their unchanged chunks instead.
+     */
+    static final long CHUNK_THRESHOLD = 1L << 20;
+
     public ObjectFolder() {
         super(FOLDER_NAME);
     }
 
     /**
-     * Get an object file by its UID.
-     *
-     * @param uid: the uid of this object file.
-     * @return the object file.
+     * Return the full UID of an object by its UID or UID prefix,
+     * or null if there is no such object.
      */
-    private File getObjectFile(String uid) {
+    private String resolveUid(String uid) {
         if (uid.length() == LENGTH) {
-            return getFileWithFullUID(uid);
+            if (getFileWithFullUID(uid).exists()) {
+                return uid;
+            }
+            for (PackFile pack : getPacks()) {
+                if (pack.contains(uid)) {
+                    return uid;
+                }
+            }
+            return null;
         } else if (uid.length() < LENGTH) {
-            return getFileWithPrefix(uid);
+            return resolvePrefix(uid);
         } else {
             throw new GitletException("Wrong UID.");
         }
     }
 
     /**
-     * Return path to a GitletObject with full UID.
+     * Return path to a loose GitletObject with full UID.
      */
     private File getFileWithFullUID(String uid) {
         File dir = Utils.join(FOLDER_NAME, uid.substring(0, 2));
@@ -57,55 +128,355 @@ public class ObjectFolder extends Folder {
     }
 
     /**
-     * Return path to a GitletObject with prefix UID.
+     * Return the full UID of the object with prefix UID, or null if there
+     * is none. Loose objects are found in the UID table and packed objects
+     * in the pack indices, both by binary search. Throws a GitletException
+     * if more than one object starts with UID.
      */
-    private File getFileWithPrefix(String uid) {
+    private String resolvePrefix(String uid) {
         if (uid.length() < 3) {
             throw new GitletException("UID too short.");
         }
 
-        String filePrefix = uid.substring(2);
-        String fileName = filePrefix;
-
-        File dir = Utils.join(FOLDER_NAME, uid.substring(0, 2));
-        List<String> fileNames = Utils.plainFilenamesIn(dir);
-        assert fileNames != null;
+        TreeSet<String> found = new TreeSet<>(uidTable.findPrefix(uid));
+        for (PackFile pack : getPacks()) {
+            found.addAll(pack.findPrefix(uid));
+        }
+        if (found.size() > 1) {
+            throw new GitletException("Ambiguous UID " + uid + ", it could be:\n"
+                    + String.join("\n", found));
+        }
+        return found.isEmpty() ? null : found.first();
+    }
 
-        for (String name : fileNames) {
-            if (name.substring(0, uid.length() - 2).equals(filePrefix)) {
-                fileName = name;
-                break;
+    /**
+     * Return the result of READER applied to the range of the stored bytes
+     * of the object with full UID, in the loose file or in a pack.
+     */
+    private <T> T readRange(String uid, RangeReader<T> reader) {
+        try {
+            File file = getFileWithFullUID(uid);
+            if (file.exists()) {
+                try (FileChannel in = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+                    return reader.read(in, 0, in.size());
+                }
             }
+            for (PackFile pack : getPacks()) {
+                long[] range = pack.locate(uid);
+                if (range != null) {
+                    return reader.read(pack.getChannel(), range[0], range[1]);
+                }
+            }
+        } catch (IOException excp) {
+            throw new GitletException(excp.getMessage());
         }
+        throw new GitletException("No object with that id exists.");
+    }
+
+    /**
+     * Return the stored bytes of the object with full UID.
+     */
+    private byte[] readBytes(String uid) {
+        return readRange(uid, (in, start, length) -> readFully(in, start, (int) length));
+    }
 
-        return Utils.join(dir, fileName);
+    /**
+     * Return LENGTH bytes read from IN at START.
+     */
+    private static byte[] readFully(FileChannel in, long start, int length) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(length);
+        while (buffer.hasRemaining()) {
+            if (in.read(buffer, start + buffer.position()) < 0) {
+                throw new EOFException();
+            }
+        }
+        return buffer.array();
     }
 
     /**
      * Return the bolb in the given commit.
      */
     public Bolb getBolb(CommitData commit, String fileName) {
-        String uid = commit.getBolbUid(fileName);
-        File path = getObjectFile(uid);
-        return Utils.readObject(path, Bolb.class);
+        return getBolb(commit.getBolbUid(fileName));
+    }
+
+    /**
+     * Return the bolb with full UID, with its whole content in memory.
+     * A delta bolb is rebuilt from its base. Contents are kept in the
+     * bolb cache, so that walking a delta chain only rebuilds each base
+     * once and a bolb read twice, as merge does, is only read once.
+     */
+    public Bolb getBolb(String uid) {
+        byte[] content = bolbCache.get(uid);
+        if (content != null) {
+            return new Bolb(content);
+        }
+
+        Bolb stored = decodeBolb(uid, readBytes(uid));
+        if (stored.isDelta()) {
+            byte[] base = getBolb(stored.getBaseUid()).getContent();
+            content = Delta.apply(base, stored.getDelta());
+        } else if (stored.isManifest()) {
+            ByteArrayOutputStream chunks = new ByteArrayOutputStream();
+            for (String chunkUid : stored.getChunkUids()) {
+                chunks.writeBytes(getBolb(chunkUid).getContent());
+            }
+            content = chunks.toByteArray();
+        } else {
+            content = stored.getContent();
+        }
+        bolbCache.put(uid, content);
+        return new Bolb(content);
+    }
+
+    /**
+     * Return the bolb with full UID decoded from its stored form BYTES,
+     * decompressing the content of a compressed bolb.
+     */
+    static Bolb decodeBolb(String uid, byte[] bytes) {
+        if (bytes[0] != Bolb.COMPRESSED_BOLB) {
+            return Bolb.decode(uid, bytes);
+        }
+        ByteBuffer header = ByteBuffer.wrap(bytes);
+        header.get();
+        Codec codec = Codec.forId(header.get());
+        int rawLength = header.getInt();
+        return new Bolb(codec.decompress(bytes, Bolb.COMPRESSED_HEADER,
+                bytes.length - Bolb.COMPRESSED_HEADER, rawLength));
+    }
+
+    /**
+     * Return the stored form of the full bolb with CONTENT, compressed
+     * with CODEC unless that does not make it smaller.
+     */
+    static byte[] encodeBolb(byte[] content, Codec codec) {
+        if (codec != Codec.NONE) {
+            byte[] compressed = codec.compress(content);
+            if (Bolb.COMPRESSED_HEADER + compressed.length < 1 + content.length) {
+                ByteBuffer buffer = ByteBuffer.allocate(Bolb.COMPRESSED_HEADER + compressed.length);
+                buffer.put(Bolb.COMPRESSED_BOLB);
+                buffer.put(codec.getId());
+                buffer.putInt(content.length);
+                buffer.put(compressed);
+                return buffer.array();
+            }
+        }
+        return new Bolb(content).encode();
+    }
+
+    /**
+     * Return the length of the delta chain ending at the bolb with
+     * full UID, reading only the header of the stored bolb.
+     */
+    private int getDeltaDepth(String uid) {
+        return readRange(uid, (in, start, length) -> {
+            if (length < Bolb.DELTA_HEADER) {
+                return 0;
+            }
+            ByteBuffer header = ByteBuffer.wrap(readFully(in, start, Bolb.DELTA_HEADER));
+            return Bolb.isDeltaTag(header.get()) ? header.getInt() : 0;
+        });
+    }
+
+    /**
+     * Write the content of the bolb with full UID into file DEST. Full
+     * bolbs and the chunks of manifests are streamed from the object
+     * files without holding the content in memory; delta bolbs are
+     * rebuilt first.
+     */
+    public void copyBolb(String uid, File dest) throws IOException {
+        try (FileChannel out = FileChannel.open(dest.toPath(), StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            writeBolb(uid, out);
+        }
     }
 
     /**
-     * Return the commit with UID.
+     * Append the content of the bolb with full UID to OUT.
+     */
+    private void writeBolb(String uid, FileChannel out) throws IOException {
+        boolean copied = readRange(uid, (in, start, length) -> {
+            ByteBuffer tag = ByteBuffer.allocate(1);
+            in.read(tag, start);
+            if (tag.get(0) != Bolb.FULL_BOLB) {
+                return false;
+            }
+            transfer(in, start + 1, length - 1, out);
+            return true;
+        });
+        if (copied) {
+            return;
+        }
+
+        Bolb stored = decodeBolb(uid, readBytes(uid));
+        if (stored.isManifest()) {
+            for (String chunkUid : stored.getChunkUids()) {
+                writeBolb(chunkUid, out);
+            }
+            return;
+        }
+        ByteBuffer content = ByteBuffer.wrap(getBolb(uid).getContent());
+        while (content.hasRemaining()) {
+            out.write(content);
+        }
+    }
+
+    /**
+     * Write the content of file SOURCE, whose UID is UID, as a bolb.
+     * A file of at least CHUNK_THRESHOLD bytes is stored as a manifest of
+     * chunks. A smaller file is stored as a delta against BASEUID if that
+     * bolb exists and the delta is much smaller than the content, with
+     * delta chains at most MAX_DEPTH long. Otherwise the file is
+     * compressed with the codec of the repository, or, without
+     * compression, streamed into the object file through a fixed-size
+     * buffer.
+     */
+    public void saveBolb(File source, String uid, String baseUid) throws IOException {
+        if (resolveUid(uid) != null) {
+            return;
+        }
+        if (source.length() >= CHUNK_THRESHOLD) {
+            saveChunks(source, uid);
+            return;
+        }
+
+        if (baseUid != null && !baseUid.equals(uid) && resolveUid(baseUid) != null) {
+            int depth = getDeltaDepth(baseUid) + 1;
+            if (depth <= MAX_DEPTH) {
+                byte[] target = Utils.readContents(source);
+                byte[] delta = Delta.create(getBolb(baseUid).getContent(), target);
+                if (delta.length < target.length / 2) {
+                    writeLoose(uid, new Bolb(uid, baseUid, delta, depth).encode());
+                    return;
+                }
+            }
+        }
+
+        Codec codec = repo.getConfig().getCodec();
+        if (codec != Codec.NONE) {
+            writeLoose(uid, encodeBolb(Utils.readContents(source), codec));
+            return;
+        }
+        File tmp = File.createTempFile("tmp-", null, folder);
+        try (FileChannel in = FileChannel.open(source.toPath(), StandardOpenOption.READ);
+             FileChannel out = FileChannel.open(tmp.toPath(), StandardOpenOption.WRITE)) {
+            out.write(ByteBuffer.wrap(new byte[]{Bolb.FULL_BOLB}));
+            transfer(in, 0, in.size(), out);
+        }
+        moveLoose(tmp, uid);
+    }
+
+    /**
+     * Split file SOURCE, whose UID is UID, into content-defined chunks,
+     * store each chunk that is not stored yet as a compressed full bolb,
+     * and store
+     * the list of chunk UIDs as the manifest with UID. Versions of a file
+     * that differ in one region share all the other chunks.
+     */
+    private void saveChunks(File source, String uid) throws IOException {
+        List<String> chunkUids = new ArrayList<>();
+        Codec codec = repo.getConfig().getCodec();
+        try (InputStream in = new BufferedInputStream(new FileInputStream(source),
+                Utils.BUFFER_SIZE)) {
+            Chunker.split(in, (buffer, length) -> {
+                byte[] chunk = Arrays.copyOf(buffer, length);
+                String chunkUid = Utils.sha1((Object) chunk);
+                if (resolveUid(chunkUid) == null) {
+                    writeLoose(chunkUid, encodeBolb(chunk, codec));
+                }
+                chunkUids.add(chunkUid);
+            });
+        }
+        writeLoose(uid, new Bolb(uid, chunkUids).encode());
+    }
+
+    /**
+     * Copy LENGTH bytes of IN starting at START to the end of OUT.
+     */
+    private static void transfer(FileChannel in, long start, long length, FileChannel out)
+            throws IOException {
+        long done = 0;
+        while (done < length) {
+            long n = in.transferTo(start + done, length - done, out);
+            if (n <= 0) {
+                throw new EOFException();
+            }
+            done += n;
+        }
+    }
+
+    /**
+     * Write BYTES as the loose object with full UID.
+     */
+    private void writeLoose(String uid, byte[] bytes) throws IOException {
+        File tmp = File.createTempFile("tmp-", null, folder);
+        Utils.writeContents(tmp, (Object) bytes);
+        moveLoose(tmp, uid);
+    }
+
+    /**
+     * Move the temporary file TMP into place as the loose object with
+     * full UID, so that readers never see a partial object.
+     */
+    private void moveLoose(File tmp, String uid) throws IOException {
+        File file = getFileWithFullUID(uid);
+        file.getParentFile().mkdir();
+        Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        uidTable.add(uid);
+    }
+
+    /**
+     * Return the commit with UID, or null if there is no such object or
+     * it is not a commit. Commits never change, so each one is
+     * deserialized at most once while it stays in the commit cache, and
+     * a full UID found in the cache is not looked up on disk.
      */
     public CommitData getCommit(String uid) {
-        if (containsCommit(uid)) {
-            File path = getObjectFile(uid);
-            return Utils.readObject(path, CommitData.class);
+        String fullUid = uid.length() == LENGTH ? uid : resolveUid(uid);
+        if (fullUid == null) {
+            return null;
         }
-        return null;
+        CommitData commit = commitCache.get(fullUid);
+        if (commit == null) {
+            if (resolveUid(fullUid) == null) {
+                return null;
+            }
+            byte[] bytes = readBytes(fullUid);
+            if (!CommitData.isCommit(bytes)) {
+                return null;
+            }
+            commit = CommitData.decode(bytes);
+            commitCache.put(fullUid, commit);
+        }
+        return commit;
+    }
+
+    /**
+     * Return the tree node with full UID.
+     */
+    public Tree getTree(String uid) {
+        Tree tree = treeCache.get(uid);
+        if (tree == null) {
+            tree = Tree.decode(readBytes(uid));
+            treeCache.put(uid, tree);
+        }
+        return tree;
+    }
+
+    /**
+     * Return the hit and miss counts of the object caches, one cache
+     * per line.
+     */
+    public String getCacheStats() {
+        return commitCache.getStats() + "\n" + treeCache.getStats() + "\n" + bolbCache.getStats();
     }
 
     /**
      * Return true if commit with sha1 code UID exists in this repository.
+     * A UID naming another kind of object names no commit.
      */
     public boolean containsCommit(String uid) {
-        return getObjectFile(uid).exists();
+        return getCommit(uid) != null;
     }
 
     /**
@@ -113,20 +484,493 @@ public class ObjectFolder extends Folder {
      * Since bolb and commit only create new files and write
      * objects into files, they don't change any file, so if
      * this UID has already exists, do nothing. Only write when
-     * this UID doesn't exist.
+     * this UID doesn't exist. The content of a full bolb is compressed.
      */
     public void save(GitletObject obj) throws IOException {
         String uid = obj.getUID();
-        File dir = Utils.join(FOLDER_NAME, uid.substring(0, 2));
-        File file = Utils.join(dir, uid.substring(2));
+        if (resolveUid(uid) != null) {
+            return;
+        }
+        if (obj instanceof Bolb bolb && !bolb.isDelta() && !bolb.isManifest()) {
+            writeLoose(uid, encodeBolb(bolb.getContent(), repo.getConfig().getCodec()));
+            return;
+        }
+        writeLoose(uid, obj.encode());
+    }
 
-        if (!dir.exists()) {
-            dir.mkdir();
+    /**
+     * Move all loose objects and all existing packs into a single new pack,
+     * then delete the loose files and the old packs.
+     * Return the number of objects in the new pack.
+     */
+    public int repack() throws IOException {
+        return repack(bytes -> bytes);
+    }
+
+    /**
+     * Return the set of all objects of this repository with the objects
+     * reachable from the commits with COMMITUIDS and the bolbs with
+     * BOLBUIDS marked: their parents, tree nodes and bolbs, the bases of
+     * delta bolbs and the chunks of manifests. A subtree is only walked
+     * the first time it is marked, so trees shared by commits are read
+     * once.
+     */
+    public ObjectBitmap markReachable(Collection<String> commitUids,
+                                      Collection<String> bolbUids) {
+        ObjectBitmap bitmap = new ObjectBitmap(getAllUids());
+
+        Deque<String> commits = new ArrayDeque<>();
+        Deque<String> trees = new ArrayDeque<>();
+        Deque<String> bolbs = new ArrayDeque<>();
+        for (String uid : commitUids) {
+            markInto(bitmap, uid, commits);
         }
+        for (String uid : bolbUids) {
+            markInto(bitmap, uid, bolbs);
+        }
+        while (!commits.isEmpty() || !trees.isEmpty() || !bolbs.isEmpty()) {
+            if (!commits.isEmpty()) {
+                CommitData commit = getCommit(commits.pop());
+                markInto(bitmap, commit.getParentUid(), commits);
+                markInto(bitmap, commit.getSecParentUid(), commits);
+                if (commit.hasTree()) {
+                    markInto(bitmap, commit.getTreeUid(), trees);
+                } else {
+                    for (String fileName : commit.getAllFileName()) {
+                        markInto(bitmap, commit.getBolbUid(fileName), bolbs);
+                    }
+                }
+            } else if (!trees.isEmpty()) {
+                Tree tree = getTree(trees.pop());
+                for (String child : tree.getChildUids()) {
+                    markInto(bitmap, child, trees);
+                }
+                for (String uid : tree.getBolbUids()) {
+                    markInto(bitmap, uid, bolbs);
+                }
+            } else {
+                for (String uid : getBolbReferences(bolbs.pop())) {
+                    markInto(bitmap, uid, bolbs);
+                }
+            }
+        }
+        return bitmap;
+    }
 
-        if (!file.exists()) {
-            file.createNewFile();
-            Utils.writeObject(file, obj);
+    /**
+     * Mark the object with full UID, if not null, in BITMAP, and push it
+     * onto TODO if it was not marked yet.
+     */
+    private static void markInto(ObjectBitmap bitmap, String uid, Deque<String> todo) {
+        if (uid != null && bitmap.mark(uid)) {
+            todo.push(uid);
+        }
+    }
+
+    /**
+     * Return the UIDs of the bolbs the stored bolb with full UID is built
+     * from: the base of a delta or the chunks of a manifest. Only the tag
+     * of a full bolb, compressed or not, is read.
+     */
+    private List<String> getBolbReferences(String uid) {
+        boolean full = readRange(uid, (in, start, length) -> {
+            ByteBuffer tag = ByteBuffer.allocate(1);
+            in.read(tag, start);
+            return tag.get(0) == Bolb.FULL_BOLB || tag.get(0) == Bolb.COMPRESSED_BOLB;
+        });
+        if (full) {
+            return new ArrayList<>();
+        }
+        Bolb stored = Bolb.decode(uid, readBytes(uid));
+        if (stored.isDelta()) {
+            return List.of(stored.getBaseUid());
+        } else if (stored.isManifest()) {
+            return stored.getChunkUids();
+        }
+        return new ArrayList<>();
+    }
+
+    /**
+     * Return the UIDs of the objects that a repository having the parents
+     * of the commits with COMMITUIDS, but none of these commits, needs to
+     * have them too: the commits, the nodes and bolbs of their trees that
+     * are not in the trees of those parents, and the bases of delta bolbs
+     * and the chunks of manifests. The trees of the parents are walked
+     * once, skipping the subtrees they share.
+     */
+    public List<String> getObjectsOfCommits(List<String> commitUids) {
+        Set<String> listed = new HashSet<>(commitUids);
+        Deque<String> trees = new ArrayDeque<>();
+        Deque<String> bolbs = new ArrayDeque<>();
+        Set<String> parents = new HashSet<>();
+        for (String uid : commitUids) {
+            CommitData commit = getCommit(uid);
+            for (String parent : new String[]{commit.getParentUid(), commit.getSecParentUid()}) {
+                if (parent != null && !listed.contains(parent) && parents.add(parent)) {
+                    addFiles(getCommit(parent), listed, trees, bolbs);
+                }
+            }
+        }
+        while (!trees.isEmpty()) {
+            Tree tree = getTree(trees.pop());
+            for (String child : tree.getChildUids()) {
+                if (listed.add(child)) {
+                    trees.push(child);
+                }
+            }
+            listed.addAll(tree.getBolbUids());
+        }
+        bolbs.clear();
+
+        List<String> objects = new ArrayList<>(commitUids);
+        for (String uid : commitUids) {
+            addFiles(getCommit(uid), listed, trees, bolbs);
+        }
+        while (!trees.isEmpty()) {
+            String uid = trees.pop();
+            objects.add(uid);
+            Tree tree = getTree(uid);
+            for (String child : tree.getChildUids()) {
+                if (listed.add(child)) {
+                    trees.push(child);
+                }
+            }
+            for (String bolb : tree.getBolbUids()) {
+                if (listed.add(bolb)) {
+                    bolbs.push(bolb);
+                }
+            }
+        }
+        while (!bolbs.isEmpty()) {
+            String uid = bolbs.pop();
+            objects.add(uid);
+            for (String reference : getBolbReferences(uid)) {
+                if (listed.add(reference)) {
+                    bolbs.push(reference);
+                }
+            }
+        }
+        return objects;
+    }
+
+    /**
+     * Push the root of the tree of COMMIT onto TREES, or the bolbs of a
+     * commit made before trees onto BOLBS, unless they are in LISTED, and
+     * add them to LISTED.
+     */
+    private void addFiles(CommitData commit, Set<String> listed, Deque<String> trees,
+                          Deque<String> bolbs) {
+        if (commit.hasTree()) {
+            if (listed.add(commit.getTreeUid())) {
+                trees.push(commit.getTreeUid());
+            }
+            return;
+        }
+        for (String fileName : commit.getAllFileName()) {
+            String uid = commit.getBolbUid(fileName);
+            if (listed.add(uid)) {
+                bolbs.push(uid);
+            }
+        }
+    }
+
+    /**
+     * Write the objects with UIDS to OUT as a pack stream: their number,
+     * then for each object its raw SHA-1, its length and its stored
+     * bytes, read one object at a time.
+     */
+    public void writePack(DataOutputStream out, List<String> uids) throws IOException {
+        out.writeInt(uids.size());
+        for (String uid : uids) {
+            byte[] bytes = readBytes(uid);
+            out.write(Utils.uidToBytes(uid));
+            out.writeInt(bytes.length);
+            out.write(bytes);
+        }
+    }
+
+    /**
+     * Read a pack stream written by writePack from IN into a new pack,
+     * skipping the objects this repository already has. Return the number
+     * of objects added.
+     */
+    public int readPack(DataInputStream in) throws IOException {
+        File packDir = new File(PACK_FOLDER);
+        packDir.mkdirs();
+        File idxFile = PackFile.receive(packDir, in, uid -> resolveUid(uid) != null);
+        if (idxFile == null) {
+            return 0;
+        }
+        PackFile pack = new PackFile(idxFile);
+        getPacks().add(pack);
+        return pack.size();
+    }
+
+    /**
+     * Delete every object of BITMAP that is not marked, moving the marked
+     * ones into a single new pack. Loose objects written since BITMAP was
+     * made are not in it and are kept. Unmarked loose objects last
+     * modified at or after CUTOFF, in milliseconds, are kept too, and so
+     * are the packs modified then that hold unmarked objects. Return the
+     * number of unmarked objects no longer stored anywhere afterwards.
+     */
+    public int prune(ObjectBitmap bitmap, long cutoff) throws IOException {
+        Set<String> recent = new HashSet<>();
+        for (String uid : getLooseUids()) {
+            if (!bitmap.isMarked(uid) && getFileWithFullUID(uid).lastModified() >= cutoff) {
+                recent.add(uid);
+            }
+        }
+        Set<PackFile> recentPacks = new HashSet<>();
+        for (PackFile pack : getPacks()) {
+            if (pack.lastModified() < cutoff) {
+                continue;
+            }
+            for (Iterator<String> it = pack.uids(); it.hasNext(); ) {
+                String uid = it.next();
+                if (!bitmap.isMarked(uid)) {
+                    recent.add(uid);
+                    recentPacks.add(pack);
+                }
+            }
+        }
+        replacePacks(bitmap, bytes -> bytes,
+                uid -> bitmap.indexOf(uid) >= 0 && !recent.contains(uid),
+                pack -> !recentPacks.contains(pack));
+        int removed = 0;
+        for (int i = 0; i < bitmap.size(); i += 1) {
+            if (!bitmap.isMarked(i) && resolveUid(bitmap.uidAt(i)) == null) {
+                removed += 1;
+            }
         }
+        return removed;
     }
+
+    /**
+     * Return the total size in bytes of the loose objects and packs.
+     */
+    public long getSize() throws IOException {
+        try (Stream<Path> paths = Files.walk(folder.toPath())) {
+            return paths.filter(Files::isRegularFile).mapToLong(path -> path.toFile().length()).sum();
+        }
+    }
+
+    /**
+     * Rewrite every object of this repository in the current binary
+     * encoding: bolbs and commits stored with Java serialization and
+     * delta bolbs with a hexadecimal base UID. Loose objects are
+     * rewritten in place; if any packed object needs rewriting,
+     * everything is repacked. Return the number of objects rewritten.
+     */
+    public int migrate() throws IOException {
+        int count = 0;
+        for (String uid : getLooseUids()) {
+            byte[] bytes = readBytes(uid);
+            byte[] upgraded = upgrade(bytes);
+            if (upgraded != bytes) {
+                writeLoose(uid, upgraded);
+                count += 1;
+            }
+        }
+        int packed = 0;
+        for (PackFile pack : getPacks()) {
+            for (Iterator<String> it = pack.uids(); it.hasNext(); ) {
+                byte[] bytes = readBytes(it.next());
+                if (upgrade(bytes) != bytes) {
+                    packed += 1;
+                }
+            }
+        }
+        if (packed > 0) {
+            repack(ObjectFolder::upgrade);
+        }
+        return count + packed;
+    }
+
+    /**
+     * Return the stored object BYTES in the current binary encoding,
+     * or BYTES itself if it already is. A Java-serialized object is
+     * read as the class named by its class descriptor; a bolb is
+     * compressed with the codec of the repository.
+     */
+    private static byte[] upgrade(byte[] bytes) {
+        if (Utils.isJavaSerialized(bytes)) {
+            GitletObject obj = Utils.deserialize(bytes, GitletObject.class);
+            if (obj instanceof Bolb) {
+                return encodeBolb(((Bolb) obj).getContent(), repo.getConfig().getCodec());
+            }
+            return obj.encode();
+        }
+        if (bytes.length > 0 && bytes[0] == Bolb.LEGACY_DELTA_BOLB) {
+            return Bolb.decode(null, bytes).encode();
+        }
+        return bytes;
+    }
+
+    /**
+     * Move all loose objects and all existing packs into a single new
+     * pack, passing the stored form of each object through TRANSFORM,
+     * then delete the loose files and the old packs.
+     * Return the number of objects in the new pack.
+     */
+    private int repack(UnaryOperator<byte[]> transform) throws IOException {
+        ObjectBitmap all = new ObjectBitmap(getAllUids());
+        if (all.size() == 0) {
+            return 0;
+        }
+        all.markAll();
+        replacePacks(all, transform, uid -> true, pack -> true);
+        return all.size();
+    }
+
+    /**
+     * Return iterators over the UIDs of the loose objects and of each
+     * pack, each in sorted order.
+     */
+    private List<Iterator<String>> getAllUids() {
+        List<Iterator<String>> sources = new ArrayList<>();
+        sources.add(getLooseUids().iterator());
+        for (PackFile pack : getPacks()) {
+            sources.add(pack.uids());
+        }
+        return sources;
+    }
+
+    /**
+     * Write the marked objects of BITMAP, passing the stored form of each
+     * through TRANSFORM, into a single new pack, then delete the old packs
+     * accepted by ISPACKREPLACED and the loose objects accepted by
+     * ISREPLACED.
+     */
+    private void replacePacks(ObjectBitmap bitmap, UnaryOperator<byte[]> transform,
+                              Predicate<String> isReplaced,
+                              Predicate<PackFile> isPackReplaced) throws IOException {
+        File idxFile = null;
+        if (bitmap.markedCount() > 0) {
+            File packDir = new File(PACK_FOLDER);
+            packDir.mkdirs();
+            idxFile = PackFile.write(packDir, bitmap.markedUids(), bitmap.markedCount(),
+                    uid -> transform.apply(readBytes(uid)));
+        }
+
+        for (PackFile pack : getPacks()) {
+            if ((idxFile == null || !pack.isIndexFile(idxFile)) && isPackReplaced.test(pack)) {
+                pack.delete();
+            }
+        }
+        for (String uid : getLooseUids()) {
+            if (isReplaced.test(uid)) {
+                File file = getFileWithFullUID(uid);
+                file.delete();
+                file.getParentFile().delete();
+            }
+        }
+        uidTable.clear();
+        packs = null;
+    }
+
+    /**
+     * Return the UIDs of all loose objects, in sorted order. The fan-out
+     * directories are listed one at a time as the UIDs are iterated over,
+     * so the UIDs of all loose objects are never held at once.
+     */
+    private Iterable<String> getLooseUids() {
+        File[] dirs = folder.listFiles(dir -> dir.isDirectory()
+                && dir.getName().matches("[0-9a-f]{2}"));
+        if (dirs == null) {
+            return Collections.emptyList();
+        }
+        Arrays.sort(dirs);
+        return () -> Arrays.stream(dirs).flatMap(dir -> {
+            List<String> fileNames = Utils.plainFilenamesIn(dir);
+            return fileNames == null ? Stream.empty()
+                    : fileNames.stream().map(fileName -> dir.getName() + fileName);
+        }).iterator();
+    }
+
+    /**
+     * Return all packs of this repository. Packs are loaded lazily,
+     * once per process. Synchronized since checkout reads objects from
+     * several threads.
+     */
+    private synchronized List<PackFile> getPacks() {
+        if (packs == null) {
+            packs = new ArrayList<>();
+            for (File idxFile : getIndexFiles()) {
+                packs.add(new PackFile(idxFile));
+            }
+        }
+        return packs;
+    }
+
+    /**
+     * Return the index files of all packs in the pack folder.
+     */
+    private static File[] getIndexFiles() {
+        File[] idxFiles = new File(PACK_FOLDER).listFiles(
+            (dir, name) -> name.startsWith("pack-") && name.endsWith(".idx"));
+        return idxFiles == null ? new File[0] : idxFiles;
+    }
+
+    /**
+     * Forget what this process knows of the objects folder that another
+     * process may have changed since: the loaded shards of the UID table,
+     * and the packs if packs were added or deleted. Cached objects stay
+     * valid, since an object never changes.
+     */
+    public synchronized void refresh() throws IOException {
+        uidTable.clear();
+        if (packs == null) {
+            return;
+        }
+        File[] idxFiles = getIndexFiles();
+        boolean changed = idxFiles.length != packs.size();
+        for (File idxFile : idxFiles) {
+            changed |= packs.stream().noneMatch(pack -> pack.isIndexFile(idxFile));
+        }
+        if (changed) {
+            for (PackFile pack : packs) {
+                pack.close();
+            }
+            packs = null;
+        }
+    }
+
+    /**
+     * Reads a range of the stored bytes of an object.
+     */
+    private interface RangeReader<T> {
+        /**
+         * Return the result of reading LENGTH bytes of IN starting at START.
+         */
+        T read(FileChannel in, long start, long length) throws IOException;
+    }
+
+    /**
+     * Sorted table of loose object UIDs, for abbreviated UIDs.
+     */
+    private final UidTable uidTable = new UidTable(folder);
+
+    /**
+     * LRU cache from full UID to commit.
+     */
+    private final ObjectCache<CommitData> commitCache =
+            new ObjectCache<>("commit", COMMIT_CACHE_SIZE, commit -> 1);
+
+    /**
+     * LRU cache from full UID to tree node.
+     */
+    private final ObjectCache<Tree> treeCache =
+            new ObjectCache<>("tree", TREE_CACHE_SIZE, tree -> 1);
+
+    /**
+     * LRU cache from full UID to bolb content, bounded by total size.
+     */
+    private final ObjectCache<byte[]> bolbCache =
+            new ObjectCache<>("bolb", BOLB_CACHE_SIZE, content -> content.length);
+
+    /**
+     * All packs of this repository, null until first used.
+     */
+    private List<PackFile> packs;
 }
@@ -0,0 +1,444 @@
+package gitlet.repo;
+
+import gitlet.Utils;
+import gitlet.objects.GitletException;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.TreeMap;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+/**
+ * This class represents a pack in ".gitlet/objects/pack".
+ * A pack is a pair of files: "pack-UID.pack" stores the bytes of many
+ * objects one after another, and "pack-UID.idx" stores a sorted table of
+ * fixed-width (raw SHA-1, offset) entries pointing into the pack.
+ * The index is memory-mapped and searched with binary search.
+ *
+ * @author ryan ma
+ */
+
+class PackFile {
+
+    /**
+     * Magic header of a pack file.
+     */
+    static final int PACK_MAGIC = 0x5041434b;
+
+    /**
+     * Magic header of an index file.
+     */
+    static final int IDX_MAGIC = 0x50494458;
+
+    /**
+     * Version of the pack format.
+     */
+    static final int VERSION = 1;
+
+    /**
+     * Length of a raw SHA-1.
+     */
+    static final int SHA_WIDTH = 20;
+
+    /**
+     * Length of an index entry: raw SHA-1 followed by a long offset.
+     */
+    static final int ENTRY_WIDTH = SHA_WIDTH + 8;
+
+    /**
+     * Length of the header of pack and index files: magic, version and count.
+     */
+    static final int HEADER_WIDTH = 12;
+
+    /**
+     * Open the pack whose index file is IDXFILE.
+     */
+    PackFile(File idxFile) {
+        String name = idxFile.getName();
+        this.idxFile = idxFile;
+        packFile = new File(idxFile.getParentFile(),
+                name.substring(0, name.length() - ".idx".length()) + ".pack");
+        try (FileChannel channel = FileChannel.open(idxFile.toPath(), StandardOpenOption.READ)) {
+            index = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        } catch (IOException excp) {
+            throw new GitletException("Cannot read pack index " + name + ".");
+        }
+        if (index.getInt(0) != IDX_MAGIC || index.getInt(4) != VERSION) {
+            throw new GitletException("Bad pack index " + name + ".");
+        }
+        count = index.getInt(8);
+    }
+
+    /**
+     * Return the number of objects in this pack.
+     */
+    int size() {
+        return count;
+    }
+
+    /**
+     * Return the full UID of the I-th entry in the index.
+     */
+    String uidAt(int i) {
+        byte[] sha = new byte[SHA_WIDTH];
+        index.get(HEADER_WIDTH + i * ENTRY_WIDTH, sha);
+        return Utils.bytesToUid(sha);
+    }
+
+    /**
+     * Return the pack offset of the I-th entry in the index.
+     */
+    private long offsetAt(int i) {
+        return index.getLong(HEADER_WIDTH + i * ENTRY_WIDTH + SHA_WIDTH);
+    }
+
+    /**
+     * Return the hex digits of PREFIX, a UID or a prefix of one, two to a
+     * byte, high digit first, with a last half-filled byte for an odd
+     * length; or null if PREFIX is not a lowercase hex string, which no
+     * UID starts with.
+     */
+    private static byte[] parsePrefix(String prefix) {
+        if (prefix.length() > 2 * SHA_WIDTH) {
+            return null;
+        }
+        byte[] key = new byte[(prefix.length() + 1) / 2];
+        for (int k = 0; k < prefix.length(); k += 1) {
+            char c = prefix.charAt(k);
+            int digit = Character.digit(c, 16);
+            if (digit < 0 || Character.isUpperCase(c)) {
+                return null;
+            }
+            key[k / 2] |= k % 2 == 0 ? digit << 4 : digit;
+        }
+        return key;
+    }
+
+    /**
+     * Compare the raw SHA-1 of the I-th entry in the index with the first
+     * DIGITS hex digits of KEY, as parsed by parsePrefix, in the mapped
+     * index without copying it. Return 0 if the entry starts with them.
+     */
+    private int comparePrefix(int i, byte[] key, int digits) {
+        int position = HEADER_WIDTH + i * ENTRY_WIDTH;
+        for (int k = 0; k < digits / 2; k += 1) {
+            int cmp = Integer.compare(index.get(position + k) & 0xff, key[k] & 0xff);
+            if (cmp != 0) {
+                return cmp;
+            }
+        }
+        if (digits % 2 == 0) {
+            return 0;
+        }
+        return Integer.compare((index.get(position + digits / 2) & 0xff) >>> 4,
+                (key[digits / 2] & 0xff) >>> 4);
+    }
+
+    /**
+     * Return the position of the first entry not less than the first
+     * DIGITS hex digits of KEY: the first entry starting with them, if
+     * any. Entries are compared as raw bytes, the last half byte of an
+     * odd-length prefix by its high half.
+     */
+    private int lowerBound(byte[] key, int digits) {
+        int lo = 0, hi = count;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (comparePrefix(mid, key, digits) < 0) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        return lo;
+    }
+
+    /**
+     * Return the position of the entry of the object with full UID, or -1
+     * if this pack does not contain it.
+     */
+    private int find(String uid) {
+        byte[] key = uid.length() == 2 * SHA_WIDTH ? parsePrefix(uid) : null;
+        if (key == null) {
+            return -1;
+        }
+        int i = lowerBound(key, uid.length());
+        return i < count && comparePrefix(i, key, uid.length()) == 0 ? i : -1;
+    }
+
+    /**
+     * Return true if this pack contains the object with full UID.
+     */
+    boolean contains(String uid) {
+        return find(uid) >= 0;
+    }
+
+    /**
+     * Return a list of full UIDs in this pack starting with PREFIX,
+     * in sorted order.
+     */
+    List<String> findPrefix(String prefix) {
+        List<String> result = new ArrayList<>();
+        byte[] key = parsePrefix(prefix);
+        if (key == null) {
+            return result;
+        }
+        int digits = prefix.length();
+        for (int i = lowerBound(key, digits); i < count && comparePrefix(i, key, digits) == 0;
+                i += 1) {
+            result.add(uidAt(i));
+        }
+        return result;
+    }
+
+    /**
+     * Return the position and length of the bytes of the object with
+     * full UID in the pack file, or null if this pack does not contain it.
+     */
+    long[] locate(String uid) throws IOException {
+        int i = find(uid);
+        if (i < 0) {
+            return null;
+        }
+        long offset = offsetAt(i);
+        ByteBuffer lengthBuf = ByteBuffer.allocate(4);
+        getChannel().read(lengthBuf, offset);
+        return new long[]{offset + 4, lengthBuf.getInt(0)};
+    }
+
+    /**
+     * Return the channel of the pack file. It is opened on the first call
+     * and kept open, so that reading many objects costs one open() call.
+     */
+    synchronized FileChannel getChannel() throws IOException {
+        if (channel == null) {
+            channel = FileChannel.open(packFile.toPath(), StandardOpenOption.READ);
+        }
+        return channel;
+    }
+
+    /**
+     * Return an iterator over all UIDs in this pack, in sorted order.
+     */
+    Iterator<String> uids() {
+        return new Iterator<>() {
+            private int i = 0;
+
+            @Override
+            public boolean hasNext() {
+                return i < count;
+            }
+
+            @Override
+            public String next() {
+                return uidAt(i++);
+            }
+        };
+    }
+
+    /**
+     * Return true if IDX is the index file of this pack.
+     */
+    boolean isIndexFile(File idx) {
+        return idxFile.getName().equals(idx.getName());
+    }
+
+    /**
+     * Return the time the index file of this pack was last modified, in
+     * milliseconds; it is written after the pack file.
+     */
+    long lastModified() {
+        return idxFile.lastModified();
+    }
+
+    /**
+     * Close the pack file, if it is open.
+     */
+    synchronized void close() throws IOException {
+        if (channel != null) {
+            channel.close();
+            channel = null;
+        }
+    }
+
+    /**
+     * Delete the pack and index files of this pack.
+     */
+    synchronized void delete() throws IOException {
+        close();
+        idxFile.delete();
+        packFile.delete();
+    }
+
+    /**
+     * Write a new pack into DIR containing the COUNT objects with the
+     * sorted UIDS, whose bytes are obtained from READER. UIDS is iterated
+     * over once for the name of the pack, once for the pack and once for
+     * the index, so it is never held in memory. The pack is written to
+     * temporary files first and renamed into place, index last, so
+     * readers never see a partial pack. Return the index file.
+     */
+    static File write(File dir, Iterable<String> uids, int count,
+                      Function<String, byte[]> reader) throws IOException {
+        String name = getName(uids);
+        File packTmp = new File(dir, name + ".pack.tmp");
+        File idxTmp = new File(dir, name + ".idx.tmp");
+        long[] offsets = new long[count];
+        long position = HEADER_WIDTH;
+
+        try (DataOutputStream pack = new DataOutputStream(
+                new BufferedOutputStream(new FileOutputStream(packTmp)))) {
+            pack.writeInt(PACK_MAGIC);
+            pack.writeInt(VERSION);
+            pack.writeInt(count);
+            int i = 0;
+            for (String uid : uids) {
+                byte[] bytes = reader.apply(uid);
+                offsets[i] = position;
+                i += 1;
+                pack.writeInt(bytes.length);
+                pack.write(bytes);
+                position += 4 + bytes.length;
+            }
+        }
+
+        writeIndex(idxTmp, uids, count, offsets);
+        return install(dir, name, packTmp, idxTmp);
+    }
+
+    /**
+     * Return the name of the pack of the sorted UIDS: "pack-" followed by
+     * the SHA-1 of their concatenation, hashed one UID at a time.
+     */
+    static String getName(Iterable<String> uids) {
+        try {
+            MessageDigest md = MessageDigest.getInstance("SHA-1");
+            for (String uid : uids) {
+                md.update(uid.getBytes(StandardCharsets.UTF_8));
+            }
+            return "pack-" + Utils.bytesToUid(md.digest());
+        } catch (NoSuchAlgorithmException excp) {
+            throw new IllegalArgumentException("System does not support SHA-1");
+        }
+    }
+
+    /**
+     * Write a new pack into DIR containing the objects read from IN, as
+     * written by ObjectFolder.writePack: their number, then for each
+     * object its raw SHA-1, its length and its stored bytes. Objects
+     * accepted by ISSTORED are read and skipped. Objects are written to
+     * the pack as they arrive, so the pack is never held in memory.
+     * Return the index file, or null if no object was written.
+     */
+    static File receive(File dir, DataInputStream in, Predicate<String> isStored)
+            throws IOException {
+        int count = in.readInt();
+        File packTmp = File.createTempFile("pack-", ".pack.tmp", dir);
+        TreeMap<String, Long> offsets = new TreeMap<>();
+        long position = HEADER_WIDTH;
+        byte[] sha = new byte[SHA_WIDTH];
+
+        try (DataOutputStream pack = new DataOutputStream(
+                new BufferedOutputStream(new FileOutputStream(packTmp)))) {
+            pack.writeInt(PACK_MAGIC);
+            pack.writeInt(VERSION);
+            pack.writeInt(0);
+            for (int i = 0; i < count; i += 1) {
+                in.readFully(sha);
+                String uid = Utils.bytesToUid(sha);
+                byte[] bytes = new byte[in.readInt()];
+                in.readFully(bytes);
+                if (offsets.containsKey(uid) || isStored.test(uid)) {
+                    continue;
+                }
+                offsets.put(uid, position);
+                pack.writeInt(bytes.length);
+                pack.write(bytes);
+                position += 4 + bytes.length;
+            }
+        }
+        if (offsets.isEmpty()) {
+            packTmp.delete();
+            return null;
+        }
+        try (RandomAccessFile pack = new RandomAccessFile(packTmp, "rw")) {
+            pack.seek(8);
+            pack.writeInt(offsets.size());
+        }
+
+        long[] positions = offsets.values().stream().mapToLong(Long::longValue).toArray();
+        String name = getName(offsets.keySet());
+        File idxTmp = new File(dir, name + ".idx.tmp");
+        writeIndex(idxTmp, offsets.keySet(), offsets.size(), positions);
+        return install(dir, name, packTmp, idxTmp);
+    }
+
+    /**
+     * Write into IDXFILE the index of a pack with the COUNT sorted UIDS
+     * at OFFSETS.
+     */
+    private static void writeIndex(File idxFile, Iterable<String> uids, int count,
+                                   long[] offsets) throws IOException {
+        try (DataOutputStream idx = new DataOutputStream(
+                new BufferedOutputStream(new FileOutputStream(idxFile)))) {
+            idx.writeInt(IDX_MAGIC);
+            idx.writeInt(VERSION);
+            idx.writeInt(count);
+            int i = 0;
+            for (String uid : uids) {
+                idx.write(Utils.uidToBytes(uid));
+                idx.writeLong(offsets[i]);
+                i += 1;
+            }
+        }
+    }
+
+    /**
+     * Rename PACKTMP and IDXTMP into place in DIR as the pack NAME, index
+     * last. Return the index file.
+     */
+    private static File install(File dir, String name, File packTmp, File idxTmp)
+            throws IOException {
+        File packFile = new File(dir, name + ".pack");
+        File idxFile = new File(dir, name + ".idx");
+        if (!packTmp.renameTo(packFile) || !idxTmp.renameTo(idxFile)) {
+            throw new IOException("cannot rename pack " + name);
+        }
+        return idxFile;
+    }
+
+    /**
+     * The index file of this pack.
+     */
+    private final File idxFile;
+
+    /**
+     * The pack file of this pack.
+     */
+    private final File packFile;
+
+    /**
+     * The memory-mapped index.
+     */
+    private final MappedByteBuffer index;
+
+    /**
+     * The number of objects in this pack.
+     */
+    private final int count;
+
+    /**
+     * The channel of the pack file, null until first used.
+     */
+    private FileChannel channel;
+}
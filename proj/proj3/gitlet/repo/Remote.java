@@ -0,0 +1,391 @@
+package gitlet.repo;
+
+import gitlet.Utils;
+import gitlet.objects.GitletException;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileDescriptor;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.TreeMap;
+
+import static gitlet.Main.repo;
+
+/**
+ * This class is a connection to another gitlet repository on this host,
+ * used by fetch and push, and the other end of the connection.
+ * <p>
+ * Connecting runs gitlet in the working directory of the other
+ * repository with the upload-pack command, to fetch from it, or the
+ * receive-pack command, to push to it, and talks to it through its
+ * standard input and output. The other end first sends its branches and
+ * their heads.
+ * <p>
+ * To fetch, the client sends the commit it wants, then offers the
+ * commits it has in batches, newest first, starting from the heads of
+ * its branches; the other end acknowledges those it has too, and the
+ * client stops offering the ancestors of acknowledged commits. The other
+ * end then paints the commit graph from the wanted and the common
+ * commits to find the missing ones, and sends them with the objects
+ * their trees add to their parents as one pack stream, which is written
+ * into a single new pack as it arrives.
+ * <p>
+ * To push, the branches of the other end tell the client which commits
+ * it has, so the client finds the missing commits itself, then sends the
+ * branch to update, its old and new heads, and the pack. The other end
+ * updates the branch only if its head is still the old one, and replies
+ * OK or an error message.
+ *
+ * @author ryan ma
+ */
+
+public class Remote implements Closeable {
+
+    /**
+     * Command of the other end when fetching.
+     */
+    public static final String UPLOAD_PACK = "upload-pack";
+
+    /**
+     * Command of the other end when pushing.
+     */
+    public static final String RECEIVE_PACK = "receive-pack";
+
+    /**
+     * Reply of receive-pack when the branch was updated.
+     */
+    static final String OK = "ok";
+
+    /**
+     * Number of commits offered in the first batch of a fetch; each next
+     * batch is twice as large, up to MAX_BATCH.
+     */
+    static final int FIRST_BATCH = 16;
+
+    /**
+     * The largest batch of commits offered at once.
+     */
+    static final int MAX_BATCH = 256;
+
+    /**
+     * Connect to the repository in GITLETDIR, running gitlet with COMMAND,
+     * UPLOAD_PACK or RECEIVE_PACK, in its working directory, and read its
+     * branches.
+     */
+    public Remote(File gitletDir, String command) throws IOException {
+        String java = Path.of(System.getProperty("java.home"), "bin", "java").toString();
+        ProcessBuilder builder = new ProcessBuilder(java, "-cp", getClassPath(),
+                "gitlet.Main", command);
+        builder.directory(gitletDir.getAbsoluteFile().getParentFile());
+        builder.redirectError(ProcessBuilder.Redirect.INHERIT);
+        process = builder.start();
+        in = new DataInputStream(new BufferedInputStream(process.getInputStream()));
+        out = new DataOutputStream(new BufferedOutputStream(process.getOutputStream()));
+        branches = readBranches(in);
+    }
+
+    /**
+     * Return the class path of this process with absolute entries, since
+     * the other end runs in another directory.
+     */
+    private static String getClassPath() {
+        List<String> entries = new ArrayList<>();
+        for (String entry : System.getProperty("java.class.path").split(File.pathSeparator)) {
+            entries.add(new File(entry).getAbsolutePath());
+        }
+        return String.join(File.pathSeparator, entries);
+    }
+
+    /**
+     * Fetch the commits of BRANCH of the other repository missing from
+     * this one, and their objects. Return the head of BRANCH, or null if
+     * the other repository has no such branch.
+     */
+    public String fetch(String branch) throws IOException {
+        String want = branches.get(branch);
+        if (want == null || repo.objectFolder.containsCommit(want)) {
+            writeUids(out, List.of());
+            out.flush();
+            return want;
+        }
+        writeUids(out, List.of(want));
+        offerCommits();
+        repo.objectFolder.readPack(in);
+        return want;
+    }
+
+    /**
+     * Offer the commits of this repository to the other end in batches,
+     * newest first from the heads of all branches, until every offered
+     * commit is acknowledged or has its parents offered.
+     */
+    private void offerCommits() throws IOException {
+        PriorityQueue<String> queue = new PriorityQueue<>((a, b) -> Integer.compare(
+                repo.commitGraph.getGeneration(b), repo.commitGraph.getGeneration(a)));
+        Set<String> queued = new HashSet<>();
+        for (String branch : repo.branchFolder.getAllRefs()) {
+            String head = repo.branchFolder.getHeadUid(branch);
+            if (queued.add(head)) {
+                queue.add(head);
+            }
+        }
+
+        int batchSize = FIRST_BATCH;
+        while (true) {
+            List<String> batch = new ArrayList<>();
+            while (batch.size() < batchSize && !queue.isEmpty()) {
+                batch.add(queue.poll());
+            }
+            writeUids(out, batch);
+            out.flush();
+            if (batch.isEmpty()) {
+                return;
+            }
+            Set<String> acks = new HashSet<>(readUids(in));
+            for (String uid : batch) {
+                if (acks.contains(uid)) {
+                    continue;
+                }
+                for (String parent : new String[]{repo.commitGraph.getParentUid(uid),
+                        repo.commitGraph.getSecParentUid(uid)}) {
+                    if (parent != null && queued.add(parent)) {
+                        queue.add(parent);
+                    }
+                }
+            }
+            batchSize = Math.min(batchSize * 2, MAX_BATCH);
+        }
+    }
+
+    /**
+     * Set BRANCH of the other repository to the commit with HEAD of this
+     * repository, sending the commits and objects it is missing. Throws a
+     * GitletException if the head of BRANCH is not an ancestor of HEAD, or
+     * if the other end could not update it.
+     */
+    public void push(String branch, String head) throws IOException {
+        String remoteHead = branches.get(branch);
+        if (remoteHead != null && !(repo.objectFolder.containsCommit(remoteHead)
+                && repo.commitGraph.isAncestor(remoteHead, head))) {
+            Utils.writeString(out, "");
+            out.flush();
+            throw new GitletException("Please pull down remote changes before pushing.");
+        }
+
+        List<String> common = new ArrayList<>();
+        for (String uid : new HashSet<>(branches.values())) {
+            if (repo.objectFolder.containsCommit(uid)) {
+                common.add(uid);
+            }
+        }
+        List<String> missing = repo.commitGraph.findMissing(List.of(head), common);
+
+        Utils.writeString(out, branch);
+        Utils.writeString(out, remoteHead == null ? "" : remoteHead);
+        Utils.writeString(out, head);
+        repo.objectFolder.writePack(out, repo.objectFolder.getObjectsOfCommits(missing));
+        out.flush();
+        String reply = Utils.readString(in);
+        if (!reply.equals(OK)) {
+            throw new GitletException(reply);
+        }
+    }
+
+    /**
+     * Close the connection and wait for the other end to exit.
+     */
+    @Override
+    public void close() throws IOException {
+        out.close();
+        in.close();
+        try {
+            process.waitFor();
+        } catch (InterruptedException excp) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Serve a fetch from the other end, connected to the standard input
+     * and output of this process.
+     */
+    public static void upload() throws IOException {
+        DataInputStream in = openInput();
+        DataOutputStream out = openOutput();
+        writeBranches(out);
+        out.flush();
+        List<String> wants = readUids(in);
+        if (wants.isEmpty()) {
+            return;
+        }
+
+        List<String> common = new ArrayList<>();
+        for (List<String> haves = readUids(in); !haves.isEmpty(); haves = readUids(in)) {
+            List<String> acks = new ArrayList<>();
+            for (String uid : haves) {
+                if (repo.objectFolder.containsCommit(uid)) {
+                    acks.add(uid);
+                }
+            }
+            common.addAll(acks);
+            writeUids(out, acks);
+            out.flush();
+        }
+        List<String> missing = repo.commitGraph.findMissing(wants, common);
+        repo.objectFolder.writePack(out, repo.objectFolder.getObjectsOfCommits(missing));
+        out.flush();
+    }
+
+    /**
+     * Serve a push from the other end, connected to the standard input
+     * and output of this process. The updates of the branch are committed
+     * to the journal before replying.
+     */
+    public static void receive() throws IOException {
+        DataInputStream in = openInput();
+        DataOutputStream out = openOutput();
+        writeBranches(out);
+        out.flush();
+        String branch = Utils.readString(in);
+        if (branch.isEmpty()) {
+            return;
+        }
+        String oldHead = Utils.readString(in);
+        String head = Utils.readString(in);
+        repo.objectFolder.readPack(in);
+
+        String reply = OK;
+        String current = repo.branchFolder.hasBranch(branch)
+                ? repo.branchFolder.getHeadUid(branch) : "";
+        if (!current.equals(oldHead)) {
+            reply = "Could not update " + branch + ": it was changed by another gitlet process.";
+        } else if (!head.equals(oldHead)) {
+            try {
+                updateBranch(branch, oldHead, head);
+                repo.journal.commit();
+            } catch (GitletException excp) {
+                reply = excp.getMessage();
+            }
+        }
+        Utils.writeString(out, reply);
+        out.flush();
+    }
+
+    /**
+     * Set the head and latest commit of BRANCH to HEAD and log the commits
+     * reachable from HEAD through any parent that are not OLDHEAD, which
+     * is empty for a new branch, or its ancestors, parents first. The
+     * commits of a branch merged into HEAD are logged too.
+     */
+    private static void updateBranch(String branch, String oldHead, String head)
+            throws IOException {
+        List<String> added = repo.commitGraph.findMissing(List.of(head),
+                oldHead.isEmpty() ? List.of() : List.of(oldHead));
+        Collections.reverse(added);
+        repo.branchFolder.setHeadUid(branch, head);
+        repo.latestFolder.setLatestUid(branch, head);
+        for (String uid : added) {
+            repo.logFolder.writeLogToBranch(branch, repo.objectFolder.getCommit(uid));
+        }
+    }
+
+    /**
+     * Return the standard input of this process, unbuffered by System.in.
+     */
+    private static DataInputStream openInput() {
+        return new DataInputStream(new BufferedInputStream(new FileInputStream(FileDescriptor.in)));
+    }
+
+    /**
+     * Return the standard output of this process, bypassing System.out.
+     */
+    private static DataOutputStream openOutput() {
+        return new DataOutputStream(new BufferedOutputStream(
+                new FileOutputStream(FileDescriptor.out)));
+    }
+
+    /**
+     * Write the branches of this repository and their heads to OUT.
+     */
+    private static void writeBranches(DataOutputStream out) throws IOException {
+        List<String> names = repo.branchFolder.getAllBranches();
+        out.writeInt(names.size());
+        for (String branch : names) {
+            Utils.writeString(out, branch);
+            Utils.writeUid(out, repo.branchFolder.getHeadUid(branch));
+        }
+    }
+
+    /**
+     * Return the branches and their heads read from IN.
+     */
+    private static Map<String, String> readBranches(DataInputStream in) throws IOException {
+        Map<String, String> result = new TreeMap<>();
+        try {
+            for (int n = in.readInt(); n > 0; n -= 1) {
+                String branch = Utils.readString(in);
+                result.put(branch, Utils.readUid(in));
+            }
+        } catch (IOException excp) {
+            throw new GitletException("The remote repository did not answer.");
+        }
+        return result;
+    }
+
+    /**
+     * Write the list of UIDS to OUT.
+     */
+    private static void writeUids(DataOutputStream out, Collection<String> uids)
+            throws IOException {
+        out.writeInt(uids.size());
+        for (String uid : uids) {
+            Utils.writeUid(out, uid);
+        }
+    }
+
+    /**
+     * Return a list of UIDs read from IN.
+     */
+    private static List<String> readUids(DataInputStream in) throws IOException {
+        List<String> uids = new ArrayList<>();
+        for (int n = in.readInt(); n > 0; n -= 1) {
+            uids.add(Utils.readUid(in));
+        }
+        return uids;
+    }
+
+    /**
+     * The process running gitlet in the other repository.
+     */
+    private final Process process;
+
+    /**
+     * The output of the other end.
+     */
+    private final DataInputStream in;
+
+    /**
+     * The input of the other end.
+     */
+    private final DataOutputStream out;
+
+    /**
+     * The branches of the other repository and their heads.
+     */
+    private final Map<String, String> branches;
+}
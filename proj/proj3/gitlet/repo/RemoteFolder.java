@@ -0,0 +1,69 @@
+package gitlet.repo;
+
+import gitlet.objects.GitletException;
+
+import java.io.File;
+
+/**
+ * This class represents the ".gitlet/remotes" folder.
+ * It records the ".gitlet" directory of each remote, by name.
+ *
+ * @author ryan ma
+ */
+
+public class RemoteFolder extends Folder {
+
+    /**
+     * Folder for the remotes.
+     */
+    public static final String FOLDER_NAME = ".gitlet/remotes";
+
+    RemoteFolder() {
+        super(FOLDER_NAME);
+    }
+
+    /**
+     * Return true if REMOTENAME can name a remote: the name of a file of
+     * the remotes folder, without path separators or "..", so that it
+     * never names a file outside of it, and not a lock file.
+     */
+    public static boolean isValidName(String remoteName) {
+        return !remoteName.isEmpty() && !remoteName.equals(".")
+                && !remoteName.contains("/") && !remoteName.contains("\\")
+                && !remoteName.contains(File.separator) && !remoteName.contains("..")
+                && !remoteName.endsWith(Journal.LOCK_SUFFIX);
+    }
+
+    /**
+     * Return true if there is a remote with the given name.
+     */
+    public boolean hasRemote(String remoteName) {
+        return isValidName(remoteName) && existsJournaled(remoteName);
+    }
+
+    /**
+     * Add a remote with the given name, which must be valid, whose
+     * ".gitlet" directory is PATH, relative to the working directory or
+     * absolute.
+     */
+    public void addRemote(String remoteName, String path) {
+        if (!isValidName(remoteName)) {
+            throw new GitletException("Invalid remote name.");
+        }
+        writeJournaled(remoteName, path);
+    }
+
+    /**
+     * Remove the remote with the given name.
+     */
+    public void removeRemote(String remoteName) {
+        deleteJournaled(remoteName);
+    }
+
+    /**
+     * Return the ".gitlet" directory of the remote with the given name.
+     */
+    public File getRemoteDir(String remoteName) {
+        return new File(readJournaled(remoteName));
+    }
+}
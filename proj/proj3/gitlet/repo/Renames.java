@@ -0,0 +1,229 @@
+package gitlet.repo;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+import static gitlet.Main.repo;
+
+/**
+ * This class finds the files that were renamed between two versions of a
+ * tree, given the files only in the old version and the files only in
+ * the new one, each mapped to its bolb UID.
+ * <p>
+ * Files with the same bolb are renames first. The other files are
+ * compared by the sets of their lines: each file gets a MinHash
+ * signature, the smallest value of SIGNATURE_SIZE hash functions over its
+ * lines, and the fraction of equal values in two signatures estimates the
+ * Jaccard similarity of their line sets. Signatures are cut into BANDS
+ * bands, and only pairs of files with an equal band are compared, so a
+ * large number of added and deleted files is not compared pair by pair.
+ * Pairs at least MIN_SIMILARITY similar are renames, the most similar
+ * first, and each file is in at most one rename.
+ *
+ * @author ryan ma
+ */
+
+public class Renames {
+
+    /**
+     * Number of hash functions in a signature.
+     */
+    static final int SIGNATURE_SIZE = 64;
+
+    /**
+     * Number of bands of a signature; a band has SIGNATURE_SIZE / BANDS
+     * values.
+     */
+    static final int BANDS = 32;
+
+    /**
+     * The smallest estimated similarity of a rename.
+     */
+    static final double MIN_SIMILARITY = 0.5;
+
+    /**
+     * Seed of the hash functions.
+     */
+    private static final long SEED = 0x72656e616d6573L;
+
+    /**
+     * Return the renames from OLDFILES, the files only in the old version,
+     * to NEWFILES, the files only in the new version, both maps from file
+     * names to bolb UIDs: a map from each renamed new file name to its old
+     * name.
+     */
+    public static Map<String, String> detect(Map<String, String> oldFiles,
+                                             Map<String, String> newFiles) {
+        Map<String, String> renames = new TreeMap<>();
+        Map<String, String> oldLeft = new TreeMap<>(oldFiles);
+        Map<String, String> newLeft = new TreeMap<>(newFiles);
+        matchExact(oldLeft, newLeft, renames);
+        if (!oldLeft.isEmpty() && !newLeft.isEmpty()) {
+            matchSimilar(oldLeft, newLeft, renames);
+        }
+        return renames;
+    }
+
+    /**
+     * Add the renames between files of OLDLEFT and NEWLEFT with the same
+     * bolb to RENAMES, and remove their files from OLDLEFT and NEWLEFT.
+     */
+    private static void matchExact(Map<String, String> oldLeft, Map<String, String> newLeft,
+                                   Map<String, String> renames) {
+        Map<String, String> oldByBolb = new HashMap<>();
+        for (Map.Entry<String, String> entry : oldLeft.entrySet()) {
+            oldByBolb.putIfAbsent(entry.getValue(), entry.getKey());
+        }
+        for (Map.Entry<String, String> entry : new ArrayList<>(newLeft.entrySet())) {
+            String oldName = oldByBolb.remove(entry.getValue());
+            if (oldName != null) {
+                renames.put(entry.getKey(), oldName);
+                oldLeft.remove(oldName);
+                newLeft.remove(entry.getKey());
+            }
+        }
+    }
+
+    /**
+     * Add the renames between similar files of OLDLEFT and NEWLEFT to
+     * RENAMES.
+     */
+    private static void matchSimilar(Map<String, String> oldLeft, Map<String, String> newLeft,
+                                     Map<String, String> renames) {
+        List<String> oldNames = new ArrayList<>(oldLeft.keySet());
+        List<String> newNames = new ArrayList<>(newLeft.keySet());
+        long[][] oldSignatures = signatures(oldNames, oldLeft);
+        long[][] newSignatures = signatures(newNames, newLeft);
+
+        Map<Long, List<Integer>> buckets = new HashMap<>();
+        for (int i = 0; i < oldNames.size(); i += 1) {
+            if (oldSignatures[i] != null) {
+                for (int band = 0; band < BANDS; band += 1) {
+                    buckets.computeIfAbsent(bandKey(oldSignatures[i], band),
+                            key -> new ArrayList<>()).add(i);
+                }
+            }
+        }
+
+        List<double[]> pairs = new ArrayList<>();
+        for (int j = 0; j < newNames.size(); j += 1) {
+            if (newSignatures[j] == null) {
+                continue;
+            }
+            Set<Integer> candidates = new HashSet<>();
+            for (int band = 0; band < BANDS; band += 1) {
+                candidates.addAll(buckets.getOrDefault(bandKey(newSignatures[j], band),
+                        List.of()));
+            }
+            for (int i : candidates) {
+                double similarity = similarity(oldSignatures[i], newSignatures[j]);
+                if (similarity >= MIN_SIMILARITY) {
+                    pairs.add(new double[]{similarity, i, j});
+                }
+            }
+        }
+
+        /* Most similar first; ties in the order of the new, then old names. */
+        pairs.sort((a, b) -> a[0] != b[0] ? Double.compare(b[0], a[0])
+                : a[2] != b[2] ? Double.compare(a[2], b[2]) : Double.compare(a[1], b[1]));
+        boolean[] oldUsed = new boolean[oldNames.size()];
+        boolean[] newUsed = new boolean[newNames.size()];
+        for (double[] pair : pairs) {
+            int i = (int) pair[1];
+            int j = (int) pair[2];
+            if (!oldUsed[i] && !newUsed[j]) {
+                oldUsed[i] = true;
+                newUsed[j] = true;
+                renames.put(newNames.get(j), oldNames.get(i));
+            }
+        }
+    }
+
+    /**
+     * Return the signatures of the files NAMES with bolbs in FILES, null
+     * for empty files.
+     */
+    private static long[][] signatures(List<String> names, Map<String, String> files) {
+        long[][] signatures = new long[names.size()][];
+        for (int i = 0; i < signatures.length; i += 1) {
+            byte[] content = repo.objectFolder.getBolb(files.get(names.get(i))).getContent();
+            signatures[i] = signature(content);
+        }
+        return signatures;
+    }
+
+    /**
+     * Return the MinHash signature of the set of lines of CONTENT, or null
+     * if it has no lines.
+     */
+    static long[] signature(byte[] content) {
+        List<String> lines = Diff.splitLines(content);
+        if (lines.isEmpty()) {
+            return null;
+        }
+        long[] signature = new long[SIGNATURE_SIZE];
+        Arrays.fill(signature, Long.MAX_VALUE);
+        for (String line : new HashSet<>(lines)) {
+            long hash = hash(line);
+            for (int k = 0; k < SIGNATURE_SIZE; k += 1) {
+                long value = mix(hash ^ (SEED + k * 0xbf58476d1ce4e5b9L));
+                if (value < signature[k]) {
+                    signature[k] = value;
+                }
+            }
+        }
+        return signature;
+    }
+
+    /**
+     * Return the 64-bit FNV-1a hash of LINE.
+     */
+    private static long hash(String line) {
+        long hash = 0xcbf29ce484222325L;
+        for (int i = 0; i < line.length(); i += 1) {
+            hash = (hash ^ line.charAt(i)) * 0x100000001b3L;
+        }
+        return hash;
+    }
+
+    /**
+     * Return the key of band BAND of SIGNATURE, which also depends on
+     * BAND so that equal values in different bands do not collide.
+     */
+    private static long bandKey(long[] signature, int band) {
+        int rows = SIGNATURE_SIZE / BANDS;
+        long key = band;
+        for (int k = band * rows; k < (band + 1) * rows; k += 1) {
+            key = mix(key * 31 + signature[k]);
+        }
+        return key;
+    }
+
+    /**
+     * Return the fraction of equal values in signatures A and B.
+     */
+    static double similarity(long[] a, long[] b) {
+        int equal = 0;
+        for (int k = 0; k < SIGNATURE_SIZE; k += 1) {
+            if (a[k] == b[k]) {
+                equal += 1;
+            }
+        }
+        return (double) equal / SIGNATURE_SIZE;
+    }
+
+    /**
+     * Return Z with its bits mixed, the finalizer of SplitMix64.
+     */
+    private static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+        z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+        return z ^ (z >>> 31);
+    }
+}
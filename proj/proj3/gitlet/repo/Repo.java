@@ -1,10 +1,11 @@
 package gitlet.repo;
 
-import gitlet.Utils;
 import gitlet.objects.CommitData;
 import gitlet.objects.Stage;
 
 import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 
 /**
  * This class represents the repository in gitlet.
@@ -32,17 +33,40 @@ public class Repo {
         branchFolder = new BranchFolder();
         latestFolder = new LatestFolder();
         logFolder = new LogFolder();
+        commitGraph = new CommitGraph();
+        messageFolder = new MessageFolder();
+        remoteFolder = new RemoteFolder();
+        journal = new Journal();
     }
 
     /**
      * Update the current branch, stage and the current commit.
      */
     public void update() {
-        currBranch = Utils.readContentsAsString(HEAD_FILE);
+        currBranch = readHead();
         stage = Stage.readFromFile();
         currCommit = objectFolder.getCommit(getCurrHeadUid());
     }
 
+    /**
+     * Forget the state read by the previous command run by this process,
+     * before the daemon runs the next one: the current commit, branch,
+     * stage, sparse checkout patterns and settings, the jobs option, the
+     * checkout counts and what is known of files that another process
+     * may have changed. The object caches are kept.
+     */
+    public void refresh() throws IOException {
+        currCommit = null;
+        currBranch = null;
+        stage = null;
+        sparse = null;
+        config = null;
+        jobs = Runtime.getRuntime().availableProcessors();
+        workFolder.refresh();
+        objectFolder.refresh();
+        commitGraph.refresh();
+    }
+
     public CommitData getCurrCommit() {
         if (currCommit == null) {
             currCommit = objectFolder.getCommit(getCurrHeadUid());
@@ -53,7 +77,7 @@ public class Repo {
 
     public String getCurrBranch() {
         if (currBranch == null) {
-            currBranch = Utils.readContentsAsString(HEAD_FILE);
+            currBranch = readHead();
         }
 
         return currBranch;
@@ -66,13 +90,70 @@ public class Repo {
         return stage;
     }
 
+    /**
+     * Return the sparse checkout patterns.
+     */
+    public Sparse getSparse() {
+        if (sparse == null) {
+            sparse = Sparse.readFromFile();
+        }
+        return sparse;
+    }
+
+    /**
+     * Set the sparse checkout patterns to SPARSE and record them.
+     */
+    public void setSparse(Sparse sparse) {
+        this.sparse = sparse;
+        sparse.save();
+    }
+
+    /**
+     * Return the settings of this repository.
+     */
+    public Config getConfig() {
+        if (config == null) {
+            config = Config.readFromFile();
+        }
+        return config;
+    }
+
+    /**
+     * Set the settings of this repository to CONFIG and record them.
+     */
+    public void setConfig(Config config) {
+        this.config = config;
+        config.save();
+    }
+
     public void setCurrCommit(CommitData commitData) {
         currCommit = commitData;
     }
 
     public void setCurrBranch(String branchName) {
         currBranch = branchName;
-        Utils.writeContents(HEAD_FILE, branchName);
+        journal.write(HEAD_FILE, branchName.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Return the current branch recorded in HEAD.
+     */
+    private String readHead() {
+        return new String(journal.read(HEAD_FILE), StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Return the number of threads used to hash and write working files.
+     */
+    public int getJobs() {
+        return jobs;
+    }
+
+    /**
+     * Set the number of threads used to hash and write working files.
+     */
+    public void setJobs(int jobs) {
+        this.jobs = jobs;
     }
 
     /**
@@ -100,9 +181,37 @@ public class Repo {
 
     public final ObjectFolder objectFolder;
 
+    public final CommitGraph commitGraph;
+
+    public final MessageFolder messageFolder;
+
+    public final RemoteFolder remoteFolder;
+
+    /**
+     * The journal making the updates of refs, logs, HEAD and the index
+     * by one command atomic.
+     */
+    public final Journal journal;
+
     private CommitData currCommit;
 
     private String currBranch;
 
     private Stage stage;
+
+    /**
+     * The sparse checkout patterns.
+     */
+    private Sparse sparse;
+
+    /**
+     * The settings.
+     */
+    private Config config;
+
+    /**
+     * The number of threads used to hash and write working files,
+     * one per processor unless set by the --jobs option.
+     */
+    private int jobs = Runtime.getRuntime().availableProcessors();
 }
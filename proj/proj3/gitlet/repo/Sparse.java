@@ -0,0 +1,135 @@
+package gitlet.repo;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.PathMatcher;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+
+import static gitlet.Main.repo;
+
+/**
+ * This class represents the sparse checkout patterns of a repository,
+ * recorded one per line in ".gitlet/sparse".
+ * <p>
+ * A pattern is a glob, such as "*.txt" or "src-?.java". While there are
+ * patterns, only the files matching one of them are checked out: the
+ * checkout, reset, merge and status commands never read, hash or write a
+ * working file matching none of them, and leave it out of the untracked
+ * files. Files outside the patterns stay tracked in the commits as they
+ * are. Without patterns, every file is checked out.
+ *
+ * @author ryan ma
+ */
+
+public class Sparse {
+
+    /**
+     * The file recording the patterns.
+     */
+    public static final File SPARSE_FILE = new File(".gitlet/sparse");
+
+    /**
+     * Constructor function with PATTERNS. Throws IllegalArgumentException
+     * if a pattern is not a valid glob.
+     */
+    public Sparse(List<String> patterns) {
+        this.patterns = new ArrayList<>(patterns);
+        matchers = new ArrayList<>();
+        for (String pattern : patterns) {
+            matchers.add(FileSystems.getDefault().getPathMatcher("glob:" + pattern));
+        }
+    }
+
+    /**
+     * Return the patterns recorded in the repository, as updated in the
+     * current transaction of the journal.
+     */
+    public static Sparse readFromFile() {
+        List<String> patterns = new ArrayList<>();
+        if (repo.journal.exists(SPARSE_FILE)) {
+            String content = new String(repo.journal.read(SPARSE_FILE), StandardCharsets.UTF_8);
+            for (String line : content.split("\n")) {
+                if (!line.isEmpty()) {
+                    patterns.add(line);
+                }
+            }
+        }
+        return new Sparse(patterns);
+    }
+
+    /**
+     * Record these patterns in the repository, deleting the file when
+     * there are none.
+     */
+    public void save() {
+        if (patterns.isEmpty()) {
+            if (repo.journal.exists(SPARSE_FILE)) {
+                repo.journal.delete(SPARSE_FILE);
+            }
+            return;
+        }
+        StringBuilder content = new StringBuilder();
+        for (String pattern : patterns) {
+            content.append(pattern).append("\n");
+        }
+        repo.journal.write(SPARSE_FILE, content.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Return true if there are patterns.
+     */
+    public boolean isEnabled() {
+        return !patterns.isEmpty();
+    }
+
+    /**
+     * Return true if file FILENAME is checked out, that is there are no
+     * patterns or it matches one of them.
+     */
+    public boolean contains(String fileName) {
+        if (patterns.isEmpty()) {
+            return true;
+        }
+        Path path = Path.of(fileName);
+        for (PathMatcher matcher : matchers) {
+            if (matcher.matches(path)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Return the files of FILENAMES that are checked out.
+     */
+    public Set<String> filter(Collection<String> fileNames) {
+        Set<String> result = new TreeSet<>(fileNames);
+        if (!patterns.isEmpty()) {
+            result.removeIf(fileName -> !contains(fileName));
+        }
+        return result;
+    }
+
+    /**
+     * Return the patterns.
+     */
+    public List<String> getPatterns() {
+        return patterns;
+    }
+
+    /**
+     * The patterns, in the order they were given.
+     */
+    private final List<String> patterns;
+
+    /**
+     * A matcher for each pattern.
+     */
+    private final List<PathMatcher> matchers;
+}
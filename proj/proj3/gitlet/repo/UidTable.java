@@ -0,0 +1,130 @@
+package gitlet.repo;
+
+import gitlet.Utils;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * This class is a sorted table of the UIDs of the loose objects in the
+ * ".gitlet/objects" folder, used to resolve abbreviated UIDs.
+ * It is sharded like the folder: one sorted array per fan-out directory,
+ * named by the first two hexadecimal digits of the UIDs in it. A shard
+ * is loaded the first time a prefix in it is resolved, and kept for the
+ * rest of the process, so resolving many prefixes lists each directory
+ * at most once. Prefixes are found by binary search.
+ *
+ * @author ryan ma
+ */
+
+class UidTable {
+
+    /**
+     * Number of shards, one for each two-digit fan-out directory.
+     */
+    static final int SHARDS = 256;
+
+    /**
+     * Constructor function with the objects FOLDER.
+     */
+    UidTable(File folder) {
+        this.folder = folder;
+    }
+
+    /**
+     * Return the full UIDs of all loose objects starting with PREFIX,
+     * which is at least two digits long, in order.
+     */
+    synchronized List<String> findPrefix(String prefix) {
+        List<String> result = new ArrayList<>();
+        int s = shardOf(prefix);
+        if (s < 0) {
+            return result;
+        }
+        String[] shard = getShard(s);
+        for (int i = lowerBound(shard, prefix); i < shard.length; i += 1) {
+            if (!shard[i].startsWith(prefix)) {
+                break;
+            }
+            result.add(shard[i]);
+        }
+        return result;
+    }
+
+    /**
+     * Record the new loose object with full UID in its shard, if the
+     * shard is loaded.
+     */
+    synchronized void add(String uid) {
+        int s = shardOf(uid);
+        String[] shard = shards[s];
+        if (shard == null) {
+            return;
+        }
+        int i = lowerBound(shard, uid);
+        if (i < shard.length && shard[i].equals(uid)) {
+            return;
+        }
+        String[] grown = new String[shard.length + 1];
+        System.arraycopy(shard, 0, grown, 0, i);
+        grown[i] = uid;
+        System.arraycopy(shard, i, grown, i + 1, shard.length - i);
+        shards[s] = grown;
+    }
+
+    /**
+     * Forget all loaded shards, after loose objects have been deleted.
+     */
+    synchronized void clear() {
+        Arrays.fill(shards, null);
+    }
+
+    /**
+     * Return the shard S, loading it from its directory if needed.
+     */
+    private String[] getShard(int s) {
+        if (shards[s] == null) {
+            String dirName = String.format("%02x", s);
+            List<String> fileNames = Utils.plainFilenamesIn(new File(folder, dirName));
+            String[] shard = new String[fileNames == null ? 0 : fileNames.size()];
+            for (int i = 0; i < shard.length; i += 1) {
+                shard[i] = dirName + fileNames.get(i);
+            }
+            Arrays.sort(shard);
+            shards[s] = shard;
+        }
+        return shards[s];
+    }
+
+    /**
+     * Return the index of the shard of UID, or -1 if UID does not start
+     * with two hexadecimal digits.
+     */
+    private static int shardOf(String uid) {
+        if (uid.length() < 2 || Character.digit(uid.charAt(0), 16) < 0
+                || Character.digit(uid.charAt(1), 16) < 0) {
+            return -1;
+        }
+        return Integer.parseInt(uid.substring(0, 2), 16);
+    }
+
+    /**
+     * Return the index of the first UID in SHARD that is not less than KEY.
+     */
+    private static int lowerBound(String[] shard, String key) {
+        int i = Arrays.binarySearch(shard, key);
+        return i >= 0 ? i : -i - 1;
+    }
+
+    /**
+     * The objects folder.
+     */
+    private final File folder;
+
+    /**
+     * Sorted full UIDs of each shard, null until loaded.
+     */
+    private final String[][] shards = new String[SHARDS][];
+}
@@ -1,13 +1,24 @@
 package gitlet.repo;
 
 import gitlet.Utils;
-import gitlet.objects.Bolb;
 import gitlet.objects.CommitData;
 import gitlet.objects.Stage;
+import gitlet.objects.StatEntry;
 
+import java.io.File;
 import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
 
 import static gitlet.Main.repo;
 
@@ -29,10 +40,71 @@ public class WorkFolder extends Folder {
     }
 
     /**
-     * Return the uid of a file.
+     * Return the names of the working files inside the sparse checkout
+     * patterns; the other files are left alone by every command.
+     */
+    @Override
+    public List<String> getAllFileName() {
+        List<String> fileNames = super.getAllFileName();
+        if (fileNames == null || !repo.getSparse().isEnabled()) {
+            return fileNames;
+        }
+        return new ArrayList<>(repo.getSparse().filter(fileNames));
+    }
+
+    /**
+     * Return the uid of a file. The file is only hashed, as a byte stream,
+     * if its stat data differs from the one in the stat cache.
      */
     public String getUidOfFile(String fileName) {
-        return Utils.sha1(readFromFile(fileName));
+        File file = getFile(fileName);
+        StatEntry current = StatEntry.of(file, null, 0);
+        String uid = repo.getStage().getCachedUid(fileName, current);
+        if (uid == null) {
+            long hashedAt = StatEntry.now();
+            uid = Utils.sha1(file);
+            repo.getStage().cacheUid(fileName, StatEntry.of(file, uid, hashedAt));
+            hashed += 1;
+        } else {
+            trusted += 1;
+        }
+        return uid;
+    }
+
+    /**
+     * Return a map from each of FILENAMES to its uid. Files missing from
+     * the stat cache are hashed in parallel with repo.getJobs() threads,
+     * then recorded in the stat cache.
+     */
+    public Map<String, String> getUidsOfFiles(Collection<String> fileNames) throws IOException {
+        Map<String, String> uids = new TreeMap<>();
+        List<String> toHash = new ArrayList<>();
+        for (String fileName : fileNames) {
+            StatEntry current = StatEntry.of(getFile(fileName), null, 0);
+            String uid = repo.getStage().getCachedUid(fileName, current);
+            if (uid != null) {
+                uids.put(fileName, uid);
+                trusted += 1;
+            } else {
+                toHash.add(fileName);
+            }
+        }
+
+        Map<String, StatEntry> entries = new ConcurrentHashMap<>();
+        runParallel(toHash, fileName -> {
+            File file = getFile(fileName);
+            long hashedAt = StatEntry.now();
+            String uid = Utils.sha1(file);
+            entries.put(fileName, StatEntry.of(file, uid, hashedAt));
+        });
+
+        for (String fileName : toHash) {
+            StatEntry entry = entries.get(fileName);
+            repo.getStage().cacheUid(fileName, entry);
+            uids.put(fileName, entry.getUid());
+        }
+        hashed += toHash.size();
+        return uids;
     }
 
     /**
@@ -53,50 +125,218 @@ public class WorkFolder extends Folder {
      * Check out the given file in the given commit.
      */
     public void checkoutFileWithCommit(CommitData commit, String fileName) throws IOException {
-        if (!checkExist(fileName)) {
-            addFile(fileName);
-        }
-        Bolb bolb = repo.objectFolder.getBolb(commit, fileName);
-        writeToFile(fileName, bolb.getContent());
+        repo.objectFolder.copyBolb(commit.getBolbUid(fileName), getFile(fileName));
     }
 
     /**
      * Return the condition for check out all files in working directory to the given commit.
+     * The files of both commits are listed once rather than looked up
+     * in their trees for each working file.
      */
-    public boolean canNotCheckoutAllFiles(CommitData commit) {
-        boolean untracked = false, changed = false;
+    public boolean canNotCheckoutAllFiles(CommitData commit) throws IOException {
         List<String> workingFiles = getAllFileName();
+        List<String> toCompare = new ArrayList<>();
+        Set<String> filesInCommit = commit.getAllFileName();
+        Set<String> filesInCurrent = repo.getCurrCommit().getAllFileName();
 
         for (String fileName : workingFiles) {
-            if (commit.containsFile(fileName)) {
-                if (!repo.getCurrCommit().containsFile(fileName)) {
-                    untracked = true;
-                    break;
-                } else if (!compareFile(fileName, repo.getCurrCommit())) {
-                    changed = true;
-                    break;
+            if (filesInCommit.contains(fileName)) {
+                if (!filesInCurrent.contains(fileName)) {
+                    return true;
                 }
+                toCompare.add(fileName);
             }
         }
 
-        return untracked || changed;
+        Map<String, String> uids = getUidsOfFiles(toCompare);
+        for (String fileName : toCompare) {
+            if (!uids.get(fileName).equals(repo.getCurrCommit().getBolbUid(fileName))) {
+                return true;
+            }
+        }
+        return false;
     }
 
     /**
-     * Check out all files in working directory to commit.
+     * Check out all files in working directory to COMMIT, which holds the
+     * current commit, writing only the files that differ: the two commits
+     * are compared by their trees, skipping the subtrees they share, so
+     * files with the same bolb in both keep their modification time. Such
+     * a file is only written if it is missing from the working directory.
+     * Files are written in parallel with repo.getJobs() threads.
+     * Only files inside the sparse checkout patterns are written or deleted.
+     * Return the number of files written or deleted.
      */
-    public void checkoutAllFilesWithCommit(CommitData commit) throws IOException {
-        Set<String> filesInCommit = commit.getAllFileName();
-        Set<String> filesToBeDeleted = repo.getCurrCommit().getAllFileName();
-        filesToBeDeleted.removeAll(filesInCommit);
+    public int checkoutAllFilesWithCommit(CommitData commit) throws IOException {
+        Sparse sparse = repo.getSparse();
+        CommitData curr = repo.getCurrCommit();
+        Set<String> changed = curr.getDiffFiles(commit);
+        Set<String> filesToWrite = sparse.filter(changed);
+        Set<String> filesToBeDeleted = sparse.filter(curr.getRemovedFiles(commit));
 
-        for (String fileName : filesInCommit) {
-            checkoutFileWithCommit(commit, fileName);
+        Set<String> workingFiles = new HashSet<>();
+        List<String> fileNames = getAllFileName();
+        if (fileNames != null) {
+            workingFiles.addAll(fileNames);
+        }
+        for (String fileName : sparse.filter(commit.getAllFileName())) {
+            if (!workingFiles.contains(fileName) && !changed.contains(fileName)) {
+                filesToWrite.add(fileName);
+            }
         }
 
+        runParallel(filesToWrite, fileName -> checkoutFileWithCommit(commit, fileName));
+        checkouts += 1;
+        written += filesToWrite.size();
+
+        int touched = filesToWrite.size();
         for (String delFile : filesToBeDeleted) {
+            if (workingFiles.contains(delFile)) {
+                touched += 1;
+                deleted += 1;
+            }
             deleteFile(delFile);
         }
+        return touched;
+    }
+
+    /**
+     * Return the numbers of files written and deleted by the checkouts
+     * of the current command, or null if it checked out no commit.
+     */
+    public String getCheckoutStats() {
+        if (checkouts == 0) {
+            return null;
+        }
+        return String.format("checkout: %d files written, %d deleted", written, deleted);
+    }
+
+    /**
+     * Return the numbers of working files hashed by the current command
+     * and of those whose UID was taken from the stat cache, or null if it
+     * looked at no working file.
+     */
+    public String getHashStats() {
+        if (hashed + trusted == 0) {
+            return null;
+        }
+        return String.format("work tree: %d files hashed, %d taken from the stat cache",
+                hashed, trusted);
+    }
+
+    /**
+     * Forget the numbers of files written, deleted and hashed, before the
+     * daemon runs the next command.
+     */
+    void refresh() {
+        checkouts = 0;
+        written = 0;
+        deleted = 0;
+        hashed = 0;
+        trusted = 0;
+    }
+
+    /**
+     * Return the files of the current commit that changing the sparse
+     * checkout patterns to SPARSE checks out, missing from the working
+     * directory or in their committed version.
+     */
+    public Set<String> getFilesEnteringSparse(Sparse sparse) {
+        Set<String> entering = sparse.filter(repo.getCurrCommit().getAllFileName());
+        entering.removeAll(repo.getSparse().filter(entering));
+        return entering;
+    }
+
+    /**
+     * Return the files of the current commit that changing the sparse
+     * checkout patterns to SPARSE removes from the working directory.
+     */
+    public Set<String> getFilesLeavingSparse(Sparse sparse) {
+        Set<String> leaving = repo.getSparse().filter(repo.getCurrCommit().getAllFileName());
+        leaving.removeAll(sparse.filter(leaving));
+        return leaving;
+    }
+
+    /**
+     * Return true if one of the working files that changing the sparse
+     * checkout patterns to SPARSE overwrites or deletes differs from the
+     * current commit. Only these files are hashed.
+     */
+    public boolean canNotChangeSparse(Sparse sparse) throws IOException {
+        Set<String> toCompare = new TreeSet<>(getFilesEnteringSparse(sparse));
+        toCompare.addAll(getFilesLeavingSparse(sparse));
+        toCompare.removeIf(fileName -> !checkExist(fileName));
+        Map<String, String> uids = getUidsOfFiles(toCompare);
+        for (String fileName : toCompare) {
+            if (!uids.get(fileName).equals(repo.getCurrCommit().getBolbUid(fileName))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Change the sparse checkout patterns to SPARSE: check out the files
+     * of the current commit it adds and delete the ones it removes.
+     */
+    public void changeSparse(Sparse sparse) throws IOException {
+        CommitData commit = repo.getCurrCommit();
+        Set<String> entering = getFilesEnteringSparse(sparse);
+        Set<String> leaving = getFilesLeavingSparse(sparse);
+
+        runParallel(entering, fileName -> checkoutFileWithCommit(commit, fileName));
+        for (String fileName : leaving) {
+            deleteFile(fileName);
+        }
+        repo.setSparse(sparse);
+    }
+
+    /**
+     * Run TASK on each of ITEMS, using repo.getJobs() threads.
+     * The first IOException thrown by TASK is rethrown.
+     */
+    private <T> void runParallel(Collection<T> items, FileTask<T> task) throws IOException {
+        int jobs = repo.getJobs();
+        if (jobs <= 1 || items.size() <= 1) {
+            for (T item : items) {
+                task.run(item);
+            }
+            return;
+        }
+
+        ForkJoinPool pool = new ForkJoinPool(jobs);
+        try {
+            pool.submit(() -> items.parallelStream().forEach(item -> {
+                try {
+                    task.run(item);
+                } catch (IOException excp) {
+                    throw new UncheckedIOException(excp);
+                }
+            })).get();
+        } catch (InterruptedException excp) {
+            Thread.currentThread().interrupt();
+            throw new IOException(excp);
+        } catch (ExecutionException excp) {
+            Throwable cause = excp.getCause();
+            if (cause instanceof UncheckedIOException) {
+                throw ((UncheckedIOException) cause).getCause();
+            } else if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new IOException(cause);
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    /**
+     * A task on a working file that may throw IOException.
+     */
+    private interface FileTask<T> {
+        /**
+         * Run this task on ITEM.
+         */
+        void run(T item) throws IOException;
     }
 
     @Override
@@ -104,5 +344,32 @@ public class WorkFolder extends Folder {
         if (checkExist(fileName)) {
             Utils.restrictedDelete(getFile(fileName));
         }
+        repo.getStage().uncache(fileName);
     }
+
+    /**
+     * The number of commits checked out by the current command.
+     */
+    private int checkouts;
+
+    /**
+     * The number of files written by those checkouts.
+     */
+    private int written;
+
+    /**
+     * The number of files deleted by those checkouts.
+     */
+    private int deleted;
+
+    /**
+     * The number of working files hashed by the current command.
+     */
+    private int hashed;
+
+    /**
+     * The number of working files whose UID the current command took from
+     * the stat cache instead of hashing them.
+     */
+    private int trusted;
 }
@@ -0,0 +1,26 @@
+import sys
+from os.path import join
+
+USAGE = """\
+Usage: python3 large.py DIR
+
+Writes into DIR the files larger than the chunking threshold (1 MiB) used
+by samples/test26-large-file.in: large.txt, 140,000 numbered lines, and
+large-changed.txt, the same lines with one changed in the middle."""
+
+LINES = 140000
+CHANGED = 70000
+
+def main():
+    if len(sys.argv) != 2:
+        print(USAGE, file=sys.stderr)
+        sys.exit(1)
+    lines = ["%07d\n" % i for i in range(LINES)]
+    with open(join(sys.argv[1], "large.txt"), "w", newline="") as f:
+        f.writelines(lines)
+    lines[CHANGED] = "%07d changed\n" % CHANGED
+    with open(join(sys.argv[1], "large-changed.txt"), "w", newline="") as f:
+        f.writelines(lines)
+
+if __name__ == "__main__":
+    main()
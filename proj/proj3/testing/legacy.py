@@ -0,0 +1,149 @@
+import sys
+from subprocess import check_output, STDOUT, DEVNULL
+from getopt import getopt, GetoptError
+from os import walk
+from os.path import join
+from shutil import rmtree
+from tempfile import mkdtemp
+
+SHORT_USAGE = """\
+Usage: python3 legacy.py OPTIONS
+
+   OPTIONS may include
+       --baseline=JAR Directory or JAR file containing the baseline gitlet
+                      application (required)
+       --progdir=DIR  Directory or JAR files containing gitlet application
+       --keep         Keep the test directory
+"""
+
+USAGE = SHORT_USAGE + """\
+
+Checks that a repository made by the baseline gitlet, which stored every
+object and the index with Java serialization, is still read.  The baseline
+makes commits on two branches, stages a new file and a removal; then the
+current gitlet runs migrate, log and status, commits the staged changes
+and checks out the other branch.  After migrate, no object may be left in
+Java serialization, and a second migrate must have nothing to do."""
+
+GITLET_COMMAND = "java -ea gitlet.Main"
+BASELINE_COMMAND = None
+TIMEOUT = 60
+
+def Usage():
+    print(SHORT_USAGE, file=sys.stderr)
+    sys.exit(1)
+
+def run(command, dir, *args):
+    return check_output(command.split() + list(args), cwd=dir,
+                        universal_newlines=True, stdin=DEVNULL, stderr=STDOUT,
+                        timeout=TIMEOUT)
+
+def gitlet(dir, *args):
+    return run(GITLET_COMMAND, dir, *args)
+
+def baseline(dir, *args):
+    return run(BASELINE_COMMAND, dir, *args)
+
+def write(dir, name, content):
+    with open(join(dir, name), "w") as out:
+        out.write(content)
+
+def read(dir, name):
+    with open(join(dir, name)) as inp:
+        return inp.read()
+
+def section(status, title):
+    lines = status.split("\n")
+    start = lines.index("=== {} ===".format(title)) + 1
+    end = start
+    while end < len(lines) and lines[end].strip():
+        end += 1
+    return lines[start:end]
+
+def serialized_objects(dir):
+    """Return the files of the object folder of the repository in DIR
+    that start with the header of a Java serialization stream."""
+    found = []
+    for root, dirs, files in walk(join(dir, ".gitlet", "objects")):
+        for name in files:
+            with open(join(root, name), "rb") as inp:
+                if inp.read(2) == b"\xac\xed":
+                    found.append(join(root, name))
+    return found
+
+def messages(log):
+    return [line for line in log.split("\n")
+            if line and not line.startswith(("===", "commit ", "Date: ", "Merge: "))]
+
+def check(errors, what, expected, actual):
+    if expected != actual:
+        errors.append("{}: expected {}, got {}".format(what, expected, actual))
+
+if __name__ == "__main__":
+    keep = False
+    try:
+        opts, args = getopt(sys.argv[1:], '', ['baseline=', 'progdir=', 'keep'])
+        for opt, val in opts:
+            if opt == '--baseline':
+                BASELINE_COMMAND = \
+                    "java -classpath {} gitlet.Main".format(val)
+            elif opt == '--progdir':
+                GITLET_COMMAND = \
+                    "java -ea -classpath {} gitlet.Main".format(val)
+            elif opt == '--keep':
+                keep = True
+        if args or BASELINE_COMMAND is None:
+            Usage()
+    except (GetoptError, ValueError):
+        Usage()
+
+    dir = mkdtemp(prefix="legacy_")
+    errors = []
+    baseline(dir, "init")
+    write(dir, "wug.txt", "This is a wug.\n")
+    write(dir, "notwug.txt", "This is not a wug.\n")
+    baseline(dir, "add", "wug.txt")
+    baseline(dir, "add", "notwug.txt")
+    baseline(dir, "commit", "two files")
+    baseline(dir, "branch", "other")
+    write(dir, "wug.txt", "This is a wug, changed.\n")
+    baseline(dir, "add", "wug.txt")
+    baseline(dir, "commit", "changed wug")
+    baseline(dir, "rm", "notwug.txt")
+    write(dir, "a.txt", "A new file.\n")
+    baseline(dir, "add", "a.txt")
+    expected_log = baseline(dir, "log")
+
+    out = gitlet(dir, "migrate")
+    if not out.startswith("Migrated "):
+        errors.append("migrate: {}".format(out.strip()))
+    check(errors, "objects left in Java serialization", [], serialized_objects(dir))
+    check(errors, "log", expected_log, gitlet(dir, "log"))
+    status = gitlet(dir, "status")
+    check(errors, "branches", ["*master", "other"], section(status, "Branches"))
+    check(errors, "staged files", ["a.txt"], section(status, "Staged Files"))
+    check(errors, "removed files", ["notwug.txt"], section(status, "Removed Files"))
+    check(errors, "modifications",
+          [], section(status, "Modifications Not Staged For Commit"))
+    check(errors, "second migrate", "Migrated 0 objects:",
+          " ".join(gitlet(dir, "migrate").split()[:3]))
+
+    out = gitlet(dir, "commit", "after migrate")
+    check(errors, "commit", "", out.strip())
+    check(errors, "messages", ["after migrate", "changed wug", "two files", "initial commit"],
+          messages(gitlet(dir, "log")))
+    out = gitlet(dir, "checkout", "other")
+    check(errors, "checkout", "", out.strip())
+    check(errors, "wug.txt", "This is a wug.\n", read(dir, "wug.txt"))
+    check(errors, "notwug.txt", "This is not a wug.\n", read(dir, "notwug.txt"))
+
+    if keep:
+        print("Repository kept in {}".format(dir))
+    else:
+        rmtree(dir, ignore_errors=True)
+    for error in errors:
+        print(error)
+    if errors:
+        print("Legacy test failed.")
+        sys.exit(1)
+    print("Legacy test passed.")
@@ -0,0 +1,3 @@
+#!/bin/sh
+# Fails once g.txt is committed.
+test ! -f g.txt
@@ -0,0 +1,144 @@
+import sys
+from subprocess import check_output, STDOUT, DEVNULL
+from getopt import getopt, GetoptError
+from os.path import join
+from shutil import rmtree
+from tempfile import mkdtemp
+from threading import Thread
+
+SHORT_USAGE = """\
+Usage: python3 stress.py OPTIONS
+
+   OPTIONS may include
+       --workers=N    Number of concurrent gitlet processes (default 8).
+       --commits=N    Number of commits made by each of them (default 5).
+       --progdir=DIR  Directory or JAR files containing gitlet application
+       --keep         Keep the test directory
+"""
+
+USAGE = SHORT_USAGE + """\
+
+Runs many gitlet processes against one repository at the same time.  Each
+worker repeatedly creates a file of its own, adds it and commits it.  A
+command refused because another process held a lock or changed the index
+or a branch meanwhile is run again.  A commit may find nothing to commit
+when another worker already committed the file.  At the end, the branch
+must contain one commit for each commit that succeeded, and every file
+must be committed: no update may be lost."""
+
+GITLET_COMMAND = "java -ea gitlet.Main"
+RETRY = ("another gitlet process",)
+TIMEOUT = 60
+
+def Usage():
+    print(SHORT_USAGE, file=sys.stderr)
+    sys.exit(1)
+
+def gitlet(dir, *args):
+    return check_output(GITLET_COMMAND.split() + list(args), cwd=dir,
+                        universal_newlines=True, stdin=DEVNULL, stderr=STDOUT,
+                        timeout=TIMEOUT)
+
+def retried(dir, *args):
+    """Run gitlet with ARGS in DIR until it is not refused because of
+    another process.  Returns its output and the number of retries."""
+    retries = 0
+    while True:
+        out = gitlet(dir, *args)
+        if not any(reason in out for reason in RETRY):
+            return out, retries
+        retries += 1
+
+class Worker(Thread):
+    def __init__(self, dir, number, commits):
+        Thread.__init__(self)
+        self.dir, self.number, self.commits = dir, number, commits
+        self.succeeded = 0
+        self.retries = 0
+        self.errors = []
+
+    def run(self):
+        try:
+            for k in range(self.commits):
+                name = "w{}-{}.txt".format(self.number, k)
+                with open(join(self.dir, name), "w") as out:
+                    out.write("worker {} commit {}\n".format(self.number, k))
+                out, retries = retried(self.dir, "add", name)
+                self.retries += retries
+                if out.strip():
+                    self.errors.append("add {}: {}".format(name, out.strip()))
+                out, retries = retried(self.dir, "commit", name)
+                self.retries += retries
+                if not out.strip():
+                    self.succeeded += 1
+                elif out.strip() != "No changes added to the commit.":
+                    self.errors.append("commit {}: {}".format(name, out.strip()))
+        except Exception as excp:
+            self.errors.append(str(excp))
+
+def section(status, title):
+    lines = status.split("\n")
+    start = lines.index("=== {} ===".format(title)) + 1
+    end = start
+    while end < len(lines) and lines[end].strip():
+        end += 1
+    return lines[start:end]
+
+if __name__ == "__main__":
+    workers, commits, keep = 8, 5, False
+    try:
+        opts, args = \
+            getopt(sys.argv[1:], '',
+                   ['workers=', 'commits=', 'progdir=', 'keep'])
+        for opt, val in opts:
+            if opt == '--workers':
+                workers = int(val)
+            elif opt == '--commits':
+                commits = int(val)
+            elif opt == '--progdir':
+                GITLET_COMMAND = \
+                    "java -ea -classpath {} gitlet.Main".format(val)
+            elif opt == '--keep':
+                keep = True
+        if args:
+            Usage()
+    except (GetoptError, ValueError):
+        Usage()
+
+    dir = mkdtemp(prefix="stress_")
+    gitlet(dir, "init")
+    threads = [Worker(dir, n, commits) for n in range(workers)]
+    for thread in threads:
+        thread.start()
+    for thread in threads:
+        thread.join()
+
+    failed = False
+    for thread in threads:
+        for error in thread.errors:
+            print("worker {}: {}".format(thread.number, error))
+            failed = True
+    succeeded = sum(thread.succeeded for thread in threads)
+    logged = sum(1 for line in gitlet(dir, "log").split("\n")
+                 if line.startswith("commit "))
+    if logged != succeeded + 1:
+        print("{} commits succeeded, but the log has {} besides the initial commit"
+              .format(succeeded, logged - 1))
+        failed = True
+    status = gitlet(dir, "status")
+    for title in ("Staged Files", "Untracked Files"):
+        if section(status, title):
+            print("{} left: {}".format(title, " ".join(section(status, title))))
+            failed = True
+
+    print("{} workers, {} files, {} commits, {} retries."
+          .format(workers, workers * commits, succeeded,
+                  sum(thread.retries for thread in threads)))
+    if keep:
+        print("Repository kept in {}".format(dir))
+    else:
+        rmtree(dir, ignore_errors=True)
+    if failed:
+        print("Stress test failed.")
+        sys.exit(1)
+    print("Stress test passed.")